@@ -0,0 +1,40 @@
+package ru.bakht.pharmacy.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.io.IOException;
+
+/**
+ * Получает сообщения об инвалидации от других экземпляров сервиса
+ * и удаляет соответствующие записи из локального кэша.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class CacheInvalidationListener implements MessageListener {
+
+    private final TwoLevelCacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+    private final String instanceId;
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CacheInvalidationMessage invalidation;
+        try {
+            invalidation = objectMapper.readValue(message.getBody(), CacheInvalidationMessage.class);
+        } catch (IOException e) {
+            log.error("Не удалось разобрать сообщение об инвалидации кэша: {}", e.getMessage());
+            return;
+        }
+
+        if (instanceId.equals(invalidation.origin())) {
+            return;
+        }
+
+        log.debug("Инвалидация локального кэша {} по ключу {}", invalidation.cache(), invalidation.key());
+        cacheManager.evictLocal(invalidation.cache(), invalidation.key());
+    }
+}
@@ -0,0 +1,11 @@
+package ru.bakht.pharmacy.service.cache;
+
+/**
+ * Сообщение об инвалидации записи локального кэша, рассылаемое через Redis pub/sub.
+ *
+ * @param origin идентификатор экземпляра сервиса, отправившего сообщение
+ * @param cache название кэша
+ * @param key строковый ключ записи или {@code null}, если кэш очищен полностью
+ */
+public record CacheInvalidationMessage(String origin, String cache, String key) {
+}
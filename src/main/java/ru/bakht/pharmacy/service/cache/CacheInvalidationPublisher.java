@@ -0,0 +1,43 @@
+package ru.bakht.pharmacy.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+
+/**
+ * Публикует сообщения об инвалидации локальных кэшей для остальных экземпляров сервиса.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class CacheInvalidationPublisher {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+
+    @Getter
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Отправляет сообщение об удалении записи из кэша.
+     * Ошибка отправки не прерывает операцию записи: устаревшая запись в L1
+     * других экземпляров будет удалена по истечении ее времени жизни.
+     *
+     * @param cacheName название кэша
+     * @param key строковый ключ записи или {@code null}, если кэш очищен полностью
+     */
+    public void publish(String cacheName, String key) {
+        try {
+            var message = new CacheInvalidationMessage(instanceId, cacheName, key);
+            redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Не удалось отправить сообщение об инвалидации кэша {} по ключу {}: {}",
+                    cacheName, key, e.getMessage());
+        }
+    }
+}
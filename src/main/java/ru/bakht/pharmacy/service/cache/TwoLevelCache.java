@@ -0,0 +1,133 @@
+package ru.bakht.pharmacy.service.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Двухуровневый кэш: локальный ограниченный кэш Caffeine (L1) перед общим кэшем Redis (L2).
+ * Чтение сначала обращается к L1, при промахе - к L2 с заполнением L1.
+ * Удаление и очистка применяются к обоим уровням и рассылаются остальным экземплярам сервиса
+ * через {@link CacheInvalidationPublisher}.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;
+    private final CacheInvalidationPublisher invalidationPublisher;
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+                         Cache remote,
+                         CacheInvalidationPublisher invalidationPublisher) {
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    public com.github.benmanes.caffeine.cache.Cache<String, Object> getLocal() {
+        return local;
+    }
+
+    public Cache getRemote() {
+        return remote;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+
+        ValueWrapper wrapper = remote.get(key);
+        value = wrapper != null ? wrapper.get() : null;
+        if (value != null) {
+            local.put(localKey, value);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) local.get(localKey(key), k -> remote.get(key, valueLoader));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        remote.put(key, value);
+        local.put(localKey(key), value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        Object actual = existing != null ? existing.get() : value;
+        if (actual != null) {
+            local.put(localKey(key), actual);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = localKey(key);
+        try {
+            remote.evict(key);
+        } finally {
+            local.invalidate(localKey);
+        }
+        invalidationPublisher.publish(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        try {
+            remote.clear();
+        } finally {
+            local.invalidateAll();
+        }
+        invalidationPublisher.publish(name, null);
+    }
+
+    /**
+     * Удаляет запись только из локального кэша по сообщению от другого экземпляра сервиса.
+     *
+     * @param key строковый ключ записи или {@code null} для очистки всего локального кэша
+     */
+    public void evictLocal(String key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    /**
+     * Ключи L1 приводятся к строке так же, как ключи Redis, чтобы сообщения об инвалидации
+     * однозначно адресовали запись независимо от типа ключа.
+     */
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.bakht.pharmacy.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Менеджер двухуровневых кэшей: для каждого кэша из менеджера L2 создается
+ * {@link TwoLevelCache} с собственным локальным кэшем Caffeine.
+ * Если менеджер поддерживает транзакции, удаление и очистка выполняются только после фиксации транзакции.
+ */
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private final CacheManager remoteCacheManager;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final long localMaximumSize;
+    private final Duration localTtl;
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager,
+                                CacheInvalidationPublisher invalidationPublisher,
+                                long localMaximumSize,
+                                Duration localTtl) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.invalidationPublisher = invalidationPublisher;
+        this.localMaximumSize = localMaximumSize;
+        this.localTtl = localTtl;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return remoteCacheManager.getCacheNames().stream()
+                .map(name -> createCache(name, Objects.requireNonNull(remoteCacheManager.getCache(name))))
+                .toList();
+    }
+
+    /**
+     * Удаляет запись только из локального уровня кэша.
+     *
+     * @param cacheName название кэша
+     * @param key строковый ключ записи или {@code null} для очистки всего локального кэша
+     */
+    public void evictLocal(String cacheName, String key) {
+        Cache cache = lookupCache(cacheName);
+        if (cache instanceof TransactionAwareCacheDecorator decorator) {
+            cache = decorator.getTargetCache();
+        }
+        if (cache instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.evictLocal(key);
+        }
+    }
+
+    private TwoLevelCache createCache(String name, Cache remote) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        return new TwoLevelCache(name, local, remote, invalidationPublisher);
+    }
+}
@@ -0,0 +1,170 @@
+package ru.bakht.pharmacy.service.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.CachingConfigurer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.*;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import ru.bakht.pharmacy.service.cache.CacheInvalidationListener;
+import ru.bakht.pharmacy.service.cache.CacheInvalidationPublisher;
+import ru.bakht.pharmacy.service.cache.TwoLevelCache;
+import ru.bakht.pharmacy.service.cache.TwoLevelCacheManager;
+import ru.bakht.pharmacy.service.model.dto.CursorPage;
+import ru.bakht.pharmacy.service.model.dto.CustomerDto;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
+import ru.bakht.pharmacy.service.model.dto.PharmacyDto;
+
+import java.time.Duration;
+
+/**
+ * Конфигурация двухуровневого кэширования справочников лекарств, аптек и клиентов.
+ * Локальный кэш Caffeine (L1) каждого экземпляра сервиса стоит перед общим кэшем Redis (L2),
+ * а удаление записей рассылается остальным экземплярам через Redis pub/sub.
+ * Каждый кэш Redis сериализует значения в JSON своего типа, а сброс записей
+ * при изменении данных выполняется только после фиксации транзакции.
+ */
+@Slf4j
+@Configuration
+@EnableCaching
+public class CacheConfig implements CachingConfigurer {
+
+    public static final String MEDICATIONS = "medications";
+    public static final String MEDICATION_PAGES = "medicationPages";
+    public static final String PHARMACIES = "pharmacies";
+    public static final String PHARMACY_PAGES = "pharmacyPages";
+    public static final String CUSTOMERS = "customers";
+    public static final String CUSTOMER_PAGES = "customerPages";
+
+    private static final int CLEAN_BATCH_SIZE = 1000;
+
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(
+            StringRedisTemplate stringRedisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${pharmacy.cache.invalidation-channel}") String channel) {
+        return new CacheInvalidationPublisher(stringRedisTemplate, objectMapper, channel);
+    }
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(
+            RedisConnectionFactory redisConnectionFactory,
+            ObjectMapper objectMapper,
+            CacheInvalidationPublisher cacheInvalidationPublisher,
+            @Value("${pharmacy.cache.ttl}") Duration ttl,
+            @Value("${pharmacy.cache.page-ttl}") Duration pageTtl,
+            @Value("${pharmacy.cache.local.maximum-size}") long localMaximumSize,
+            @Value("${pharmacy.cache.local.ttl}") Duration localTtl) {
+
+        var types = objectMapper.getTypeFactory();
+        var cacheWriter = RedisCacheWriter
+                .nonLockingRedisCacheWriter(redisConnectionFactory, BatchStrategies.scan(CLEAN_BATCH_SIZE))
+                .withStatisticsCollector(CacheStatisticsCollector.create());
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
+                .disableCreateOnMissingCache()
+                .withCacheConfiguration(MEDICATIONS, cacheConfiguration(
+                        objectMapper, types.constructType(MedicationDto.class), ttl))
+                .withCacheConfiguration(MEDICATION_PAGES, cacheConfiguration(
+                        objectMapper, types.constructParametricType(CursorPage.class, MedicationDto.class), pageTtl))
+                .withCacheConfiguration(PHARMACIES, cacheConfiguration(
+                        objectMapper, types.constructType(PharmacyDto.class), ttl))
+                .withCacheConfiguration(PHARMACY_PAGES, cacheConfiguration(
+                        objectMapper, types.constructParametricType(CursorPage.class, PharmacyDto.class), pageTtl))
+                .withCacheConfiguration(CUSTOMERS, cacheConfiguration(
+                        objectMapper, types.constructType(CustomerDto.class), ttl))
+                .withCacheConfiguration(CUSTOMER_PAGES, cacheConfiguration(
+                        objectMapper, types.constructParametricType(CursorPage.class, CustomerDto.class), pageTtl))
+                .build();
+        redisCacheManager.initializeCaches();
+
+        var cacheManager = new TwoLevelCacheManager(
+                redisCacheManager, cacheInvalidationPublisher, localMaximumSize, localTtl);
+        cacheManager.setTransactionAware(true);
+        return cacheManager;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory redisConnectionFactory,
+            TwoLevelCacheManager cacheManager,
+            CacheInvalidationPublisher cacheInvalidationPublisher,
+            ObjectMapper objectMapper,
+            @Value("${pharmacy.cache.invalidation-channel}") String channel) {
+
+        var container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(
+                new CacheInvalidationListener(cacheManager, objectMapper, cacheInvalidationPublisher.getInstanceId()),
+                new ChannelTopic(channel));
+        return container;
+    }
+
+    /**
+     * Публикует метрики попаданий и промахов обоих уровней кэша с тегом {@code level}.
+     */
+    @Bean
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        return (cache, tags) -> registry -> {
+            new CaffeineCacheMetrics<>(cache.getLocal(), cache.getName(), Tags.of(tags).and(Tag.of("level", "local")))
+                    .bindTo(registry);
+            if (cache.getRemote() instanceof RedisCache redisCache) {
+                new RedisCacheMetrics(redisCache, Tags.of(tags).and(Tag.of("level", "remote")))
+                        .bindTo(registry);
+            }
+        };
+    }
+
+    /**
+     * Ошибки Redis не должны ломать чтение справочника: при недоступности кэша
+     * запрос выполняется напрямую к базе данных.
+     */
+    @Override
+    public CacheErrorHandler errorHandler() {
+        return new CacheErrorHandler() {
+            @Override
+            public void handleCacheGetError(RuntimeException exception, Cache cache, Object key) {
+                log.warn("Ошибка чтения из кэша {} по ключу {}: {}", cache.getName(), key, exception.getMessage());
+            }
+
+            @Override
+            public void handleCachePutError(RuntimeException exception, Cache cache, Object key, Object value) {
+                log.warn("Ошибка записи в кэш {} по ключу {}: {}", cache.getName(), key, exception.getMessage());
+            }
+
+            @Override
+            public void handleCacheEvictError(RuntimeException exception, Cache cache, Object key) {
+                log.error("Ошибка удаления из кэша {} по ключу {}: {}", cache.getName(), key, exception.getMessage());
+            }
+
+            @Override
+            public void handleCacheClearError(RuntimeException exception, Cache cache) {
+                log.error("Ошибка очистки кэша {}: {}", cache.getName(), exception.getMessage());
+            }
+        };
+    }
+
+    private static RedisCacheConfiguration cacheConfiguration(ObjectMapper objectMapper, JavaType type, Duration ttl) {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(ttl)
+                .disableCachingNullValues()
+                .serializeValuesWith(SerializationPair.fromSerializer(
+                        new Jackson2JsonRedisSerializer<>(objectMapper, type)));
+    }
+}
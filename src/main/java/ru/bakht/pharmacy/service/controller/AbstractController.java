@@ -2,12 +2,14 @@ package ru.bakht.pharmacy.service.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.bakht.pharmacy.service.model.dto.CursorPage;
 import ru.bakht.pharmacy.service.service.BaseService;
 
 import java.util.List;
@@ -20,9 +22,11 @@ public abstract class AbstractController<T, ID extends Number> {
 
     @GetMapping
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_USER')")
-    @Operation(summary = "Получить все сущности", description = "Возвращает список всех сущностей")
-    public List<T> getAll() {
-        return baseService.getAll();
+    @Operation(summary = "Получить страницу сущностей",
+            description = "Возвращает страницу сущностей с идентификатором больше курсора after и курсор следующей страницы")
+    public CursorPage<T> getAll(@RequestParam(required = false) @Min(0) ID after,
+                                @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        return baseService.getAll(after, limit);
     }
 
     @GetMapping("/{id}")
@@ -1,15 +1,36 @@
 package ru.bakht.pharmacy.service.controller;
 
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.service.MedicationService;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/medications")
 public class MedicationController extends AbstractController<MedicationDto, Long> {
 
+    private final MedicationService medicationService;
+
     public MedicationController(MedicationService medicationService) {
         super(medicationService);
+        this.medicationService = medicationService;
+    }
+
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_USER')")
+    @Operation(summary = "Найти лекарства по названию",
+            description = "Возвращает лекарства, название которых содержит строку поиска или похоже на нее "
+                    + "с учетом опечаток, начиная с наиболее похожих")
+    public List<MedicationDto> search(@RequestParam String query,
+                                      @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+        return medicationService.search(query, limit);
     }
 }
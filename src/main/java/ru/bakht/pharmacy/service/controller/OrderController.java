@@ -1,15 +1,48 @@
 package ru.bakht.pharmacy.service.controller;
 
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.bakht.pharmacy.service.model.dto.OrderDto;
 import ru.bakht.pharmacy.service.service.OrderService;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController extends AbstractController<OrderDto, Long> {
 
+    private final OrderService orderService;
+
     public OrderController(OrderService orderService) {
         super(orderService);
+        this.orderService = orderService;
+    }
+
+    @GetMapping(value = "/export.ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Экспортировать все заказы в формате NDJSON",
+            description = "Потоково выгружает все заказы, по одному JSON-объекту на строку")
+    public ResponseEntity<StreamingResponseBody> exportNdjson() {
+        StreamingResponseBody body = orderService::exportNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Создать пакет заказов",
+            description = "Создает несколько заказов в одной транзакции и списывает остатки лекарств")
+    public List<OrderDto> createAll(@RequestBody @NotEmpty @Size(max = 1000) List<@Valid OrderDto> orderDtos) {
+        return orderService.createAll(orderDtos);
     }
 }
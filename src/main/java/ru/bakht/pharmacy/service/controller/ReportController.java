@@ -7,12 +7,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.bakht.pharmacy.service.enums.FileFormat;
 import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
+import ru.bakht.pharmacy.service.model.dto.StockoutForecastDto;
 import ru.bakht.pharmacy.service.model.dto.TotalOrders;
 
-import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -41,6 +43,16 @@ public class ReportController {
         return reportFacade.getTotalQuantityAndAmount(startDate, endDate);
     }
 
+    @GetMapping("/sales-breakdown")
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_USER')")
+    @Operation(summary = "Получить разрезы продаж",
+            description = "Возвращает количество и стоимость заказов за период по аптекам, медикаментам, "
+                    + "сотрудникам, статусам, дням, неделям и месяцам")
+    public SalesBreakdown getSalesBreakdown(@RequestParam LocalDate startDate,
+                                            @RequestParam LocalDate endDate) {
+        return reportFacade.getSalesBreakdown(startDate, endDate);
+    }
+
     @GetMapping("/orders/customer")
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_USER')")
     @Operation(summary = "Получить заказы по телефону клиента",
@@ -57,13 +69,23 @@ public class ReportController {
         return reportFacade.getOutOfStockMedicationsByPharmacy(pharmacyId);
     }
 
+    @GetMapping("/stockout-forecast/pharmacy/{pharmacyId}")
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_USER')")
+    @Operation(summary = "Получить прогноз исчерпания запасов аптеки",
+            description = "Возвращает для каждого медикамента аптеки средний расход в день и количество дней "
+                    + "до исчерпания запаса, начиная с медикаментов, которые закончатся раньше. "
+                    + "Пока индекс расхода не заполнен после старта, возвращает 503 с заголовком Retry-After")
+    public List<StockoutForecastDto> getStockoutForecast(@PathVariable Long pharmacyId) {
+        return reportFacade.getStockoutForecast(pharmacyId);
+    }
+
     @GetMapping("/export/medications/pharmacy/{pharmacyId}")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @Operation(summary = "Экспортировать медикаменты по ID аптеки",
             description = "Экспортирует список медикаментов, доступных в конкретной аптеке")
-    public ResponseEntity<byte[]> exportMedicationsByPharmacy(@PathVariable Long pharmacyId,
-                                                              @RequestParam FileFormat fileFormat) throws IOException {
-        byte[] reportData = reportFacade.exportMedicationsByPharmacy(pharmacyId, fileFormat);
+    public ResponseEntity<StreamingResponseBody> exportMedicationsByPharmacy(@PathVariable Long pharmacyId,
+                                                              @RequestParam FileFormat fileFormat) {
+        StreamingResponseBody reportData = reportFacade.exportMedicationsByPharmacy(pharmacyId, fileFormat);
         return createFileResponse(reportData, "medications", fileFormat);
     }
 
@@ -71,21 +93,33 @@ public class ReportController {
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @Operation(summary = "Экспортировать общее количество и общую стоимость заказов",
             description = "Экспортирует общее количество и общую стоимость всех заказов за указанный период")
-    public ResponseEntity<byte[]> exportTotalQuantityAndAmount(
+    public ResponseEntity<StreamingResponseBody> exportTotalQuantityAndAmount(
             @RequestParam LocalDate startDate,
             @RequestParam LocalDate endDate,
-            @RequestParam FileFormat fileFormat) throws IOException {
-        byte[] reportData = reportFacade.exportTotalQuantityAndAmount(startDate, endDate, fileFormat);
+            @RequestParam FileFormat fileFormat) {
+        StreamingResponseBody reportData = reportFacade.exportTotalQuantityAndAmount(startDate, endDate, fileFormat);
         return createFileResponse(reportData, "total_orders", fileFormat);
     }
 
+    @GetMapping("/export/sales-breakdown")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Экспортировать разрезы продаж",
+            description = "Экспортирует количество и стоимость заказов за период по аптекам, медикаментам, "
+                    + "сотрудникам, статусам, дням, неделям и месяцам")
+    public ResponseEntity<StreamingResponseBody> exportSalesBreakdown(@RequestParam LocalDate startDate,
+                                                                      @RequestParam LocalDate endDate,
+                                                                      @RequestParam FileFormat fileFormat) {
+        StreamingResponseBody reportData = reportFacade.exportSalesBreakdown(startDate, endDate, fileFormat);
+        return createFileResponse(reportData, "sales_breakdown", fileFormat);
+    }
+
     @GetMapping("/export/orders/customer")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @Operation(summary = "Экспортировать заказы по телефону клиента",
             description = "Экспортирует список заказов, сделанных конкретным клиентом по его номеру телефона")
-    public ResponseEntity<byte[]> exportOrdersByCustomerPhone(@RequestParam String phone,
-                                                              @RequestParam FileFormat fileFormat) throws IOException {
-        byte[] reportData = reportFacade.exportOrdersByCustomerPhone(phone, fileFormat);
+    public ResponseEntity<StreamingResponseBody> exportOrdersByCustomerPhone(@RequestParam String phone,
+                                                              @RequestParam FileFormat fileFormat) {
+        StreamingResponseBody reportData = reportFacade.exportOrdersByCustomerPhone(phone, fileFormat);
         return createFileResponse(reportData, "customer_orders", fileFormat);
     }
 
@@ -93,13 +127,13 @@ public class ReportController {
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @Operation(summary = "Экспортировать медикаменты, закончившиеся на складе в определенной аптеке",
             description = "Экспортирует список медикаментов, которые закончились на складе в определенной аптеке")
-    public ResponseEntity<byte[]> exportOutOfStockMedicationsByPharmacy(
-            @PathVariable Long pharmacyId, @RequestParam FileFormat fileFormat) throws IOException {
-        byte[] reportData = reportFacade.exportOutOfStockMedicationsByPharmacy(pharmacyId, fileFormat);
+    public ResponseEntity<StreamingResponseBody> exportOutOfStockMedicationsByPharmacy(
+            @PathVariable Long pharmacyId, @RequestParam FileFormat fileFormat) {
+        StreamingResponseBody reportData = reportFacade.exportOutOfStockMedicationsByPharmacy(pharmacyId, fileFormat);
         return createFileResponse(reportData, "out_of_stock_medications", fileFormat);
     }
 
-    private ResponseEntity<byte[]> createFileResponse(byte[] reportData, String fileName, FileFormat fileFormat) {
+    private ResponseEntity<StreamingResponseBody> createFileResponse(StreamingResponseBody reportData, String fileName, FileFormat fileFormat) {
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Disposition",
                 "attachment; filename=" + fileName + fileFormat.getExtension());
@@ -2,17 +2,20 @@ package ru.bakht.pharmacy.service.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.bakht.pharmacy.service.enums.FileFormat;
 import ru.bakht.pharmacy.service.enums.ReportType;
-import ru.bakht.pharmacy.service.feign.ReportServiceClient;
 import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
+import ru.bakht.pharmacy.service.model.dto.StockoutForecastDto;
 import ru.bakht.pharmacy.service.model.dto.TotalOrders;
 import ru.bakht.pharmacy.service.service.report.ReportFactory;
+import ru.bakht.pharmacy.service.service.report.ReportFileCache;
 import ru.bakht.pharmacy.service.service.report.ReportGenerator;
 import ru.bakht.pharmacy.service.service.report.ReportService;
+import ru.bakht.pharmacy.service.service.report.ReportUsageRecorder;
 
-import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -22,50 +25,78 @@ public class ReportFacade {
 
     private final ReportFactory reportFactory;
     private final ReportService reportService;
-    private final ReportServiceClient reportServiceClient;
+    private final ReportUsageRecorder reportUsageRecorder;
+    private final ReportFileCache reportFileCache;
 
     public List<MedicationDto> getMedicationsByPharmacy(Long pharmacyId) {
-        reportServiceClient.recordReportRequest(ReportType.MEDICATIONS);
+        reportUsageRecorder.record(ReportType.MEDICATIONS);
         return reportService.getMedicationsByPharmacy(pharmacyId);
     }
 
     public TotalOrders getTotalQuantityAndAmount(LocalDate startDate, LocalDate endDate) {
-        reportServiceClient.recordReportRequest(ReportType.TOTAL_ORDERS);
+        reportUsageRecorder.record(ReportType.TOTAL_ORDERS);
         return reportService.getTotalQuantityAndAmount(startDate, endDate);
     }
 
+    public SalesBreakdown getSalesBreakdown(LocalDate startDate, LocalDate endDate) {
+        reportUsageRecorder.record(ReportType.SALES_BREAKDOWN);
+        return reportService.getSalesBreakdown(startDate, endDate);
+    }
+
     public List<OrderDto> getOrdersByCustomerPhone(String phone) {
-        reportServiceClient.recordReportRequest(ReportType.CUSTOMER_ORDERS);
+        reportUsageRecorder.record(ReportType.CUSTOMER_ORDERS);
         return reportService.getOrdersByCustomerPhone(phone);
     }
 
     public List<MedicationDto> getOutOfStockMedicationsByPharmacy(Long pharmacyId) {
-        reportServiceClient.recordReportRequest(ReportType.OUT_OF_STOCK_MEDICATIONS);
+        reportUsageRecorder.record(ReportType.OUT_OF_STOCK_MEDICATIONS);
         return reportService.getOutOfStockMedicationsByPharmacy(pharmacyId);
     }
 
-    public byte[] exportMedicationsByPharmacy(Long pharmacyId, FileFormat fileFormat) throws IOException {
-        List<MedicationDto> medications = reportService.getMedicationsByPharmacy(pharmacyId);
-        ReportGenerator reportGenerator = reportFactory.getReportGenerator(fileFormat);
-        return reportGenerator.generateMedicationsReport(medications);
+    public List<StockoutForecastDto> getStockoutForecast(Long pharmacyId) {
+        reportUsageRecorder.record(ReportType.STOCKOUT_FORECAST);
+        return reportService.getStockoutForecast(pharmacyId);
     }
 
-    public byte[] exportTotalQuantityAndAmount(
-            LocalDate startDate, LocalDate endDate, FileFormat fileFormat) throws IOException {
-        TotalOrders totalOrders = reportService.getTotalQuantityAndAmount(startDate, endDate);
-        ReportGenerator reportGenerator = reportFactory.getReportGenerator(fileFormat);
-        return reportGenerator.generateTotalOrdersReport(totalOrders);
+    public StreamingResponseBody exportMedicationsByPharmacy(Long pharmacyId, FileFormat fileFormat) {
+        return reportFileCache.getOrGenerate(ReportType.MEDICATIONS, fileFormat, "pharmacy=" + pharmacyId, () -> {
+            List<MedicationDto> medications = reportService.getMedicationsByPharmacy(pharmacyId);
+            ReportGenerator reportGenerator = reportFactory.getReportGenerator(fileFormat);
+            return outputStream -> reportGenerator.writeMedicationsReport(medications, outputStream);
+        });
     }
 
-    public byte[] exportOrdersByCustomerPhone(String phone, FileFormat fileFormat) throws IOException {
-        List<OrderDto> orders = reportService.getOrdersByCustomerPhone(phone);
-        ReportGenerator reportGenerator = reportFactory.getReportGenerator(fileFormat);
-        return reportGenerator.generateOrdersReport(orders);
+    public StreamingResponseBody exportTotalQuantityAndAmount(
+            LocalDate startDate, LocalDate endDate, FileFormat fileFormat) {
+        String parameters = "from=" + startDate + "&to=" + endDate;
+        return reportFileCache.getOrGenerate(ReportType.TOTAL_ORDERS, fileFormat, parameters, () -> {
+            // кэш отчетов общий для всех экземпляров, поэтому итоги читаются из БД, а не из индекса экземпляра
+            TotalOrders totalOrders = reportService.getStoredTotalQuantityAndAmount(startDate, endDate);
+            ReportGenerator reportGenerator = reportFactory.getReportGenerator(fileFormat);
+            return outputStream -> reportGenerator.writeTotalOrdersReport(totalOrders, outputStream);
+        });
     }
 
-    public byte[] exportOutOfStockMedicationsByPharmacy(Long pharmacyId, FileFormat fileFormat) throws IOException {
-        List<MedicationDto> medications = reportService.getOutOfStockMedicationsByPharmacy(pharmacyId);
+    public StreamingResponseBody exportSalesBreakdown(LocalDate startDate, LocalDate endDate, FileFormat fileFormat) {
+        String parameters = "from=" + startDate + "&to=" + endDate;
+        return reportFileCache.getOrGenerate(ReportType.SALES_BREAKDOWN, fileFormat, parameters, () -> {
+            SalesBreakdown salesBreakdown = reportService.getSalesBreakdown(startDate, endDate);
+            ReportGenerator reportGenerator = reportFactory.getReportGenerator(fileFormat);
+            return outputStream -> reportGenerator.writeSalesBreakdownReport(salesBreakdown, outputStream);
+        });
+    }
+
+    public StreamingResponseBody exportOrdersByCustomerPhone(String phone, FileFormat fileFormat) {
         ReportGenerator reportGenerator = reportFactory.getReportGenerator(fileFormat);
-        return reportGenerator.generateMedicationsReport(medications);
+        return outputStream -> reportService.writeOrdersByCustomerPhone(phone, reportGenerator, outputStream);
+    }
+
+    public StreamingResponseBody exportOutOfStockMedicationsByPharmacy(Long pharmacyId, FileFormat fileFormat) {
+        return reportFileCache.getOrGenerate(
+                ReportType.OUT_OF_STOCK_MEDICATIONS, fileFormat, "pharmacy=" + pharmacyId, () -> {
+                    List<MedicationDto> medications = reportService.getOutOfStockMedicationsByPharmacy(pharmacyId);
+                    ReportGenerator reportGenerator = reportFactory.getReportGenerator(fileFormat);
+                    return outputStream -> reportGenerator.writeMedicationsReport(medications, outputStream);
+                });
     }
 }
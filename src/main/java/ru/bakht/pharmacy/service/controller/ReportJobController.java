@@ -0,0 +1,128 @@
+package ru.bakht.pharmacy.service.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.*;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.bakht.pharmacy.service.enums.FileFormat;
+import ru.bakht.pharmacy.service.enums.ReportType;
+import ru.bakht.pharmacy.service.model.dto.ReportJobDto;
+import ru.bakht.pharmacy.service.service.report.ReportJobFile;
+import ru.bakht.pharmacy.service.service.report.ReportJobService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/reports/jobs")
+public class ReportJobController {
+
+    private final ReportJobService reportJobService;
+    private final ReportFacade reportFacade;
+
+    @PostMapping("/medications/pharmacy/{pharmacyId}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Поставить в очередь экспорт медикаментов по ID аптеки",
+            description = "Создает задание на формирование отчета по медикаментам, доступным в конкретной аптеке")
+    public ReportJobDto submitMedicationsByPharmacy(@PathVariable Long pharmacyId,
+                                                   @RequestParam FileFormat fileFormat) {
+        return reportJobService.submit(ReportType.MEDICATIONS, fileFormat, "medications",
+                () -> reportFacade.exportMedicationsByPharmacy(pharmacyId, fileFormat));
+    }
+
+    @PostMapping("/total-quantity-and-amount")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Поставить в очередь экспорт общего количества и стоимости заказов",
+            description = "Создает задание на формирование отчета по заказам за указанный период")
+    public ReportJobDto submitTotalQuantityAndAmount(@RequestParam LocalDate startDate,
+                                                     @RequestParam LocalDate endDate,
+                                                     @RequestParam FileFormat fileFormat) {
+        return reportJobService.submit(ReportType.TOTAL_ORDERS, fileFormat, "total_orders",
+                () -> reportFacade.exportTotalQuantityAndAmount(startDate, endDate, fileFormat));
+    }
+
+    @PostMapping("/sales-breakdown")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Поставить в очередь экспорт разрезов продаж",
+            description = "Создает задание на формирование отчета по продажам за период во всех разрезах")
+    public ReportJobDto submitSalesBreakdown(@RequestParam LocalDate startDate,
+                                             @RequestParam LocalDate endDate,
+                                             @RequestParam FileFormat fileFormat) {
+        return reportJobService.submit(ReportType.SALES_BREAKDOWN, fileFormat, "sales_breakdown",
+                () -> reportFacade.exportSalesBreakdown(startDate, endDate, fileFormat));
+    }
+
+    @PostMapping("/orders/customer")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Поставить в очередь экспорт заказов по телефону клиента",
+            description = "Создает задание на формирование отчета по заказам конкретного клиента")
+    public ReportJobDto submitOrdersByCustomerPhone(@RequestParam String phone,
+                                                    @RequestParam FileFormat fileFormat) {
+        return reportJobService.submit(ReportType.CUSTOMER_ORDERS, fileFormat, "customer_orders",
+                () -> reportFacade.exportOrdersByCustomerPhone(phone, fileFormat));
+    }
+
+    @PostMapping("/out-of-stock-medications/pharmacy/{pharmacyId}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Поставить в очередь экспорт закончившихся медикаментов аптеки",
+            description = "Создает задание на формирование отчета по медикаментам, которые закончились на складе")
+    public ReportJobDto submitOutOfStockMedicationsByPharmacy(@PathVariable Long pharmacyId,
+                                                             @RequestParam FileFormat fileFormat) {
+        return reportJobService.submit(ReportType.OUT_OF_STOCK_MEDICATIONS, fileFormat, "out_of_stock_medications",
+                () -> reportFacade.exportOutOfStockMedicationsByPharmacy(pharmacyId, fileFormat));
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Получить состояние задания",
+            description = "Возвращает статус задания на формирование отчета")
+    public ReportJobDto getJob(@PathVariable UUID id) {
+        return reportJobService.getJob(id);
+    }
+
+    @GetMapping("/{id}/file")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Скачать сформированный отчет",
+            description = "Возвращает файл отчета; поддерживается заголовок Range для докачки")
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable UUID id,
+                                                          @RequestHeader HttpHeaders requestHeaders) {
+        ReportJobFile file = reportJobService.getFile(id);
+        long size = file.size();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + file.fileName());
+        headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<HttpRange> ranges = requestHeaders.getRange();
+        if (ranges.size() != 1) {
+            headers.setContentLength(size);
+            return ResponseEntity.ok().headers(headers)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(outputStream -> reportJobService.transferFile(id, 0, size, outputStream));
+        }
+
+        HttpRange range = ranges.getFirst();
+        long start = range.getRangeStart(size);
+        long end = range.getRangeEnd(size);
+        if (start >= size || start > end) {
+            headers.add(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+        }
+
+        long count = end - start + 1;
+        headers.add(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        headers.setContentLength(count);
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(outputStream -> reportJobService.transferFile(id, start, count, outputStream));
+    }
+}
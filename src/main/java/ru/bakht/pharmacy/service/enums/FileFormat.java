@@ -8,7 +8,9 @@ import lombok.RequiredArgsConstructor;
 public enum FileFormat {
 
     EXCEL(".xlsx"),
-    PDF(".pdf");
+    PDF(".pdf"),
+    CSV(".csv"),
+    CSV_GZIP(".csv.gz");
 
     private final String extension;
 }
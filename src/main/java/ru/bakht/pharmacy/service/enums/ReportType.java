@@ -5,5 +5,7 @@ public enum ReportType {
     MEDICATIONS,
     TOTAL_ORDERS,
     CUSTOMER_ORDERS,
-    OUT_OF_STOCK_MEDICATIONS
+    OUT_OF_STOCK_MEDICATIONS,
+    SALES_BREAKDOWN,
+    STOCKOUT_FORECAST
 }
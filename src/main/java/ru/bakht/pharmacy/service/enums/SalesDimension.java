@@ -0,0 +1,12 @@
+package ru.bakht.pharmacy.service.enums;
+
+public enum SalesDimension {
+
+    PHARMACY,
+    MEDICATION,
+    EMPLOYEE,
+    STATUS,
+    DAY,
+    WEEK,
+    MONTH
+}
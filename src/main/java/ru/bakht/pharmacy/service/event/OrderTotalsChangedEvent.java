@@ -0,0 +1,15 @@
+package ru.bakht.pharmacy.service.event;
+
+import java.time.LocalDate;
+
+/**
+ * Событие изменения дневных итогов заказов.
+ * Публикуется в транзакции изменения заказа; при изменении или удалении заказа значения отрицательные.
+ *
+ * @param orderDate дата заказов
+ * @param quantity изменение общего количества лекарств
+ * @param amount изменение общей суммы
+ * @param transactionId идентификатор транзакции БД, в которой изменены итоги
+ */
+public record OrderTotalsChangedEvent(LocalDate orderDate, long quantity, double amount, long transactionId) {
+}
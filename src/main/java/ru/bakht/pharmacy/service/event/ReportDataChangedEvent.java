@@ -0,0 +1,10 @@
+package ru.bakht.pharmacy.service.event;
+
+/**
+ * Событие изменения данных, от которых зависят отчеты: заказов, остатков и лекарств.
+ *
+ * @param entityName название измененной сущности
+ * @param entityId идентификатор измененной сущности или {@code null} при пакетном изменении
+ */
+public record ReportDataChangedEvent(String entityName, Long entityId) {
+}
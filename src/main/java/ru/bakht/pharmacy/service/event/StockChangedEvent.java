@@ -0,0 +1,10 @@
+package ru.bakht.pharmacy.service.event;
+
+/**
+ * Событие изменения остатка лекарства в аптеке: списания по заказу, пополнения или удаления позиции.
+ *
+ * @param pharmacyId идентификатор аптеки
+ * @param medicationId идентификатор лекарства
+ */
+public record StockChangedEvent(Long pharmacyId, Long medicationId) {
+}
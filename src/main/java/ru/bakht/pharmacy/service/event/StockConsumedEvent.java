@@ -0,0 +1,18 @@
+package ru.bakht.pharmacy.service.event;
+
+import java.time.LocalDate;
+
+/**
+ * Событие изменения расхода лекарства аптеки по заказу.
+ * Публикуется в транзакции создания заказа; при изменении или удалении заказа количество ранее учтенного
+ * расхода публикуется с минусом. Отмененные заказы расходом не считаются.
+ *
+ * @param pharmacyId идентификатор аптеки
+ * @param medicationId идентификатор лекарства
+ * @param quantity изменение расхода
+ * @param orderDate дата заказа
+ * @param transactionId идентификатор транзакции БД, в которой изменен заказ
+ */
+public record StockConsumedEvent(Long pharmacyId, Long medicationId, int quantity, LocalDate orderDate,
+                                 long transactionId) {
+}
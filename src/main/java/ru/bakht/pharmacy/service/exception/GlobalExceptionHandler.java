@@ -2,7 +2,9 @@ package ru.bakht.pharmacy.service.exception;
 
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.AuthenticationException;
@@ -15,6 +17,7 @@ import org.springframework.web.servlet.NoHandlerFoundException;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Глобальный обработчик исключений для REST API.
@@ -136,6 +139,33 @@ public class GlobalExceptionHandler {
         return ex.getMessage();
     }
 
+    /**
+     * Обрабатывает исключение IndexNotReadyException.
+     *
+     * @param ex исключение IndexNotReadyException.
+     * @return сообщение об ошибке с заголовком Retry-After.
+     */
+    @ExceptionHandler(IndexNotReadyException.class)
+    public ResponseEntity<String> handleIndexNotReadyException(IndexNotReadyException ex) {
+        log.warn("Индекс не готов: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(ex.getMessage());
+    }
+
+    /**
+     * Обрабатывает исключение RejectedExecutionException.
+     *
+     * @param ex исключение RejectedExecutionException.
+     * @return сообщение об ошибке.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleRejectedExecutionException(RejectedExecutionException ex) {
+        log.error("Задача отклонена: {}", ex.getMessage());
+        return ex.getMessage();
+    }
+
     /**
      * Обрабатывает исключение AccessDeniedException.
      *
@@ -0,0 +1,22 @@
+package ru.bakht.pharmacy.service.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Индекс в памяти еще не заполнен, и запрос можно повторить позже.
+ */
+@Getter
+public class IndexNotReadyException extends RuntimeException {
+
+    /**
+     * Через сколько можно повторить запрос.
+     */
+    private final Duration retryAfter;
+
+    public IndexNotReadyException(String indexName, Duration retryAfter) {
+        super(String.format("Индекс %s еще не заполнен, повторите запрос позже", indexName));
+        this.retryAfter = retryAfter;
+    }
+}
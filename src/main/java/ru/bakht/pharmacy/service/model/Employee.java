@@ -32,7 +32,7 @@ public class Employee {
     @Column(name = "email")
     String email;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "pharmacy_id")
     Pharmacy pharmacy;
 }
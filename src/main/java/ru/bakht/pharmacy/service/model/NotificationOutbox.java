@@ -0,0 +1,53 @@
+package ru.bakht.pharmacy.service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import ru.bakht.pharmacy.service.enums.NotificationStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Исходящее уведомление. Записывается в транзакции, обнаружившей событие, и отправляется
+ * {@link ru.bakht.pharmacy.service.service.report.NotificationOutboxRelay}; после отправки запись удаляется.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+@Entity
+@Table(name = "notification_outbox")
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_id_seq")
+    @SequenceGenerator(name = "notification_outbox_id_seq", sequenceName = "notification_outbox_id_seq",
+            allocationSize = 50)
+    @Column(name = "id")
+    Long id;
+
+    @Column(name = "recipient")
+    String recipient;
+
+    @Column(name = "subject")
+    String subject;
+
+    @Column(name = "body")
+    String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    @Builder.Default
+    NotificationStatus status = NotificationStatus.PENDING;
+
+    @Column(name = "attempts")
+    @Builder.Default
+    Integer attempts = 0;
+
+    @Column(name = "next_attempt_at")
+    LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at")
+    LocalDateTime createdAt;
+}
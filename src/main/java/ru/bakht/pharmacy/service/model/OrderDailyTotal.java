@@ -0,0 +1,33 @@
+package ru.bakht.pharmacy.service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+
+/**
+ * Итоги заказов за день по аптеке и статусу.
+ * Поддерживаются {@link ru.bakht.pharmacy.service.service.OrderDailyTotalService} в транзакции изменения заказа.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+@Entity
+@Table(name = "order_daily_totals")
+public class OrderDailyTotal {
+
+    @EmbeddedId
+    OrderDailyTotalId id;
+
+    @Column(name = "order_count")
+    Long orderCount;
+
+    @Column(name = "total_quantity")
+    Long totalQuantity;
+
+    @Column(name = "total_amount")
+    BigDecimal totalAmount;
+}
@@ -0,0 +1,34 @@
+package ru.bakht.pharmacy.service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import ru.bakht.pharmacy.service.enums.OrderStatus;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+public class OrderDailyTotalId implements Serializable {
+
+    @Column(name = "order_date")
+    LocalDate orderDate;
+
+    /**
+     * Идентификатор аптеки; {@code null} для заказов без аптеки.
+     */
+    @Column(name = "pharmacy_id")
+    Long pharmacyId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    OrderStatus status;
+}
@@ -0,0 +1,37 @@
+package ru.bakht.pharmacy.service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Пороговое значение остатка лекарства. Порог задается для пары аптеки и лекарства, для лекарства
+ * во всех аптеках, для всех лекарств аптеки или, если аптека и лекарство не указаны, для всех остатков.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ToString(exclude = {"pharmacy", "medication"})
+@EqualsAndHashCode(exclude = {"pharmacy", "medication"})
+@Builder
+@Entity
+@Table(name = "stock_thresholds")
+public class StockThreshold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "pharmacy_id")
+    Pharmacy pharmacy;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "medication_id")
+    Medication medication;
+
+    @Column(name = "threshold")
+    Integer threshold;
+}
@@ -0,0 +1,44 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница результатов с курсорной (keyset) пагинацией.
+ *
+ * @param <T> тип DTO объекта.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CursorPage<T> {
+
+    List<T> content;
+
+    Long nextCursor;
+
+    boolean hasNext;
+
+    /**
+     * Создает страницу из среза сущностей, упорядоченных по идентификатору.
+     *
+     * @param slice срез сущностей
+     * @param mapper функция для маппинга сущности в DTO
+     * @param idExtractor функция получения идентификатора сущности
+     * @return страница DTO с курсором на последний элемент, если есть следующая страница
+     */
+    public static <E, T> CursorPage<T> of(Slice<E> slice, Function<E, T> mapper, Function<E, Long> idExtractor) {
+        List<E> entities = slice.getContent();
+        Long nextCursor = slice.hasNext() && !entities.isEmpty()
+                ? idExtractor.apply(entities.getLast())
+                : null;
+
+        return new CursorPage<>(entities.stream().map(mapper).toList(), nextCursor, slice.hasNext());
+    }
+}
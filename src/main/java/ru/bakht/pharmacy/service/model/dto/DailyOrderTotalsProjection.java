@@ -0,0 +1,9 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+import java.time.LocalDate;
+
+public interface DailyOrderTotalsProjection {
+    LocalDate getOrderDate();
+    Long getTotalQuantity();
+    Double getTotalAmount();
+}
@@ -0,0 +1,10 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+import java.time.LocalDate;
+
+public interface MedicationConsumptionProjection {
+    Long getPharmacyId();
+    Long getMedicationId();
+    LocalDate getOrderDate();
+    Long getQuantity();
+}
@@ -0,0 +1,15 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+import ru.bakht.pharmacy.service.model.Customer;
+import ru.bakht.pharmacy.service.model.Employee;
+import ru.bakht.pharmacy.service.model.Medication;
+import ru.bakht.pharmacy.service.model.Pharmacy;
+
+public interface OrderValidationProjection {
+    Medication getMedication();
+    Employee getEmployee();
+    Customer getCustomer();
+    Pharmacy getPharmacy();
+    Long getEmployeePharmacyId();
+    Integer getStockQuantity();
+}
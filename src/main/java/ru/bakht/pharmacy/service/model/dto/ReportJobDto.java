@@ -0,0 +1,34 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import ru.bakht.pharmacy.service.enums.FileFormat;
+import ru.bakht.pharmacy.service.enums.ReportJobStatus;
+import ru.bakht.pharmacy.service.enums.ReportType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReportJobDto {
+
+    UUID id;
+
+    ReportType reportType;
+
+    FileFormat fileFormat;
+
+    ReportJobStatus status;
+
+    Instant createdAt;
+
+    Instant finishedAt;
+
+    Long size;
+
+    String error;
+}
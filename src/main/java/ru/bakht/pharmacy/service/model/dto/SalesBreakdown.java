@@ -0,0 +1,21 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SalesBreakdown {
+
+    LocalDate startDate;
+
+    LocalDate endDate;
+
+    List<SalesBreakdownRow> rows;
+}
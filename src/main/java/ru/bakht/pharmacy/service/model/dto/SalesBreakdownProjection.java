@@ -0,0 +1,10 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+public interface SalesBreakdownProjection {
+    String getDimension();
+    String getGroupKey();
+    String getLabel();
+    Long getOrderCount();
+    Long getTotalQuantity();
+    Double getTotalAmount();
+}
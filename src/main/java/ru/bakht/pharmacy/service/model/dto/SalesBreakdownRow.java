@@ -0,0 +1,25 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import ru.bakht.pharmacy.service.enums.SalesDimension;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SalesBreakdownRow {
+
+    SalesDimension dimension;
+
+    String key;
+
+    String label;
+
+    Long orderCount;
+
+    Long totalQuantity;
+
+    Double totalAmount;
+}
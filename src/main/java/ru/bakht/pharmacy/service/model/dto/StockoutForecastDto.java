@@ -0,0 +1,22 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class StockoutForecastDto {
+
+    Long medicationId;
+
+    String medicationName;
+
+    Integer quantity;
+
+    Double dailyConsumption;
+
+    Double daysUntilStockout;
+}
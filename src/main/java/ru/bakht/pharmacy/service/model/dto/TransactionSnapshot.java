@@ -0,0 +1,35 @@
+package ru.bakht.pharmacy.service.model.dto;
+
+import java.util.Arrays;
+
+/**
+ * Снимок транзакций PostgreSQL в формате {@code pg_current_snapshot()}: {@code xmin:xmax:xip,...}.
+ * Позволяет определить, видны ли в снимке изменения транзакции с заданным идентификатором.
+ *
+ * @param xmin наименьший идентификатор транзакции, активной в момент снимка
+ * @param xmax идентификатор, следующий за последней завершенной транзакцией
+ * @param inProgress идентификаторы транзакций из диапазона {@code [xmin, xmax)}, активных в момент снимка
+ */
+public record TransactionSnapshot(long xmin, long xmax, long[] inProgress) {
+
+    public static TransactionSnapshot parse(String snapshot) {
+        String[] parts = snapshot.split(":", -1);
+        long[] inProgress = parts[2].isEmpty()
+                ? new long[0]
+                : Arrays.stream(parts[2].split(",")).mapToLong(Long::parseLong).sorted().toArray();
+        return new TransactionSnapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), inProgress);
+    }
+
+    /**
+     * Проверяет, видны ли в снимке изменения зафиксированной транзакции.
+     *
+     * @param transactionId идентификатор зафиксированной транзакции
+     * @return {@code true}, если транзакция была зафиксирована до снимка
+     */
+    public boolean contains(long transactionId) {
+        if (transactionId < xmin) {
+            return true;
+        }
+        return transactionId < xmax && Arrays.binarySearch(inProgress, transactionId) < 0;
+    }
+}
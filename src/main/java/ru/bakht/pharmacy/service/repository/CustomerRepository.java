@@ -1,5 +1,7 @@
 package ru.bakht.pharmacy.service.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
@@ -7,4 +9,6 @@ import ru.bakht.pharmacy.service.model.Customer;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long>, JpaSpecificationExecutor<Customer> {
+
+    Slice<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
@@ -1,14 +1,33 @@
 package ru.bakht.pharmacy.service.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 import ru.bakht.pharmacy.service.model.Employee;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EmployeeRepository extends JpaRepository<Employee, Long>, JpaSpecificationExecutor<Employee> {
 
+    @EntityGraph(attributePaths = "pharmacy")
+    Slice<Employee> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "pharmacy")
+    Optional<Employee> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "pharmacy")
+    List<Employee> findAll(Specification<Employee> spec);
+
     List<Employee> findByPharmacyId(Long pharmacyId);
+
+    List<Employee> findByPharmacyIdIn(Collection<Long> pharmacyIds);
 }
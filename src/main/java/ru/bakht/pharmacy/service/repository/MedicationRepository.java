@@ -1,18 +1,21 @@
 package ru.bakht.pharmacy.service.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.bakht.pharmacy.service.model.Medication;
-import ru.bakht.pharmacy.service.model.PharmacyMedication;
 
 import java.util.List;
 
 @Repository
 public interface MedicationRepository extends JpaRepository<Medication, Long>, JpaSpecificationExecutor<Medication> {
 
+    Slice<Medication> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
     @Query(value = "SELECT *"
             + "FROM medications m "
             + "JOIN pharmacy_medications pm ON pm.medication_id = m.id "
@@ -25,8 +28,23 @@ public interface MedicationRepository extends JpaRepository<Medication, Long>, J
             + "WHERE pm.quantity = 0 AND pm.pharmacy_id = :pharmacyId", nativeQuery = true)
     List<Medication> findOutOfStockMedicationsByPharmacyId(@Param("pharmacyId") Long pharmacyId);
 
-    @Query(value = "SELECT pm "
-            + "FROM PharmacyMedication pm "
-            + "WHERE pm.quantity < :threshold")
-    List<PharmacyMedication> findMedicationsBelowThreshold(@Param("threshold") Integer threshold);
+    /**
+     * Ищет лекарства по подстроке названия или по похожему слову в названии, допуская опечатки.
+     * Оба условия обслуживаются триграммным индексом {@code idx_medications_name_trgm}.
+     * Сначала идут названия, содержащие строку поиска, затем по убыванию сходства со словами названия.
+     *
+     * @param query строка поиска
+     * @param pattern строка поиска для {@code LIKE}, в которой символы {@code %}, {@code _} и {@code \}
+     *                экранированы обратной косой чертой
+     * @param limit максимальное количество лекарств
+     */
+    @Query(value = "SELECT * "
+            + "FROM medications m "
+            + "WHERE lower(m.name) LIKE '%' || lower(:pattern) || '%' ESCAPE '\\' "
+            + "OR lower(:query) <% lower(m.name) "
+            + "ORDER BY lower(m.name) LIKE '%' || lower(:pattern) || '%' ESCAPE '\\' DESC, "
+            + "word_similarity(lower(:query), lower(m.name)) DESC, m.id "
+            + "LIMIT :limit", nativeQuery = true)
+    List<Medication> searchByName(@Param("query") String query, @Param("pattern") String pattern,
+                                  @Param("limit") int limit);
 }
@@ -0,0 +1,57 @@
+package ru.bakht.pharmacy.service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.bakht.pharmacy.service.model.NotificationOutbox;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /**
+     * Захватывает пачку уведомлений, готовых к отправке. Строки, заблокированные другими экземплярами,
+     * пропускаются, а время следующей попытки захваченных строк сдвигается на время аренды,
+     * поэтому после сбоя экземпляра уведомления снова станут доступны для отправки.
+     */
+    @Query(value = "UPDATE notification_outbox "
+            + "SET attempts = attempts + 1, next_attempt_at = now() + make_interval(secs => :leaseSeconds) "
+            + "WHERE id IN ("
+            + "SELECT id FROM notification_outbox "
+            + "WHERE status = 'PENDING' AND next_attempt_at <= now() "
+            + "ORDER BY next_attempt_at "
+            + "LIMIT :batchSize "
+            + "FOR UPDATE SKIP LOCKED) "
+            + "RETURNING *",
+            nativeQuery = true)
+    List<NotificationOutbox> claimBatch(@Param("batchSize") int batchSize,
+                                        @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Продлевает аренду захваченных уведомлений, которые еще не отправлены.
+     */
+    @Modifying
+    @Query(value = "UPDATE notification_outbox "
+            + "SET next_attempt_at = now() + make_interval(secs => :leaseSeconds) "
+            + "WHERE id IN (:ids)",
+            nativeQuery = true)
+    void extendLease(@Param("ids") Collection<Long> ids, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Откладывает неотправленные уведомления с экспоненциальной задержкой
+     * или помечает их как неотправленные, если попытки исчерпаны.
+     */
+    @Modifying
+    @Query(value = "UPDATE notification_outbox "
+            + "SET status = CASE WHEN attempts >= :maxAttempts THEN 'FAILED' ELSE status END, "
+            + "next_attempt_at = now() + make_interval(secs => :backoffSeconds * power(2, attempts - 1)) "
+            + "WHERE id IN (:ids)",
+            nativeQuery = true)
+    void reschedule(@Param("ids") Collection<Long> ids,
+                    @Param("maxAttempts") int maxAttempts,
+                    @Param("backoffSeconds") long backoffSeconds);
+}
@@ -0,0 +1,65 @@
+package ru.bakht.pharmacy.service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.bakht.pharmacy.service.model.OrderDailyTotal;
+import ru.bakht.pharmacy.service.model.OrderDailyTotalId;
+import ru.bakht.pharmacy.service.model.dto.DailyOrderTotalsProjection;
+import ru.bakht.pharmacy.service.model.dto.TotalOrdersProjection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OrderDailyTotalRepository extends JpaRepository<OrderDailyTotal, OrderDailyTotalId> {
+
+    @Query("SELECT SUM(t.totalQuantity) AS totalQuantity, SUM(t.totalAmount) AS totalAmount "
+            + "FROM OrderDailyTotal t "
+            + "WHERE t.id.orderDate BETWEEN :startDate AND :endDate")
+    TotalOrdersProjection findTotalQuantityAndAmountByDateRange(@Param("startDate") LocalDate startDate,
+                                                                @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT t.id.orderDate AS orderDate, SUM(t.totalQuantity) AS totalQuantity, "
+            + "SUM(t.totalAmount) AS totalAmount "
+            + "FROM OrderDailyTotal t "
+            + "GROUP BY t.id.orderDate "
+            + "ORDER BY t.id.orderDate")
+    List<DailyOrderTotalsProjection> findDailyTotals();
+
+    @Modifying
+    @Query(value = "INSERT INTO order_daily_totals AS t "
+            + "(order_date, pharmacy_id, status, order_count, total_quantity, total_amount) "
+            + "VALUES (:orderDate, :pharmacyId, :status, :orderCount, :quantity, :amount) "
+            + "ON CONFLICT (order_date, pharmacy_id, status) DO UPDATE SET "
+            + "order_count = t.order_count + EXCLUDED.order_count, "
+            + "total_quantity = t.total_quantity + EXCLUDED.total_quantity, "
+            + "total_amount = t.total_amount + EXCLUDED.total_amount",
+            nativeQuery = true)
+    void add(@Param("orderDate") LocalDate orderDate,
+             @Param("pharmacyId") Long pharmacyId,
+             @Param("status") String status,
+             @Param("orderCount") long orderCount,
+             @Param("quantity") long quantity,
+             @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = "LOCK TABLE order_daily_totals IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockTable();
+
+    @Modifying
+    @Query(value = "DELETE FROM order_daily_totals", nativeQuery = true)
+    void deleteAllTotals();
+
+    @Modifying
+    @Query(value = "INSERT INTO order_daily_totals "
+            + "(order_date, pharmacy_id, status, order_count, total_quantity, total_amount) "
+            + "SELECT order_date, pharmacy_id, status, COUNT(*), SUM(quantity), COALESCE(SUM(total_amount), 0) "
+            + "FROM orders "
+            + "GROUP BY order_date, pharmacy_id, status",
+            nativeQuery = true)
+    int insertTotalsFromOrders();
+}
@@ -1,28 +1,133 @@
 package ru.bakht.pharmacy.service.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.bakht.pharmacy.service.model.Order;
-import ru.bakht.pharmacy.service.model.dto.TotalOrdersProjection;
+import ru.bakht.pharmacy.service.model.dto.MedicationConsumptionProjection;
+import ru.bakht.pharmacy.service.model.dto.OrderValidationProjection;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdownProjection;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
 
-    @Query("SELECT SUM(o.quantity) AS totalQuantity, SUM(o.totalAmount) AS totalAmount "
-            + "FROM Order o "
-            + "WHERE o.orderDate BETWEEN :startDate AND :endDate")
-    TotalOrdersProjection findTotalQuantityAndAmountByDateRange(@Param("startDate") LocalDate startDate,
-                                                                @Param("endDate") LocalDate endDate);
+    @EntityGraph(Order.DETAILS_GRAPH)
+    Slice<Order> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Override
+    @EntityGraph(Order.DETAILS_GRAPH)
+    Optional<Order> findById(Long id);
 
+    @Override
+    @EntityGraph(Order.DETAILS_GRAPH)
+    List<Order> findAll(Specification<Order> spec);
+
+    @EntityGraph(Order.DETAILS_GRAPH)
     @Query("SELECT o "
             + "FROM Order o "
             + "JOIN o.customer c "
             + "WHERE c.phone = :phone")
     List<Order> findOrdersByCustomerPhone(@Param("phone") String phone);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o "
+            + "FROM Order o "
+            + "JOIN FETCH o.customer c "
+            + "LEFT JOIN FETCH o.employee e "
+            + "LEFT JOIN FETCH e.pharmacy "
+            + "LEFT JOIN FETCH o.pharmacy "
+            + "LEFT JOIN FETCH o.medication "
+            + "WHERE c.phone = :phone "
+            + "ORDER BY o.id")
+    Stream<Order> streamOrdersByCustomerPhone(@Param("phone") String phone);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o "
+            + "FROM Order o "
+            + "LEFT JOIN FETCH o.customer "
+            + "LEFT JOIN FETCH o.employee e "
+            + "LEFT JOIN FETCH e.pharmacy "
+            + "LEFT JOIN FETCH o.pharmacy "
+            + "LEFT JOIN FETCH o.medication "
+            + "ORDER BY o.id")
+    Stream<Order> streamAllWithDetails();
+
+    @Query("SELECT m AS medication, e AS employee, c AS customer, p AS pharmacy, "
+            + "e.pharmacy.id AS employeePharmacyId, pm.quantity AS stockQuantity "
+            + "FROM Medication m "
+            + "LEFT JOIN Employee e ON e.id = :employeeId "
+            + "LEFT JOIN Customer c ON c.id = :customerId "
+            + "LEFT JOIN Pharmacy p ON p.id = :pharmacyId "
+            + "LEFT JOIN PharmacyMedication pm ON pm.id.pharmacyId = :pharmacyId AND pm.id.medicationId = m.id "
+            + "WHERE m.id = :medicationId")
+    Optional<OrderValidationProjection> findOrderValidationData(@Param("employeeId") Long employeeId,
+                                                                @Param("customerId") Long customerId,
+                                                                @Param("pharmacyId") Long pharmacyId,
+                                                                @Param("medicationId") Long medicationId);
+
+    @Query(value = "SELECT CASE "
+            + "WHEN GROUPING(o.pharmacy_id) = 0 THEN 'PHARMACY' "
+            + "WHEN GROUPING(o.medication_id) = 0 THEN 'MEDICATION' "
+            + "WHEN GROUPING(o.employee_id) = 0 THEN 'EMPLOYEE' "
+            + "WHEN GROUPING(o.status) = 0 THEN 'STATUS' "
+            + "WHEN GROUPING(o.order_date) = 0 THEN 'DAY' "
+            + "WHEN GROUPING(CAST(date_trunc('week', o.order_date) AS date)) = 0 THEN 'WEEK' "
+            + "ELSE 'MONTH' END AS dimension, "
+            + "CASE "
+            + "WHEN GROUPING(o.pharmacy_id) = 0 THEN CAST(o.pharmacy_id AS varchar) "
+            + "WHEN GROUPING(o.medication_id) = 0 THEN CAST(o.medication_id AS varchar) "
+            + "WHEN GROUPING(o.employee_id) = 0 THEN CAST(o.employee_id AS varchar) "
+            + "WHEN GROUPING(o.status) = 0 THEN o.status "
+            + "WHEN GROUPING(o.order_date) = 0 THEN CAST(o.order_date AS varchar) "
+            + "WHEN GROUPING(CAST(date_trunc('week', o.order_date) AS date)) = 0 "
+            + "THEN CAST(CAST(date_trunc('week', o.order_date) AS date) AS varchar) "
+            + "ELSE to_char(o.order_date, 'YYYY-MM') END AS \"groupKey\", "
+            + "CASE "
+            + "WHEN GROUPING(o.pharmacy_id) = 0 THEN MAX(p.name) "
+            + "WHEN GROUPING(o.medication_id) = 0 THEN MAX(m.name) "
+            + "WHEN GROUPING(o.employee_id) = 0 THEN MAX(e.name) END AS label, "
+            + "COUNT(*) AS \"orderCount\", "
+            + "SUM(o.quantity) AS \"totalQuantity\", "
+            + "COALESCE(SUM(o.total_amount), 0) AS \"totalAmount\" "
+            + "FROM orders o "
+            + "LEFT JOIN pharmacies p ON p.id = o.pharmacy_id "
+            + "LEFT JOIN medications m ON m.id = o.medication_id "
+            + "LEFT JOIN employees e ON e.id = o.employee_id "
+            + "WHERE o.order_date BETWEEN :startDate AND :endDate "
+            + "GROUP BY GROUPING SETS ((o.pharmacy_id), (o.medication_id), (o.employee_id), (o.status), "
+            + "(o.order_date), (CAST(date_trunc('week', o.order_date) AS date)), (to_char(o.order_date, 'YYYY-MM'))) "
+            + "ORDER BY o.pharmacy_id, o.medication_id, o.employee_id, o.status, o.order_date, "
+            + "CAST(date_trunc('week', o.order_date) AS date), to_char(o.order_date, 'YYYY-MM')",
+            nativeQuery = true)
+    List<SalesBreakdownProjection> findSalesBreakdown(@Param("startDate") LocalDate startDate,
+                                                      @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT o.pharmacy.id AS pharmacyId, o.medication.id AS medicationId, o.orderDate AS orderDate, "
+            + "SUM(o.quantity) AS quantity "
+            + "FROM Order o "
+            + "WHERE o.orderDate >= :since AND o.pharmacy.id IS NOT NULL AND o.medication.id IS NOT NULL "
+            + "AND o.orderStatus <> ru.bakht.pharmacy.service.enums.OrderStatus.CANCELLED "
+            + "GROUP BY o.pharmacy.id, o.medication.id, o.orderDate "
+            + "ORDER BY o.orderDate")
+    List<MedicationConsumptionProjection> findDailyConsumptionSince(@Param("since") LocalDate since);
 }
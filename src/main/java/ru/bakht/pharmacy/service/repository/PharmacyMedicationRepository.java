@@ -0,0 +1,77 @@
+package ru.bakht.pharmacy.service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.bakht.pharmacy.service.model.PharmacyMedication;
+import ru.bakht.pharmacy.service.model.PharmacyMedicationId;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PharmacyMedicationRepository extends JpaRepository<PharmacyMedication, PharmacyMedicationId> {
+
+    /**
+     * Условие остатка ниже порога. Порог берется из самого точного правила {@code StockThreshold}:
+     * для аптеки и лекарства, для лекарства, для аптеки, общего правила, а при их отсутствии
+     * используется {@code :defaultThreshold}. Первое сравнение с наибольшим порогом позволяет
+     * отобрать кандидатов по индексу на количество до вычисления порогов.
+     */
+    String BELOW_THRESHOLD_CONDITION = "pm.quantity < greatest(:defaultThreshold, "
+            + "coalesce((SELECT MAX(st.threshold) FROM StockThreshold st), 0)) "
+            + "AND pm.quantity < coalesce("
+            + "(SELECT st.threshold FROM StockThreshold st "
+            + "WHERE st.pharmacy.id = pm.id.pharmacyId AND st.medication.id = pm.id.medicationId), "
+            + "(SELECT st.threshold FROM StockThreshold st "
+            + "WHERE st.pharmacy IS NULL AND st.medication.id = pm.id.medicationId), "
+            + "(SELECT st.threshold FROM StockThreshold st "
+            + "WHERE st.pharmacy.id = pm.id.pharmacyId AND st.medication IS NULL), "
+            + "(SELECT st.threshold FROM StockThreshold st "
+            + "WHERE st.pharmacy IS NULL AND st.medication IS NULL), "
+            + ":defaultThreshold)";
+
+    @Query("SELECT pm "
+            + "FROM PharmacyMedication pm "
+            + "WHERE pm.id.pharmacyId IN :pharmacyIds AND pm.id.medicationId IN :medicationIds")
+    List<PharmacyMedication> findByPharmacyIdsAndMedicationIds(@Param("pharmacyIds") Collection<Long> pharmacyIds,
+                                                               @Param("medicationIds") Collection<Long> medicationIds);
+
+    @Query("SELECT pm "
+            + "FROM PharmacyMedication pm "
+            + "JOIN FETCH pm.medication "
+            + "WHERE pm.id.pharmacyId = :pharmacyId")
+    List<PharmacyMedication> findWithMedicationByPharmacyId(@Param("pharmacyId") Long pharmacyId);
+
+    @Query("SELECT pm "
+            + "FROM PharmacyMedication pm "
+            + "JOIN FETCH pm.pharmacy "
+            + "JOIN FETCH pm.medication "
+            + "WHERE mod(pm.id.pharmacyId, :shardCount) = :shard "
+            + "AND " + BELOW_THRESHOLD_CONDITION)
+    List<PharmacyMedication> findBelowThresholdInShard(@Param("shard") int shard,
+                                                       @Param("shardCount") int shardCount,
+                                                       @Param("defaultThreshold") int defaultThreshold);
+
+    @Query("SELECT pm "
+            + "FROM PharmacyMedication pm "
+            + "JOIN FETCH pm.pharmacy "
+            + "JOIN FETCH pm.medication "
+            + "WHERE pm.id.pharmacyId IN :pharmacyIds AND pm.id.medicationId IN :medicationIds "
+            + "AND " + BELOW_THRESHOLD_CONDITION)
+    List<PharmacyMedication> findBelowThresholdByPharmacyIdsAndMedicationIds(
+            @Param("pharmacyIds") Collection<Long> pharmacyIds,
+            @Param("medicationIds") Collection<Long> medicationIds,
+            @Param("defaultThreshold") int defaultThreshold);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE PharmacyMedication pm "
+            + "SET pm.quantity = pm.quantity - :quantity "
+            + "WHERE pm.id.pharmacyId = :pharmacyId AND pm.id.medicationId = :medicationId "
+            + "AND pm.quantity >= :quantity")
+    int decrementQuantity(@Param("pharmacyId") Long pharmacyId,
+                          @Param("medicationId") Long medicationId,
+                          @Param("quantity") Integer quantity);
+}
@@ -0,0 +1,60 @@
+package ru.bakht.pharmacy.service.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.bakht.pharmacy.service.model.dto.TransactionSnapshot;
+
+/**
+ * Идентификаторы транзакций и снимки PostgreSQL.
+ * Индексы в памяти сравнивают идентификатор транзакции события со снимком, по которому
+ * они построены, чтобы не потерять и не учесть дважды изменения, зафиксированные во время перестроения.
+ */
+@Repository
+public class TransactionRepository {
+
+    private static final Object TRANSACTION_ID_KEY = new Object();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Возвращает идентификатор текущей транзакции.
+     * Идентификатор запрашивается у БД один раз и хранится до завершения транзакции.
+     *
+     * @return идентификатор текущей транзакции
+     */
+    public long currentTransactionId() {
+        Long transactionId = (Long) TransactionSynchronizationManager.getResource(TRANSACTION_ID_KEY);
+        if (transactionId != null) {
+            return transactionId;
+        }
+
+        transactionId = ((Number) entityManager.createNativeQuery("SELECT pg_current_xact_id()::text::bigint")
+                .getSingleResult()).longValue();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.bindResource(TRANSACTION_ID_KEY, transactionId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_ID_KEY);
+                }
+            });
+        }
+        return transactionId;
+    }
+
+    /**
+     * Возвращает снимок текущей транзакции. В транзакции с уровнем изоляции {@code REPEATABLE READ}
+     * этот снимок используют все ее запросы, если он запрошен первым.
+     *
+     * @return снимок транзакций
+     */
+    public TransactionSnapshot currentSnapshot() {
+        return TransactionSnapshot.parse((String) entityManager
+                .createNativeQuery("SELECT pg_current_snapshot()::text")
+                .getSingleResult());
+    }
+}
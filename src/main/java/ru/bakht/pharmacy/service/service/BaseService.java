@@ -1,6 +1,7 @@
 package ru.bakht.pharmacy.service.service;
 
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
+import ru.bakht.pharmacy.service.model.dto.CursorPage;
 
 import java.util.List;
 
@@ -13,11 +14,13 @@ import java.util.List;
 public interface BaseService<T, ID extends Number> {
 
     /**
-     * Возвращает список всех сущностей.
+     * Возвращает страницу сущностей с идентификатором больше указанного курсора.
      *
-     * @return список объектов типа T.
+     * @param after идентификатор последней сущности предыдущей страницы или {@code null} для первой страницы.
+     * @param limit максимальное количество сущностей на странице.
+     * @return страница объектов типа T с курсором на следующую страницу.
      */
-    List<T> getAll();
+    CursorPage<T> getAll(ID after, int limit);
 
     /**
      * Ищет сущность по её идентификатору.
@@ -2,12 +2,18 @@ package ru.bakht.pharmacy.service.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.bakht.pharmacy.service.config.CacheConfig;
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
 import ru.bakht.pharmacy.service.mapper.CustomerMapper;
 import ru.bakht.pharmacy.service.model.Customer;
+import ru.bakht.pharmacy.service.model.dto.CursorPage;
 import ru.bakht.pharmacy.service.model.dto.CustomerDto;
 import ru.bakht.pharmacy.service.repository.CustomerRepository;
 import ru.bakht.pharmacy.service.specification.CustomerSpecification;
@@ -31,11 +37,12 @@ public class CustomerService implements BaseService<CustomerDto, Long> {
      */
     @Override
     @Transactional(readOnly = true)
-    public List<CustomerDto> getAll() {
-        log.info("Получение всех клиентов");
-        return customerRepository.findAll().stream()
-                .map(customerMapper::toDto)
-                .toList();
+    @Cacheable(cacheNames = CacheConfig.CUSTOMER_PAGES, key = "(#after ?: 0) + ':' + #limit")
+    public CursorPage<CustomerDto> getAll(Long after, int limit) {
+        log.info("Получение страницы клиентов после идентификатора {}, лимит {}", after, limit);
+        var slice = customerRepository.findByIdGreaterThanOrderByIdAsc(
+                after != null ? after : 0L, PageRequest.ofSize(limit));
+        return CursorPage.of(slice, customerMapper::toDto, Customer::getId);
     }
 
     /**
@@ -43,6 +50,7 @@ public class CustomerService implements BaseService<CustomerDto, Long> {
      */
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.CUSTOMERS, key = "#id")
     public CustomerDto getById(Long id) {
         log.info("Получение клиента с идентификатором {}", id);
         return customerRepository.findById(id)
@@ -57,6 +65,10 @@ public class CustomerService implements BaseService<CustomerDto, Long> {
      * {@inheritDoc}
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CUSTOMERS, key = "#customerDto.id", condition = "#customerDto.id != null"),
+            @CacheEvict(cacheNames = CacheConfig.CUSTOMER_PAGES, allEntries = true)
+    })
     public CustomerDto create(CustomerDto customerDto) {
         var id = customerDto.getId();
 
@@ -74,6 +86,10 @@ public class CustomerService implements BaseService<CustomerDto, Long> {
      * {@inheritDoc}
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CUSTOMERS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.CUSTOMER_PAGES, allEntries = true)
+    })
     public CustomerDto update(Long id, CustomerDto customerDto) {
         log.info("Обновление клиента: {}", customerDto);
         var existingCustomer = customerRepository.findById(id)
@@ -90,6 +106,10 @@ public class CustomerService implements BaseService<CustomerDto, Long> {
      * {@inheritDoc}
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CUSTOMERS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.CUSTOMER_PAGES, allEntries = true)
+    })
     public void delete(Long id) {
         log.info("Удаление клиента с идентификатором {}", id);
         customerRepository.deleteById(id);
@@ -2,6 +2,7 @@ package ru.bakht.pharmacy.service.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,6 +11,7 @@ import ru.bakht.pharmacy.service.mapper.EmployeeMapper;
 import ru.bakht.pharmacy.service.mapper.PharmacyMapper;
 import ru.bakht.pharmacy.service.model.Employee;
 import ru.bakht.pharmacy.service.model.Pharmacy;
+import ru.bakht.pharmacy.service.model.dto.CursorPage;
 import ru.bakht.pharmacy.service.model.dto.EmployeeDto;
 import ru.bakht.pharmacy.service.repository.EmployeeRepository;
 import ru.bakht.pharmacy.service.specification.EmployeeSpecification;
@@ -36,11 +38,11 @@ public class EmployeeService implements BaseService<EmployeeDto, Long> {
      */
     @Override
     @Transactional(readOnly = true)
-    public List<EmployeeDto> getAll() {
-        log.info("Получение всех сотрудников");
-        return employeeRepository.findAll().stream()
-                .map(employeeMapper::toDto)
-                .toList();
+    public CursorPage<EmployeeDto> getAll(Long after, int limit) {
+        log.info("Получение страницы сотрудников после идентификатора {}, лимит {}", after, limit);
+        var slice = employeeRepository.findByIdGreaterThanOrderByIdAsc(
+                after != null ? after : 0L, PageRequest.ofSize(limit));
+        return CursorPage.of(slice, employeeMapper::toDto, Employee::getId);
     }
 
     /**
@@ -3,12 +3,20 @@ package ru.bakht.pharmacy.service.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.bakht.pharmacy.service.config.CacheConfig;
+import ru.bakht.pharmacy.service.event.ReportDataChangedEvent;
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
 import ru.bakht.pharmacy.service.mapper.MedicationMapper;
 import ru.bakht.pharmacy.service.model.Medication;
+import ru.bakht.pharmacy.service.model.dto.CursorPage;
 import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.repository.MedicationRepository;
 import ru.bakht.pharmacy.service.specification.MedicationSpecification;
@@ -24,8 +32,15 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MedicationService implements BaseService<MedicationDto, Long> {
 
+    /**
+     * Минимальная длина строки поиска: из более коротких строк не получается ни одной триграммы,
+     * и поиск читает индекс целиком.
+     */
+    public static final int MIN_SEARCH_LENGTH = 3;
+
     private final MedicationRepository medicationRepository;
     private final MedicationMapper medicationMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
 
@@ -33,11 +48,12 @@ public class MedicationService implements BaseService<MedicationDto, Long> {
      */
     @Override
     @Transactional(readOnly = true)
-    public List<MedicationDto> getAll() {
-        log.info("Получение всех лекарств");
-        return medicationRepository.findAll().stream()
-                .map(medicationMapper::toDto)
-                .toList();
+    @Cacheable(cacheNames = CacheConfig.MEDICATION_PAGES, key = "(#after ?: 0) + ':' + #limit")
+    public CursorPage<MedicationDto> getAll(Long after, int limit) {
+        log.info("Получение страницы лекарств после идентификатора {}, лимит {}", after, limit);
+        var slice = medicationRepository.findByIdGreaterThanOrderByIdAsc(
+                after != null ? after : 0L, PageRequest.ofSize(limit));
+        return CursorPage.of(slice, medicationMapper::toDto, Medication::getId);
     }
     /**
 
@@ -45,6 +61,7 @@ public class MedicationService implements BaseService<MedicationDto, Long> {
      */
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.MEDICATIONS, key = "#id")
     public MedicationDto getById(Long id) {
         log.info("Получение лекарства с идентификатором {}", id);
         return medicationRepository.findById(id)
@@ -59,6 +76,10 @@ public class MedicationService implements BaseService<MedicationDto, Long> {
      * {@inheritDoc}
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.MEDICATIONS, key = "#medicationDto.id", condition = "#medicationDto.id != null"),
+            @CacheEvict(cacheNames = CacheConfig.MEDICATION_PAGES, allEntries = true)
+    })
     public MedicationDto create(MedicationDto medicationDto) {
         var id = medicationDto.getId();
 
@@ -76,6 +97,10 @@ public class MedicationService implements BaseService<MedicationDto, Long> {
      * {@inheritDoc}
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.MEDICATIONS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.MEDICATION_PAGES, allEntries = true)
+    })
     public MedicationDto update(Long id, MedicationDto medicationDto) {
         log.info("Обновление лекарства: {}", medicationDto);
         var existingMedication = medicationRepository.findById(id)
@@ -85,6 +110,7 @@ public class MedicationService implements BaseService<MedicationDto, Long> {
                 });
 
         medicationMapper.updateEntityFromDto(medicationDto, existingMedication);
+        eventPublisher.publishEvent(new ReportDataChangedEvent("Лекарство", id));
         return medicationMapper.toDto(medicationRepository.save(existingMedication));
     }
 
@@ -92,9 +118,14 @@ public class MedicationService implements BaseService<MedicationDto, Long> {
      * {@inheritDoc}
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.MEDICATIONS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.MEDICATION_PAGES, allEntries = true)
+    })
     public void delete(Long id) {
         log.info("Удаление лекарства с идентификатором {}", id);
         medicationRepository.deleteById(id);
+        eventPublisher.publishEvent(new ReportDataChangedEvent("Лекарство", id));
     }
 
     /**
@@ -112,4 +143,39 @@ public class MedicationService implements BaseService<MedicationDto, Long> {
                 .map(medicationMapper::toDto)
                 .toList();
     }
-}
\ No newline at end of file
+
+    /**
+     * Ищет лекарства по названию с учетом опечаток.
+     *
+     * @param query строка поиска
+     * @param limit максимальное количество лекарств
+     * @return лекарства, упорядоченные по сходству названия со строкой поиска
+     * @throws IllegalArgumentException если строка поиска короче {@value #MIN_SEARCH_LENGTH} символов
+     */
+    @Transactional(readOnly = true)
+    public List<MedicationDto> search(String query, int limit) {
+        var trimmedQuery = query == null ? "" : query.strip();
+        if (trimmedQuery.length() < MIN_SEARCH_LENGTH) {
+            throw new IllegalArgumentException("Строка поиска должна содержать не менее "
+                    + MIN_SEARCH_LENGTH + " символов");
+        }
+
+        log.info("Поиск лекарств по строке '{}', лимит {}", trimmedQuery, limit);
+        return medicationRepository.searchByName(trimmedQuery, escapeLikePattern(trimmedQuery), limit).stream()
+                .map(medicationMapper::toDto)
+                .toList();
+    }
+
+    /**
+     * Экранирует символы шаблона {@code LIKE}, чтобы строка поиска вида {@code %%%} или {@code ___}
+     * искалась как подстрока, а не совпадала с любым названием.
+     *
+     * @param value строка поиска
+     * @return строка для шаблона {@code LIKE ... ESCAPE '\'}
+     */
+    private static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
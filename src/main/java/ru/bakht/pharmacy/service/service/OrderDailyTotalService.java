@@ -0,0 +1,157 @@
+package ru.bakht.pharmacy.service.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.integration.redis.util.RedisLockRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bakht.pharmacy.service.event.OrderTotalsChangedEvent;
+import ru.bakht.pharmacy.service.model.Order;
+import ru.bakht.pharmacy.service.model.OrderDailyTotalId;
+import ru.bakht.pharmacy.service.repository.OrderDailyTotalRepository;
+import ru.bakht.pharmacy.service.repository.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Класс для ведения дневных итогов заказов по аптеке и статусу.
+ * Итоги изменяются в транзакции, изменяющей заказ, поэтому отчет по периоду читает
+ * по одной строке на день, аптеку и статус вместо всех заказов периода.
+ * Заказы без аптеки учитываются в итогах с пустым идентификатором аптеки, а суммы складываются
+ * в {@link BigDecimal}, поэтому итоги совпадают с суммой по таблице заказов.
+ * Каждое изменение итогов публикуется как {@link OrderTotalsChangedEvent}.
+ * Расхождения, возникшие в обход сервиса (например, при каскадном удалении заказов
+ * вместе с покупателем или лекарством), исправляются периодическим пересчетом.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderDailyTotalService {
+
+    private static final MathContext STORED_AMOUNT_PRECISION = new MathContext(15);
+
+    private final OrderDailyTotalRepository orderDailyTotalRepository;
+    private final RedisLockRegistry redisLockRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionRepository transactionRepository;
+
+    /**
+     * Добавляет заказ в дневные итоги.
+     *
+     * @param order сохраненный заказ
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(Order order) {
+        apply(order, 1);
+    }
+
+    /**
+     * Исключает заказ из дневных итогов. Вызывается до изменения или удаления заказа.
+     *
+     * @param order заказ в состоянии, учтенном в итогах
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void subtract(Order order) {
+        apply(order, -1);
+    }
+
+    /**
+     * Добавляет пакет заказов в дневные итоги, выполняя одно обновление на каждую группу.
+     *
+     * @param orders сохраненные заказы
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addAll(Collection<Order> orders) {
+        Map<OrderDailyTotalId, Total> totals = new LinkedHashMap<>();
+        for (Order order : orders) {
+            totals.computeIfAbsent(idOf(order), id -> new Total()).add(order);
+        }
+        long transactionId = transactionRepository.currentTransactionId();
+        totals.forEach((id, total) -> {
+            orderDailyTotalRepository.add(id.getOrderDate(), id.getPharmacyId(),
+                    id.getStatus().name(), total.count, total.quantity, total.amount);
+            eventPublisher.publishEvent(new OrderTotalsChangedEvent(
+                    id.getOrderDate(), total.quantity, total.amount.doubleValue(), transactionId));
+        });
+    }
+
+    /**
+     * Пересчитывает дневные итоги по таблице заказов.
+     * Таблица итогов блокируется на время пересчета, поэтому заказы, созданные параллельно,
+     * дожидаются его окончания и добавляются уже к пересчитанным итогам.
+     */
+    @Scheduled(cron = "${pharmacy.order-rollup.rebuild-cron:0 30 3 * * ?}")
+    public void rebuild() {
+        Lock lock = redisLockRegistry.obtain("orderDailyTotalsRebuildLock");
+        if (!lock.tryLock()) {
+            log.info("Другой экземпляр уже выполняет пересчет дневных итогов заказов.");
+            return;
+        }
+
+        try {
+            log.info("Начало пересчета дневных итогов заказов...");
+            Integer rows = transactionTemplate.execute(status -> {
+                orderDailyTotalRepository.lockTable();
+                orderDailyTotalRepository.deleteAllTotals();
+                return orderDailyTotalRepository.insertTotalsFromOrders();
+            });
+            log.info("Пересчет дневных итогов заказов завершен, строк итогов: {}", rows);
+        } catch (Exception e) {
+            log.error("Ошибка во время пересчета дневных итогов заказов", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(Order order, int sign) {
+        OrderDailyTotalId id = idOf(order);
+        long quantity = (long) sign * order.getQuantity();
+        BigDecimal amount = sign < 0 ? amountOf(order).negate() : amountOf(order);
+        orderDailyTotalRepository.add(id.getOrderDate(), id.getPharmacyId(), id.getStatus().name(),
+                sign, quantity, amount);
+        eventPublisher.publishEvent(new OrderTotalsChangedEvent(
+                id.getOrderDate(), quantity, amount.doubleValue(), transactionRepository.currentTransactionId()));
+    }
+
+    private OrderDailyTotalId idOf(Order order) {
+        Long pharmacyId = order.getPharmacy() != null ? order.getPharmacy().getId() : null;
+        return new OrderDailyTotalId(order.getOrderDate(), pharmacyId, order.getOrderStatus());
+    }
+
+    /**
+     * Возвращает сумму заказа в том виде, в котором она хранится в столбце {@code DECIMAL}:
+     * PostgreSQL приводит {@code double precision} к {@code numeric} с точностью 15 значащих цифр,
+     * поэтому, например, 3 * 10.1 = 30.299999999999997 хранится как 30.3.
+     */
+    private static BigDecimal amountOf(Order order) {
+        return order.getTotalAmount() != null
+                ? new BigDecimal(order.getTotalAmount(), STORED_AMOUNT_PRECISION)
+                : BigDecimal.ZERO;
+    }
+
+    /**
+     * Итоги группы заказов пакета.
+     */
+    private static final class Total {
+
+        private long count;
+        private long quantity;
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        void add(Order order) {
+            count++;
+            quantity += order.getQuantity();
+            amount = amount.add(amountOf(order));
+        }
+    }
+}
@@ -1,23 +1,38 @@
 package ru.bakht.pharmacy.service.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.bakht.pharmacy.service.enums.OrderStatus;
+import ru.bakht.pharmacy.service.event.ReportDataChangedEvent;
+import ru.bakht.pharmacy.service.event.StockChangedEvent;
+import ru.bakht.pharmacy.service.event.StockConsumedEvent;
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
 import ru.bakht.pharmacy.service.mapper.OrderMapper;
-import ru.bakht.pharmacy.service.model.Order;
-import ru.bakht.pharmacy.service.model.PharmacyMedication;
-import ru.bakht.pharmacy.service.model.PharmacyMedicationId;
+import ru.bakht.pharmacy.service.model.*;
+import ru.bakht.pharmacy.service.model.dto.CursorPage;
 import ru.bakht.pharmacy.service.model.dto.OrderDto;
 import ru.bakht.pharmacy.service.repository.*;
 import ru.bakht.pharmacy.service.specification.OrderSpecification;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Реализация интерфейса {@link BaseService} для управления заказами.
@@ -28,12 +43,19 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderService implements BaseService<OrderDto, Long> {
 
+    private static final int EXPORT_CLEAR_INTERVAL = 500;
+
     private final OrderRepository orderRepository;
     private final OrderMapper orderMapper;
     private final EmployeeRepository employeeRepository;
     private final CustomerRepository customerRepository;
     private final PharmacyRepository pharmacyRepository;
     private final MedicationRepository medicationRepository;
+    private final PharmacyMedicationRepository pharmacyMedicationRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderDailyTotalService orderDailyTotalService;
+    private final TransactionRepository transactionRepository;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -43,11 +65,11 @@ public class OrderService implements BaseService<OrderDto, Long> {
      */
     @Override
     @Transactional(readOnly = true)
-    public List<OrderDto> getAll() {
-        log.info("Получение всех заказов");
-        return orderRepository.findAll().stream()
-                .map(orderMapper::toDto)
-                .toList();
+    public CursorPage<OrderDto> getAll(Long after, int limit) {
+        log.info("Получение страницы заказов после идентификатора {}, лимит {}", after, limit);
+        var slice = orderRepository.findByIdGreaterThanOrderByIdAsc(
+                after != null ? after : 0L, PageRequest.ofSize(limit));
+        return CursorPage.of(slice, orderMapper::toDto, Order::getId);
     }
 
     /**
@@ -74,8 +96,8 @@ public class OrderService implements BaseService<OrderDto, Long> {
 
         var id = orderDto.getId();
 
-        if (id != null && medicationRepository.existsById(id)) {
-            log.info("Лекарство с идентификатором {} уже существует, обновление лекарства", id);
+        if (id != null && orderRepository.existsById(id)) {
+            log.info("Заказ с идентификатором {} уже существует, обновление заказа", id);
             return update(id, orderDto);
         }
 
@@ -87,9 +109,77 @@ public class OrderService implements BaseService<OrderDto, Long> {
 
         order = orderRepository.save(order);
         updatePharmacyMedicationQuantity(orderDto);
+        orderDailyTotalService.add(order);
+        publishConsumption(order, 1);
+        eventPublisher.publishEvent(new ReportDataChangedEvent("Заказ", order.getId()));
         return orderMapper.toDto(order);
     }
 
+    /**
+     * Создает пакет заказов в одной транзакции.
+     * Все связанные сущности и остатки загружаются несколькими запросами с {@code IN},
+     * остаток списывается одним условным {@code UPDATE} на каждую пару аптека/лекарство,
+     * а вставка заказов выполняется JDBC-батчами при фиксации транзакции.
+     * Идентификаторы заказов из пакета игнорируются.
+     *
+     * @param orderDtos список заказов для создания
+     * @return список созданных заказов в порядке входного списка
+     * @throws EntityNotFoundException если какая-либо из связанных сущностей не найдена
+     * @throws IllegalArgumentException если суммарное количество лекарства в пакете превышает остаток на складе
+     */
+    public List<OrderDto> createAll(List<OrderDto> orderDtos) {
+        log.info("Пакетное создание {} заказов", orderDtos.size());
+
+        Map<Long, Pharmacy> pharmacies = findAllById(
+                pharmacyRepository, orderDtos, dto -> dto.getPharmacy().getId(), Pharmacy::getId);
+        Map<Long, Employee> employees = findAllById(
+                employeeRepository, orderDtos, dto -> dto.getEmployee().getId(), Employee::getId);
+        Map<Long, Customer> customers = findAllById(
+                customerRepository, orderDtos, dto -> dto.getCustomer().getId(), Customer::getId);
+        Map<Long, Medication> medications = findAllById(
+                medicationRepository, orderDtos, dto -> dto.getMedication().getId(), Medication::getId);
+        Map<PharmacyMedicationId, PharmacyMedication> stock = pharmacyMedicationRepository
+                .findByPharmacyIdsAndMedicationIds(pharmacies.keySet(), medications.keySet()).stream()
+                .collect(Collectors.toMap(PharmacyMedication::getId, Function.identity()));
+
+        LocalDate orderDate = LocalDate.now();
+        List<Order> orders = new ArrayList<>(orderDtos.size());
+        Map<PharmacyMedicationId, Integer> requestedQuantities = new LinkedHashMap<>();
+
+        for (OrderDto orderDto : orderDtos) {
+            Long pharmacyId = orderDto.getPharmacy().getId();
+            Long medicationId = orderDto.getMedication().getId();
+            var pharmacyMedicationId = new PharmacyMedicationId(pharmacyId, medicationId);
+
+            var employee = getRequired(employees, orderDto.getEmployee().getId(), "Сотрудник");
+            var customer = getRequired(customers, orderDto.getCustomer().getId(), "Покупатель");
+            var pharmacy = getRequired(pharmacies, pharmacyId, "Аптека");
+            var medication = getRequired(medications, medicationId, "Лекарство");
+            checkPharmacyAssignment(employee.getId(), employee.getPharmacy().getId(), pharmacyId, medicationId,
+                    stock.containsKey(pharmacyMedicationId));
+
+            var order = orderMapper.toEntity(orderDto);
+            order.setId(null);
+            setRelatedEntities(order, employee, customer, pharmacy, medication);
+
+            requestedQuantities.merge(pharmacyMedicationId, orderDto.getQuantity(), Integer::sum);
+            order.setOrderDate(orderDate);
+            order.setTotalAmount(orderDto.getQuantity() * order.getMedication().getPrice());
+            orders.add(order);
+        }
+
+        requestedQuantities.forEach((id, quantity) ->
+                reserveStock(id.getPharmacyId(), id.getMedicationId(), quantity));
+        eventPublisher.publishEvent(new ReportDataChangedEvent("Заказ", null));
+
+        List<Order> savedOrders = orderRepository.saveAll(orders);
+        orderDailyTotalService.addAll(savedOrders);
+        savedOrders.forEach(order -> publishConsumption(order, 1));
+        return savedOrders.stream()
+                .map(orderMapper::toDto)
+                .toList();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -103,13 +193,18 @@ public class OrderService implements BaseService<OrderDto, Long> {
                     return new EntityNotFoundException("Заказ", id);
                 });
 
+        orderDailyTotalService.subtract(existingOrder);
+        publishConsumption(existingOrder, -1);
         orderMapper.updateEntityFromDto(orderDto, existingOrder);
+        validateAndSetRelatedEntities(existingOrder, orderDto);
+
         existingOrder.setOrderDate(LocalDate.now());
         existingOrder.setTotalAmount(orderDto.getQuantity() * existingOrder.getMedication().getPrice());
 
-        validateAndSetRelatedEntities(existingOrder, orderDto);
-
         updatePharmacyMedicationQuantity(orderDto);
+        orderDailyTotalService.add(existingOrder);
+        publishConsumption(existingOrder, 1);
+        eventPublisher.publishEvent(new ReportDataChangedEvent("Заказ", id));
 
         return orderMapper.toDto(orderRepository.save(existingOrder));
     }
@@ -120,7 +215,12 @@ public class OrderService implements BaseService<OrderDto, Long> {
     @Override
     public void delete(Long id) {
         log.info("Удаление заказа с идентификатором {}", id);
+        orderRepository.findById(id).ifPresent(order -> {
+            orderDailyTotalService.subtract(order);
+            publishConsumption(order, -1);
+        });
         orderRepository.deleteById(id);
+        eventPublisher.publishEvent(new ReportDataChangedEvent("Заказ", id));
     }
 
     /**
@@ -150,11 +250,50 @@ public class OrderService implements BaseService<OrderDto, Long> {
 
 
     /**
-     * Проверяет наличие связанных сущностей по их идентификаторам в DTO.
-     * и устанавливает связанные сущности в объекте Order на основе данных из DTO.
+     * Потоково выгружает все заказы в формате NDJSON (один JSON-объект на строку).
+     * Заказы читаются курсором, а контекст персистентности периодически очищается,
+     * поэтому объем памяти не зависит от количества заказов.
+     *
+     * @param outputStream поток, в который записываются заказы
+     * @throws IOException если произошла ошибка записи в поток
+     */
+    @Transactional(readOnly = true)
+    public void exportNdjson(OutputStream outputStream) throws IOException {
+        log.info("Экспорт всех заказов в формате NDJSON");
+
+        ObjectWriter writer = objectMapper.writerFor(OrderDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        int count = 0;
+
+        try (Stream<Order> orders = orderRepository.streamAllWithDetails();
+             JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<Order> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, orderMapper.toDto(iterator.next()));
+                generator.writeRaw('\n');
+
+                if (++count % EXPORT_CLEAR_INTERVAL == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+
+        log.info("Экспорт заказов в формате NDJSON завершен, выгружено {} заказов", count);
+    }
+
+    /**
+     * Проверяет наличие связанных сущностей по их идентификаторам в DTO
+     * и устанавливает связанные сущности в объекте Order.
+     * Сотрудник, покупатель, аптека, лекарство и остаток на складе загружаются одним запросом.
      *
      * @param order объект Order, который необходимо обновить
      * @param orderDto объект OrderDto с новыми данными
+     * @throws EntityNotFoundException если какая-либо из связанных сущностей не найдена
+     * @throws IllegalArgumentException если количество лекарства в заказе превышает остаток на складе
      */
     private void validateAndSetRelatedEntities(Order order, OrderDto orderDto) {
         Long employeeId = orderDto.getEmployee().getId();
@@ -162,29 +301,64 @@ public class OrderService implements BaseService<OrderDto, Long> {
         Long pharmacyId = orderDto.getPharmacy().getId();
         Long medicationId = orderDto.getMedication().getId();
 
-        var employee = employeeRepository.findById(employeeId)
-                .orElseThrow(() -> new EntityNotFoundException("Сотрудник", employeeId));
-        var customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new EntityNotFoundException("Покупатель", customerId));
-        var pharmacy  = pharmacyRepository.findById(pharmacyId)
-                .orElseThrow(() -> new EntityNotFoundException("Аптека", pharmacyId));
-        var medication = medicationRepository.findById(medicationId)
-                .orElseThrow(() ->new EntityNotFoundException("Лекарство", medicationId));
-        var pharmacyMedication = entityManager.find(PharmacyMedication.class, new PharmacyMedicationId(
-                pharmacyId, medicationId)
-        );
-
-        if (pharmacyMedication == null) {
-            throw new EntityNotFoundException("Связь между аптекой и лекарством", pharmacyId, medicationId);
+        var data = orderRepository.findOrderValidationData(employeeId, customerId, pharmacyId, medicationId)
+                .orElseThrow(() -> new EntityNotFoundException("Лекарство", medicationId));
+
+        if (data.getEmployee() == null) {
+            throw new EntityNotFoundException("Сотрудник", employeeId);
+        }
+        if (data.getCustomer() == null) {
+            throw new EntityNotFoundException("Покупатель", customerId);
+        }
+        if (data.getPharmacy() == null) {
+            throw new EntityNotFoundException("Аптека", pharmacyId);
         }
-        if (pharmacyMedication.getQuantity() < orderDto.getQuantity()) {
+        checkPharmacyAssignment(employeeId, data.getEmployeePharmacyId(), pharmacyId, medicationId,
+                data.getStockQuantity() != null);
+
+        // Быстрый отказ до вставки заказа; окончательная проверка выполняется при списании в reserveStock
+        if (data.getStockQuantity() < orderDto.getQuantity()) {
+            log.error("Недостаточно лекарства {} на складе аптеки {}: запрошено {}, в наличии {}",
+                    medicationId, pharmacyId, orderDto.getQuantity(), data.getStockQuantity());
             throw new IllegalArgumentException("Количество лекарства в заказе " + orderDto.getQuantity()
-                    + " превышает количество на складе " + pharmacyMedication.getQuantity());
+                    + " превышает количество на складе");
+        }
+
+        setRelatedEntities(order, data.getEmployee(), data.getCustomer(), data.getPharmacy(), data.getMedication());
+    }
+
+    /**
+     * Проверяет наличие лекарства в аптеке и принадлежность сотрудника аптеке.
+     * Достаточность остатка проверяется при списании в {@link #reserveStock}.
+     *
+     * @param employeeId идентификатор сотрудника
+     * @param employeePharmacyId идентификатор аптеки, в которой работает сотрудник
+     * @param pharmacyId идентификатор аптеки заказа
+     * @param medicationId идентификатор лекарства
+     * @param medicationInPharmacy есть ли связь между аптекой и лекарством
+     * @throws EntityNotFoundException если связи нет или сотрудник не работает в указанной аптеке
+     */
+    private void checkPharmacyAssignment(Long employeeId, Long employeePharmacyId, Long pharmacyId,
+                                         Long medicationId, boolean medicationInPharmacy) {
+        if (!medicationInPharmacy) {
+            throw new EntityNotFoundException("Связь между аптекой и лекарством", pharmacyId, medicationId);
         }
-        if (!employee.getPharmacy().getId().equals(pharmacyId)) {
+        if (!pharmacyId.equals(employeePharmacyId)) {
             throw new EntityNotFoundException("Сотрудник не работает в указанной аптеке", employeeId);
         }
+    }
 
+    /**
+     * Устанавливает связанные сущности в объекте Order.
+     *
+     * @param order объект Order, который необходимо обновить
+     * @param employee сотрудник, оформляющий заказ
+     * @param customer покупатель
+     * @param pharmacy аптека
+     * @param medication лекарство
+     */
+    private void setRelatedEntities(Order order, Employee employee, Customer customer,
+                                    Pharmacy pharmacy, Medication medication) {
         order.setEmployee(employee);
         order.setCustomer(customer);
         order.setPharmacy(pharmacy);
@@ -192,23 +366,85 @@ public class OrderService implements BaseService<OrderDto, Long> {
     }
 
     /**
-     * Обновляет количество лекарства в аптеке после создания или обновления заказа.
+     * Резервирует лекарство на складе аптеки после создания или обновления заказа.
      *
      * @param orderDto объект OrderDto
      */
     private void updatePharmacyMedicationQuantity(OrderDto orderDto) {
-        Long pharmacyId = orderDto.getPharmacy().getId();
-        Long medicationId = orderDto.getMedication().getId();
-        var pharmacyMedication = entityManager.find(
-                PharmacyMedication.class, new PharmacyMedicationId(pharmacyId, medicationId)
-        );
+        reserveStock(orderDto.getPharmacy().getId(), orderDto.getMedication().getId(), orderDto.getQuantity());
+    }
 
-        if (pharmacyMedication == null) {
-            throw new EntityNotFoundException("Связь между аптекой и лекарством", pharmacyId, medicationId);
+    /**
+     * Атомарно списывает лекарство со склада аптеки одним условным {@code UPDATE}.
+     * Остаток уменьшается только если его достаточно, поэтому параллельные заказы не могут
+     * списать больше, чем есть на складе.
+     *
+     * @param pharmacyId идентификатор аптеки
+     * @param medicationId идентификатор лекарства
+     * @param quantity списываемое количество
+     * @throws IllegalArgumentException если на складе недостаточно лекарства
+     */
+    private void reserveStock(Long pharmacyId, Long medicationId, int quantity) {
+        int updated = pharmacyMedicationRepository.decrementQuantity(pharmacyId, medicationId, quantity);
+
+        if (updated == 0) {
+            log.error("Недостаточно лекарства {} на складе аптеки {} для списания {}", medicationId, pharmacyId, quantity);
+            throw new IllegalArgumentException("Количество лекарства в заказе " + quantity
+                    + " превышает количество на складе");
+        }
+        eventPublisher.publishEvent(new StockChangedEvent(pharmacyId, medicationId));
+    }
+
+    /**
+     * Публикует изменение расхода лекарства по заказу. При изменении заказа прежнее состояние
+     * исключается из расхода, а новое добавляется, поэтому расход учитывается один раз.
+     * Отмененные заказы и заказы без аптеки или лекарства расходом не считаются.
+     *
+     * @param order заказ
+     * @param sign  1 при добавлении заказа в расход, -1 при исключении
+     */
+    private void publishConsumption(Order order, int sign) {
+        if (order.getOrderStatus() == OrderStatus.CANCELLED
+                || order.getPharmacy() == null || order.getMedication() == null) {
+            return;
         }
+        eventPublisher.publishEvent(new StockConsumedEvent(order.getPharmacy().getId(),
+                order.getMedication().getId(), sign * order.getQuantity(), order.getOrderDate(),
+                transactionRepository.currentTransactionId()));
+    }
 
-        int remainingQuantity = pharmacyMedication.getQuantity() - orderDto.getQuantity();
-        pharmacyMedication.setQuantity(remainingQuantity);
-        entityManager.merge(pharmacyMedication);
+    /**
+     * Загружает сущности по идентификаторам, указанным в заказах, одним запросом.
+     *
+     * @param repository репозиторий сущностей
+     * @param orderDtos список заказов
+     * @param idExtractor функция получения идентификатора сущности из заказа
+     * @param entityId функция получения идентификатора сущности
+     * @return сущности, сгруппированные по идентификатору
+     */
+    private <E> Map<Long, E> findAllById(JpaRepository<E, Long> repository, List<OrderDto> orderDtos,
+                                         Function<OrderDto, Long> idExtractor, Function<E, Long> entityId) {
+        Set<Long> ids = orderDtos.stream()
+                .map(idExtractor)
+                .collect(Collectors.toSet());
+        return repository.findAllById(ids).stream()
+                .collect(Collectors.toMap(entityId, Function.identity()));
+    }
+
+    /**
+     * Возвращает сущность из загруженных по идентификатору.
+     *
+     * @param entities загруженные сущности
+     * @param id идентификатор сущности
+     * @param entityName название сущности для сообщения об ошибке
+     * @return найденная сущность
+     * @throws EntityNotFoundException если сущность с указанным идентификатором не найдена
+     */
+    private static <E> E getRequired(Map<Long, E> entities, Long id, String entityName) {
+        E entity = entities.get(id);
+        if (entity == null) {
+            throw new EntityNotFoundException(entityName, id);
+        }
+        return entity;
     }
 }
@@ -4,15 +4,26 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.bakht.pharmacy.service.config.CacheConfig;
+import ru.bakht.pharmacy.service.event.ReportDataChangedEvent;
+import ru.bakht.pharmacy.service.event.StockChangedEvent;
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
-import ru.bakht.pharmacy.service.mapper.MedicationMapper;
 import ru.bakht.pharmacy.service.mapper.PharmacyMapper;
+import ru.bakht.pharmacy.service.model.Medication;
 import ru.bakht.pharmacy.service.model.Pharmacy;
 import ru.bakht.pharmacy.service.model.PharmacyMedication;
 import ru.bakht.pharmacy.service.model.PharmacyMedicationId;
+import ru.bakht.pharmacy.service.model.dto.CursorPage;
 import ru.bakht.pharmacy.service.model.dto.PharmacyDto;
 import ru.bakht.pharmacy.service.model.dto.PharmacyMedicationDto;
 import ru.bakht.pharmacy.service.repository.PharmacyRepository;
@@ -32,21 +43,30 @@ public class PharmacyService implements BaseService<PharmacyDto, Long> {
     private final PharmacyRepository pharmacyRepository;
     private final MedicationService medicationService;
     private final PharmacyMapper pharmacyMapper;
-    private final MedicationMapper medicationMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    /**
+     * Прокси этого сервиса: вызов {@link #getById} через него проходит через кэш аптек,
+     * а прямой вызов на {@code this} кэш обходит.
+     */
+    @Lazy
+    @Autowired
+    private PharmacyService self;
+
     /**
      * {@inheritDoc}
      */
     @Override
     @Transactional(readOnly = true)
-    public List<PharmacyDto> getAll() {
-        log.info("Получение списка всех аптек");
-        return pharmacyRepository.findAll().stream()
-                .map(pharmacyMapper::toDto)
-                .toList();
+    @Cacheable(cacheNames = CacheConfig.PHARMACY_PAGES, key = "(#after ?: 0) + ':' + #limit")
+    public CursorPage<PharmacyDto> getAll(Long after, int limit) {
+        log.info("Получение страницы аптек после идентификатора {}, лимит {}", after, limit);
+        var slice = pharmacyRepository.findByIdGreaterThanOrderByIdAsc(
+                after != null ? after : 0L, PageRequest.ofSize(limit));
+        return CursorPage.of(slice, pharmacyMapper::toDto, Pharmacy::getId);
     }
 
     /**
@@ -54,6 +74,7 @@ public class PharmacyService implements BaseService<PharmacyDto, Long> {
      */
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PHARMACIES, key = "#id")
     public PharmacyDto getById(Long id) {
         log.info("Получение аптеки с id {}", id);
         return pharmacyRepository.findById(id)
@@ -68,6 +89,10 @@ public class PharmacyService implements BaseService<PharmacyDto, Long> {
      * {@inheritDoc}
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PHARMACIES, key = "#pharmacyDto.id", condition = "#pharmacyDto.id != null"),
+            @CacheEvict(cacheNames = CacheConfig.PHARMACY_PAGES, allEntries = true)
+    })
     public PharmacyDto create(PharmacyDto pharmacyDto) {
         var id = pharmacyDto.getId();
 
@@ -85,6 +110,10 @@ public class PharmacyService implements BaseService<PharmacyDto, Long> {
      * {@inheritDoc}
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PHARMACIES, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PHARMACY_PAGES, allEntries = true)
+    })
     public PharmacyDto update(Long id, PharmacyDto pharmacyDto) {
         log.info("Обновление данных аптеки: {}", pharmacyDto);
         var existingPharmacy = pharmacyRepository.findById(id)
@@ -101,9 +130,14 @@ public class PharmacyService implements BaseService<PharmacyDto, Long> {
      * {@inheritDoc}
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PHARMACIES, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PHARMACY_PAGES, allEntries = true)
+    })
     public void delete(Long id) {
         log.info("Удаление аптеки с id {}", id);
         pharmacyRepository.deleteById(id);
+        eventPublisher.publishEvent(new ReportDataChangedEvent("Аптека", id));
     }
 
     @Transactional(readOnly = true)
@@ -120,37 +154,37 @@ public class PharmacyService implements BaseService<PharmacyDto, Long> {
 
     /**
      * {@inheritDoc}
+     * Существование аптеки и лекарства проверяется через кэшируемые {@link #getById} и
+     * {@link MedicationService#getById}, а новая запись ссылается на них через {@link EntityManager#getReference},
+     * поэтому при закэшированных аптеке и лекарстве они не читаются из БД.
      */
     public void addOrUpdatePharmacyMedication(PharmacyMedicationDto pharmacyMedicationDto) {
         log.info("Создание или обновление записи о лекарстве в аптеке: {}", pharmacyMedicationDto);
 
-        var pharmacy = pharmacyMapper.toEntity(
-                getById(pharmacyMedicationDto.getPharmacyDto().getId())
-        );
-        var medication = medicationMapper.toEntity(
-                medicationService.getById(pharmacyMedicationDto.getMedicationDto().getId())
-        );
+        var pharmacyId = self.getById(pharmacyMedicationDto.getPharmacyDto().getId()).getId();
+        var medicationId = medicationService.getById(pharmacyMedicationDto.getMedicationDto().getId()).getId();
 
-        var pharmacyMedicationId = new PharmacyMedicationId(pharmacy.getId(), medication.getId());
+        var pharmacyMedicationId = new PharmacyMedicationId(pharmacyId, medicationId);
         var existingPharmacyMedication = entityManager.find(PharmacyMedication.class, pharmacyMedicationId);
 
         if (existingPharmacyMedication != null) {
             log.info("Запись PharmacyMedication с pharmacyId {} и medicationId {} уже существует, обновление количества",
-                    pharmacy.getId(), medication.getId());
+                    pharmacyId, medicationId);
 
             existingPharmacyMedication.setQuantity(
                     existingPharmacyMedication.getQuantity() + pharmacyMedicationDto.getQuantity()
             );
-            entityManager.merge(existingPharmacyMedication);
         } else {
             var pharmacyMedication = PharmacyMedication.builder()
                     .id(pharmacyMedicationId)
-                    .pharmacy(pharmacy)
-                    .medication(medication)
+                    .pharmacy(entityManager.getReference(Pharmacy.class, pharmacyId))
+                    .medication(entityManager.getReference(Medication.class, medicationId))
                     .quantity(pharmacyMedicationDto.getQuantity())
                     .build();
-            entityManager.merge(pharmacyMedication);
+            entityManager.persist(pharmacyMedication);
         }
+        eventPublisher.publishEvent(new ReportDataChangedEvent("Аптека", pharmacyId));
+        eventPublisher.publishEvent(new StockChangedEvent(pharmacyId, medicationId));
     }
 
     /**
@@ -167,6 +201,8 @@ public class PharmacyService implements BaseService<PharmacyDto, Long> {
 
         if(pharmacyMedication != null) {
             entityManager.remove(pharmacyMedication);
+            eventPublisher.publishEvent(new ReportDataChangedEvent("Аптека", pharmacyId));
+            eventPublisher.publishEvent(new StockChangedEvent(pharmacyId, medicationId));
         }
     }
 }
@@ -0,0 +1,247 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.bakht.pharmacy.service.event.StockConsumedEvent;
+import ru.bakht.pharmacy.service.exception.IndexNotReadyException;
+import ru.bakht.pharmacy.service.model.dto.MedicationConsumptionProjection;
+import ru.bakht.pharmacy.service.repository.OrderRepository;
+import ru.bakht.pharmacy.service.repository.TransactionRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Индекс среднего расхода лекарств по аптекам в памяти.
+ * Для каждой пары аптеки и лекарства хранится экспоненциально взвешенная сумма списаний
+ * с непрерывным затуханием: вклад списания уменьшается вдвое за период полураспада, поэтому
+ * новое списание учитывается за O(1) без пересчета по истории заказов.
+ * Индекс заполняется по заказам за ограниченный период при старте, обновляется событиями
+ * {@link StockConsumedEvent} после фиксации транзакции и периодически перестраивается,
+ * что также подхватывает заказы, созданные другими экземплярами сервиса.
+ * Согласованность таблицы с событиями, пришедшими во время перестроения, обеспечивает {@link SnapshotIndex}.
+ */
+@Component
+public class ConsumptionRateIndex extends SnapshotIndex<StockConsumedEvent, ConsumptionRateIndex.RateTable> {
+
+    private static final String NAME = "расхода лекарств";
+
+    private static final double MILLIS_PER_DAY = Duration.ofDays(1).toMillis();
+
+    /**
+     * Расход меньше этого значения в день считается отсутствующим.
+     */
+    private static final double MIN_DAILY_RATE = 1e-3;
+
+    private final OrderRepository orderRepository;
+
+    @Value("${pharmacy.stockout-forecast.half-life:7d}")
+    private Duration halfLife;
+
+    @Value("${pharmacy.stockout-forecast.history:56d}")
+    private Duration history;
+
+    /**
+     * Через сколько клиенту повторить запрос, если индекс еще не заполнен.
+     */
+    @Value("${pharmacy.stockout-forecast.retry-after:30s}")
+    private Duration retryAfter;
+
+    private double timeConstantDays;
+
+    public ConsumptionRateIndex(OrderRepository orderRepository,
+                                TransactionRepository transactionRepository,
+                                PlatformTransactionManager transactionManager) {
+        super(NAME, transactionRepository, transactionManager);
+        this.orderRepository = orderRepository;
+    }
+
+    @PostConstruct
+    void init() {
+        timeConstantDays = halfLife.toMillis() / MILLIS_PER_DAY / Math.log(2);
+    }
+
+    /**
+     * Возвращает средний расход лекарств аптеки в день.
+     *
+     * @param pharmacyId    идентификатор аптеки
+     * @param medicationIds идентификаторы лекарств
+     * @return расход в день для каждого лекарства в порядке идентификаторов; 0, если лекарство не расходуется
+     * @throws IndexNotReadyException если индекс еще не заполнен
+     */
+    public double[] dailyRates(long pharmacyId, long[] medicationIds) {
+        double now = nowInDays();
+        return read(table -> {
+            if (table == null) {
+                throw new IndexNotReadyException(NAME, retryAfter);
+            }
+            double[] rates = new double[medicationIds.length];
+            for (int i = 0; i < medicationIds.length; i++) {
+                double rate = table.rate(key(pharmacyId, medicationIds[i]), now);
+                rates[i] = rate >= MIN_DAILY_RATE ? rate : 0.0;
+            }
+            return rates;
+        });
+    }
+
+    /**
+     * Учитывает изменение расхода лекарства после фиксации транзакции заказа.
+     *
+     * @param event событие изменения расхода
+     */
+    @TransactionalEventListener
+    public void onStockConsumed(StockConsumedEvent event) {
+        onEvent(event);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * Перестраивает индекс по заказам за период {@code pharmacy.stockout-forecast.history}.
+     */
+    @Scheduled(fixedDelayString = "${pharmacy.stockout-forecast.rebuild-interval:10m}",
+            initialDelayString = "${pharmacy.stockout-forecast.rebuild-interval:10m}")
+    public void rebuild() {
+        rebuildFromSnapshot();
+    }
+
+    @Override
+    protected RateTable load() {
+        List<MedicationConsumptionProjection> consumption =
+                orderRepository.findDailyConsumptionSince(LocalDate.now().minusDays(history.toDays()));
+        double now = nowInDays();
+        RateTable table = new RateTable(timeConstantDays, consumption.size());
+        for (MedicationConsumptionProjection row : consumption) {
+            table.add(key(row.getPharmacyId(), row.getMedicationId()), dayOf(row.getOrderDate(), now),
+                    row.getQuantity());
+        }
+        return table;
+    }
+
+    @Override
+    protected void apply(RateTable table, StockConsumedEvent event) {
+        table.add(key(event.pharmacyId(), event.medicationId()), dayOf(event.orderDate(), nowInDays()),
+                event.quantity());
+    }
+
+    @Override
+    protected long transactionIdOf(StockConsumedEvent event) {
+        return event.transactionId();
+    }
+
+    /**
+     * Время заказа внутри дня не хранится, поэтому списание относится к середине дня заказа,
+     * но не позже текущего момента. Так расход по событию совпадает с расходом после перестроения.
+     */
+    private static double dayOf(LocalDate orderDate, double now) {
+        return Math.min(orderDate.toEpochDay() + 0.5, now);
+    }
+
+    private static long key(long pharmacyId, long medicationId) {
+        return pharmacyId << 32 | medicationId;
+    }
+
+    private static double nowInDays() {
+        return System.currentTimeMillis() / MILLIS_PER_DAY;
+    }
+
+    /**
+     * Хеш-таблица с открытой адресацией на примитивных массивах.
+     * Для каждого ключа хранится сумма списаний, приведенная к времени последнего списания.
+     * Нулевой ключ означает пустую ячейку: идентификаторы аптек начинаются с единицы.
+     */
+    static final class RateTable {
+
+        private static final int MIN_CAPACITY = 16;
+
+        private final double timeConstantDays;
+
+        private long[] keys;
+        private double[] levels;
+        private double[] times;
+        private int size;
+
+        RateTable(double timeConstantDays, int expectedSize) {
+            this.timeConstantDays = timeConstantDays;
+            allocate(capacityFor(expectedSize));
+        }
+
+        void add(long key, double day, double quantity) {
+            int index = indexOf(key);
+            if (keys[index] == 0) {
+                keys[index] = key;
+                levels[index] = quantity;
+                times[index] = day;
+                if (++size * 2 > keys.length) {
+                    resize();
+                }
+                return;
+            }
+
+            if (day >= times[index]) {
+                levels[index] = levels[index] * Math.exp((times[index] - day) / timeConstantDays) + quantity;
+                times[index] = day;
+            } else {
+                levels[index] += quantity * Math.exp((day - times[index]) / timeConstantDays);
+            }
+        }
+
+        double rate(long key, double day) {
+            int index = indexOf(key);
+            if (keys[index] == 0) {
+                return 0.0;
+            }
+            double elapsed = Math.max(day - times[index], 0.0);
+            return levels[index] * Math.exp(-elapsed / timeConstantDays) / timeConstantDays;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int indexOf(long key) {
+            int mask = keys.length - 1;
+            long hash = key * 0x9E3779B97F4A7C15L;
+            int index = (int) (hash ^ hash >>> 32) & mask;
+            while (keys[index] != 0 && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            double[] oldLevels = levels;
+            double[] oldTimes = times;
+            allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int index = indexOf(oldKeys[i]);
+                    keys[index] = oldKeys[i];
+                    levels[index] = oldLevels[i];
+                    times[index] = oldTimes[i];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            levels = new double[capacity];
+            times = new double[capacity];
+        }
+
+        private static int capacityFor(int expectedSize) {
+            return Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1);
+        }
+    }
+}
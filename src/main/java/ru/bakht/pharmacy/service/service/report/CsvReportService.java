@@ -0,0 +1,128 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
+import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdownRow;
+import ru.bakht.pharmacy.service.model.dto.TotalOrders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Реализация интерфейса {@link ReportGenerator} для генерации CSV-отчетов.
+ * Строки пишутся в поток по мере чтения данных, поэтому отчет по заказам
+ * не требует загрузки всех заказов в память.
+ */
+@Slf4j
+@Service
+public class CsvReportService implements ReportGenerator {
+
+    private static final int FLUSH_INTERVAL = 1_000;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeMedicationsReport(List<MedicationDto> medications, OutputStream outputStream) throws IOException {
+        log.info("Генерация CSV-отчета по лекарствам с {} записями", medications.size());
+
+        CsvWriter csv = new CsvWriter(outputStream);
+        csv.writeHeader("ID", "Наименование", "Форма", "Цена", "Срок годности");
+        for (MedicationDto medication : medications) {
+            csv.value(medication.getId())
+                    .value(medication.getName())
+                    .value(medication.getForm())
+                    .value(medication.getPrice())
+                    .value(medication.getExpirationDate())
+                    .endRow();
+        }
+        csv.flush();
+
+        log.info("CSV-отчет по лекарствам успешно сгенерирован");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeOrdersReport(List<OrderDto> orders, OutputStream outputStream) throws IOException {
+        writeOrdersReport(orders.stream(), outputStream);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeOrdersReport(Stream<OrderDto> orders, OutputStream outputStream) throws IOException {
+        log.info("Генерация CSV-отчета по заказам");
+
+        CsvWriter csv = new CsvWriter(outputStream);
+        csv.writeHeader("ID", "Название", "Количество", "Общая сумма", "Дата заказа", "Статус");
+
+        int count = 0;
+        Iterator<OrderDto> iterator = orders.iterator();
+        while (iterator.hasNext()) {
+            OrderDto order = iterator.next();
+            csv.value(order.getId())
+                    .value(order.getMedication().getName())
+                    .value(order.getQuantity())
+                    .value(order.getTotalAmount())
+                    .value(order.getOrderDate())
+                    .value(order.getOrderStatus())
+                    .endRow();
+
+            if (++count % FLUSH_INTERVAL == 0) {
+                csv.flush();
+            }
+        }
+        csv.flush();
+
+        log.info("CSV-отчет по заказам успешно сгенерирован, выгружено {} заказов", count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeTotalOrdersReport(TotalOrders totalOrders, OutputStream outputStream) throws IOException {
+        log.info("Генерация CSV-отчета по общему числу заказов");
+
+        CsvWriter csv = new CsvWriter(outputStream);
+        csv.writeHeader("Общее количество", "Общая сумма");
+        csv.value(totalOrders.getTotalQuantity())
+                .value(totalOrders.getTotalAmount())
+                .endRow();
+        csv.flush();
+
+        log.info("CSV-отчет по общему числу заказов успешно сгенерирован");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeSalesBreakdownReport(SalesBreakdown salesBreakdown, OutputStream outputStream) throws IOException {
+        log.info("Генерация CSV-отчета по разрезам продаж с {} записями", salesBreakdown.getRows().size());
+
+        CsvWriter csv = new CsvWriter(outputStream);
+        csv.writeHeader("Разрез", "Значение", "Наименование", "Количество заказов", "Количество", "Общая сумма");
+        for (SalesBreakdownRow row : salesBreakdown.getRows()) {
+            csv.value(row.getDimension())
+                    .value(row.getKey())
+                    .value(row.getLabel())
+                    .value(row.getOrderCount())
+                    .value(row.getTotalQuantity())
+                    .value(row.getTotalAmount())
+                    .endRow();
+        }
+        csv.flush();
+
+        log.info("CSV-отчет по разрезам продаж успешно сгенерирован");
+    }
+}
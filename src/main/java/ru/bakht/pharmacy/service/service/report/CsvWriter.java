@@ -0,0 +1,163 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Построчная запись CSV (RFC 4180) в поток в кодировке UTF-8.
+ * Значения копируются в один переиспользуемый буфер символов, который сбрасывается в поток
+ * по заполнении, поэтому запись строки не создает промежуточных строк и списков.
+ * Поток, переданный в конструктор, не закрывается.
+ */
+class CsvWriter {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+
+    private final Writer writer;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private boolean firstInRow = true;
+
+    CsvWriter(OutputStream outputStream) {
+        this.writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Записывает строку заголовка.
+     *
+     * @param columns названия колонок
+     */
+    void writeHeader(String... columns) throws IOException {
+        for (String column : columns) {
+            value(column);
+        }
+        endRow();
+    }
+
+    CsvWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            return this;
+        }
+        if (!needsQuoting(value)) {
+            append(value);
+            return this;
+        }
+        append(QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == QUOTE) {
+                append(QUOTE);
+            }
+            append(c);
+        }
+        append(QUOTE);
+        return this;
+    }
+
+    CsvWriter value(Long value) throws IOException {
+        separate();
+        if (value != null) {
+            append(Long.toString(value));
+        }
+        return this;
+    }
+
+    CsvWriter value(Integer value) throws IOException {
+        separate();
+        if (value != null) {
+            append(Integer.toString(value));
+        }
+        return this;
+    }
+
+    /**
+     * Записывает число без экспоненциальной записи, чтобы значение одинаково читалось
+     * табличными редакторами и загрузчиками хранилища.
+     */
+    CsvWriter value(Double value) throws IOException {
+        separate();
+        if (value != null) {
+            append(BigDecimal.valueOf(value).toPlainString());
+        }
+        return this;
+    }
+
+    CsvWriter value(LocalDate value) throws IOException {
+        separate();
+        if (value != null) {
+            append(value.toString());
+        }
+        return this;
+    }
+
+    CsvWriter value(Enum<?> value) throws IOException {
+        return value(value != null ? value.name() : null);
+    }
+
+    void endRow() throws IOException {
+        append('\r');
+        append('\n');
+        firstInRow = true;
+    }
+
+    /**
+     * Сбрасывает буфер и кодировщик в поток, не закрывая его.
+     */
+    void flush() throws IOException {
+        writer.write(buffer, 0, position);
+        position = 0;
+        writer.flush();
+    }
+
+    private void separate() throws IOException {
+        if (firstInRow) {
+            firstInRow = false;
+        } else {
+            append(DELIMITER);
+        }
+    }
+
+    private void append(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = c;
+    }
+
+    private void append(String value) throws IOException {
+        int offset = 0;
+        int length = value.length();
+        while (offset < length) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(length - offset, buffer.length - position);
+            value.getChars(offset, offset + count, buffer, position);
+            position += count;
+            offset += count;
+        }
+    }
+
+    private void drain() throws IOException {
+        writer.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private static boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == DELIMITER || c == QUOTE || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,20 +2,24 @@ package ru.bakht.pharmacy.service.service.report;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
 import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdownRow;
 import ru.bakht.pharmacy.service.model.dto.TotalOrders;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 /**
  * Реализация интерфейса {@link ReportGenerator} для генерации Excel-отчетов.
+ * Отчеты строятся потоково через {@link SXSSFWorkbook}: в памяти хранится только окно
+ * из последних строк, остальные сбрасываются во временный файл.
  */
 @Slf4j
 @Service
@@ -23,110 +27,154 @@ public class ExcelReportService implements ReportGenerator {
 
     private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public byte[] generateMedicationsReport(List<MedicationDto> medications) throws IOException {
+    public void writeMedicationsReport(List<MedicationDto> medications, OutputStream outputStream) throws IOException {
         log.info("Генерация отчета о лекарствах с {} записями", medications.size());
 
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Лекарства");
-
-        Row headerRow = sheet.createRow(0);
-        String[] columns = {"ID", "Наименование", "Форма", "Цена", "Срок годности"};
-        for (int i = 0; i < columns.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(columns[i]);
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        try {
+            Sheet sheet = createSheet(workbook, "Лекарства",
+                    "ID", "Наименование", "Форма", "Цена", "Срок годности");
+
+            int rowNum = 1;
+            for (MedicationDto medication : medications) {
+                Row row = sheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(medication.getId());
+                row.createCell(1).setCellValue(medication.getName());
+                row.createCell(2).setCellValue(medication.getForm().name());
+                row.createCell(3).setCellValue(medication.getPrice());
+                Cell dateCell = row.createCell(4);
+                LocalDate expirationDate = medication.getExpirationDate();
+                dateCell.setCellValue(dateFormat.format(expirationDate));
+            }
+
+            workbook.write(outputStream);
+        } finally {
+            dispose(workbook);
         }
 
-        int rowNum = 1;
-        for (MedicationDto medication : medications) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(medication.getId());
-            row.createCell(1).setCellValue(medication.getName());
-            row.createCell(2).setCellValue(medication.getForm().name());
-            row.createCell(3).setCellValue(medication.getPrice());
-            Cell dateCell = row.createCell(4);
-            LocalDate expirationDate = medication.getExpirationDate();
-            dateCell.setCellValue(dateFormat.format(expirationDate));
-        }
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
-
         log.info("Отчет о лекарствах успешно сгенерирован");
-
-        return outputStream.toByteArray();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public byte[] generateOrdersReport(List<OrderDto> orders) throws IOException {
+    public void writeOrdersReport(List<OrderDto> orders, OutputStream outputStream) throws IOException {
         log.info("Генерация отчета о заказах с {} записями", orders.size());
 
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Заказы");
-
-        Row headerRow = sheet.createRow(0);
-        String[] columns = {"ID", "Названиея", "Количество", "Общая сумма", "Дата заказа", "Статус"};
-        for (int i = 0; i < columns.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(columns[i]);
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        try {
+            Sheet sheet = createSheet(workbook, "Заказы",
+                    "ID", "Названиея", "Количество", "Общая сумма", "Дата заказа", "Статус");
+
+            int rowNum = 1;
+            for (OrderDto order : orders) {
+                Row row = sheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(order.getId());
+                row.createCell(1).setCellValue(order.getMedication().getName());
+                row.createCell(2).setCellValue(order.getQuantity());
+                row.createCell(3).setCellValue(order.getTotalAmount());
+                Cell dateCell = row.createCell(4);
+                dateCell.setCellValue(dateFormat.format(order.getOrderDate()));
+                row.createCell(5).setCellValue(order.getOrderStatus().name());
+            }
+
+            workbook.write(outputStream);
+        } finally {
+            dispose(workbook);
         }
 
-        int rowNum = 1;
-        for (OrderDto order : orders) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(order.getId());
-            row.createCell(1).setCellValue(order.getMedication().getName());
-            row.createCell(2).setCellValue(order.getQuantity());
-            row.createCell(3).setCellValue(order.getTotalAmount());
-            Cell dateCell = row.createCell(4);
-            dateCell.setCellValue(dateFormat.format(order.getOrderDate()));
-            row.createCell(5).setCellValue(order.getOrderStatus().name());
-        }
+        log.info("Отчет о заказах успешно сгенерирован");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeTotalOrdersReport(TotalOrders totalOrders, OutputStream outputStream) throws IOException {
+        log.info("Генерация отчета о общем количестве заказов");
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        try {
+            Sheet sheet = createSheet(workbook, "Общее количество заказов", "Общее количество", "Общая сумма");
 
-        log.info("Отчет о заказах успешно сгенерирован");
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue(totalOrders.getTotalQuantity());
+            row.createCell(1).setCellValue(totalOrders.getTotalAmount());
+
+            workbook.write(outputStream);
+        } finally {
+            dispose(workbook);
+        }
 
-        return outputStream.toByteArray();
+        log.info("Отчет о общем количестве заказов успешно сгенерирован");
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public byte[] generateTotalOrdersReport(TotalOrders totalOrders) throws IOException {
-        log.info("Генерация отчета о общем количестве заказов");
+    public void writeSalesBreakdownReport(SalesBreakdown salesBreakdown, OutputStream outputStream) throws IOException {
+        log.info("Генерация отчета по разрезам продаж с {} записями", salesBreakdown.getRows().size());
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        try {
+            Sheet sheet = createSheet(workbook, "Продажи",
+                    "Разрез", "Значение", "Наименование", "Количество заказов", "Количество", "Общая сумма");
+
+            int rowNum = 1;
+            for (SalesBreakdownRow breakdownRow : salesBreakdown.getRows()) {
+                Row row = sheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(breakdownRow.getDimension().name());
+                row.createCell(1).setCellValue(breakdownRow.getKey());
+                row.createCell(2).setCellValue(breakdownRow.getLabel());
+                row.createCell(3).setCellValue(breakdownRow.getOrderCount());
+                row.createCell(4).setCellValue(breakdownRow.getTotalQuantity());
+                row.createCell(5).setCellValue(breakdownRow.getTotalAmount());
+            }
+
+            workbook.write(outputStream);
+        } finally {
+            dispose(workbook);
+        }
 
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Общее количество заказов");
+        log.info("Отчет по разрезам продаж успешно сгенерирован");
+    }
 
+    /**
+     * Создает лист с заголовком из указанных колонок.
+     *
+     * @param workbook книга Excel
+     * @param sheetName название листа
+     * @param columns названия колонок
+     * @return созданный лист
+     */
+    private Sheet createSheet(Workbook workbook, String sheetName, String... columns) {
+        Sheet sheet = workbook.createSheet(sheetName);
         Row headerRow = sheet.createRow(0);
-        String[] columns = {"Общее количество", "Общая сумма"};
         for (int i = 0; i < columns.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(columns[i]);
         }
+        return sheet;
+    }
 
-        Row row = sheet.createRow(1);
-        row.createCell(0).setCellValue(totalOrders.getTotalQuantity());
-        row.createCell(1).setCellValue(totalOrders.getTotalAmount());
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
-
-        log.info("Отчет о общем количестве заказов успешно сгенерирован");
-
-        return outputStream.toByteArray();
+    /**
+     * Закрывает книгу и удаляет временные файлы, в которые SXSSF сбрасывал строки.
+     *
+     * @param workbook книга Excel
+     */
+    private void dispose(SXSSFWorkbook workbook) throws IOException {
+        try {
+            workbook.close();
+        } finally {
+            workbook.dispose();
+        }
     }
 }
-
@@ -0,0 +1,91 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import lombok.RequiredArgsConstructor;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
+import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
+import ru.bakht.pharmacy.service.model.dto.TotalOrders;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Обертка над {@link ReportGenerator}, сжимающая отчет в формат gzip по мере записи.
+ * Исходный поток не закрывается, закрываются только сжимающий поток и его {@link java.util.zip.Deflater}.
+ */
+@RequiredArgsConstructor
+class GzipReportGenerator implements ReportGenerator {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReportGenerator delegate;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeMedicationsReport(List<MedicationDto> medications, OutputStream outputStream) throws IOException {
+        try (GZIPOutputStream gzip = gzip(outputStream)) {
+            delegate.writeMedicationsReport(medications, gzip);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeOrdersReport(List<OrderDto> orders, OutputStream outputStream) throws IOException {
+        try (GZIPOutputStream gzip = gzip(outputStream)) {
+            delegate.writeOrdersReport(orders, gzip);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeOrdersReport(Stream<OrderDto> orders, OutputStream outputStream) throws IOException {
+        try (GZIPOutputStream gzip = gzip(outputStream)) {
+            delegate.writeOrdersReport(orders, gzip);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeTotalOrdersReport(TotalOrders totalOrders, OutputStream outputStream) throws IOException {
+        try (GZIPOutputStream gzip = gzip(outputStream)) {
+            delegate.writeTotalOrdersReport(totalOrders, gzip);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeSalesBreakdownReport(SalesBreakdown salesBreakdown, OutputStream outputStream) throws IOException {
+        try (GZIPOutputStream gzip = gzip(outputStream)) {
+            delegate.writeSalesBreakdownReport(salesBreakdown, gzip);
+        }
+    }
+
+    private GZIPOutputStream gzip(OutputStream outputStream) throws IOException {
+        OutputStream nonClosing = new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return new GZIPOutputStream(nonClosing, BUFFER_SIZE);
+    }
+}
@@ -1,36 +1,44 @@
 package ru.bakht.pharmacy.service.service.report;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.integration.redis.util.RedisLockRegistry;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import ru.bakht.pharmacy.service.model.Employee;
+import ru.bakht.pharmacy.service.model.NotificationOutbox;
 import ru.bakht.pharmacy.service.model.PharmacyMedication;
 import ru.bakht.pharmacy.service.repository.EmployeeRepository;
-import ru.bakht.pharmacy.service.repository.MedicationRepository;
+import ru.bakht.pharmacy.service.repository.NotificationOutboxRepository;
 
-import java.util.List;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 /**
  * Класс для проверки запасов медикаментов и уведомления сотрудников.
+ * Переходы остатков ниже порога отслеживаются {@link LowStockTracker} по событиям изменения остатков
+ * и записываются пакетом по расписанию в очередь исходящих уведомлений; ночная проверка только сверяет отметки с БД
+ * и уведомляет о позициях, изменения которых прошли в обход сервиса. Ночная проверка распределяется
+ * между экземплярами сервиса по сегментам аптек.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class InventoryCheckService {
 
-    private final MedicationRepository medicationRepository;
+    private static final String SUBJECT = "Уведомление о низком запасе медикаментов";
+
     private final EmployeeRepository employeeRepository;
-    private final JavaMailSender mailSender;
+    private final NotificationOutboxRepository notificationOutboxRepository;
     private final RedisLockRegistry redisLockRegistry;
+    private final LowStockTracker lowStockTracker;
+    private final StringRedisTemplate stringRedisTemplate;
 
     @Value("${spring.mail.username}")
     private String mailUsername;
@@ -38,97 +46,206 @@ public class InventoryCheckService {
     @Value("${spring.mail.password}")
     private String mailPassword;
 
-    private static final int THRESHOLD = 10; // минимальное количество медикаментов
+    @Value("${pharmacy.low-stock.shards:8}")
+    private int shards;
+
+    @Value("${pharmacy.low-stock.reconcile-window:30m}")
+    private Duration reconcileWindow;
+
+    @Value("${pharmacy.low-stock.shard-poll-interval:5s}")
+    private Duration shardPollInterval;
+
+    @Value("${pharmacy.low-stock.reconcile-run-key:pharmacy-service:low-stock:reconcile-run}")
+    private String runKey;
 
     /**
-     * Проверяет запасы медикаментов в аптеке и отправляет уведомления сотрудникам, если запасы ниже порогового значения.
+     * Записывает уведомления о позициях, остаток которых опустился ниже порога после последних изменений.
      */
-    @Scheduled(cron = "0 0 0 * * ?")
-    public void checkInventory() {
-        if (isEmailConfigured()) {
-            Lock lock = redisLockRegistry.obtain("inventoryCheckLock");
-
-            try {
-                if (lock.tryLock()) {
-                    log.info("Начало проверки запасов медикаментов...");
+    @Scheduled(fixedDelayString = "${pharmacy.low-stock.flush-interval:5s}")
+    public void notifyLowStock() {
+        if (!isEmailConfigured()) {
+            return;
+        }
+        try {
+            List<PharmacyMedication> crossed = lowStockTracker.drainCrossed();
+            if (!crossed.isEmpty()) {
+                log.info("Остаток {} позиций опустился ниже порога", crossed.size());
+                enqueueNotifications(crossed);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка во время записи уведомлений о низком запасе медикаментов", e);
+        }
+    }
 
-                    List<PharmacyMedication> lowStockMedications =
-                            medicationRepository.findMedicationsBelowThreshold(THRESHOLD);
+    /**
+     * Сверяет запасы медикаментов с отметками об уведомлениях и отправляет уведомления сотрудникам
+     * о позициях ниже порогового значения, о которых еще не уведомляли.
+     * Аптеки разбиты на сегменты по остатку от деления идентификатора, каждый сегмент защищен своей
+     * блокировкой, поэтому экземпляры сервиса проверяют свободные сегменты параллельно.
+     * Проверенные сегменты отмечаются в Redis в рамках общего запуска; экземпляр, закончивший свои сегменты,
+     * дожидается остальных и забирает сегмент, блокировка которого освободилась после сбоя другого экземпляра.
+     */
+    @Scheduled(cron = "${pharmacy.low-stock.reconcile-cron:0 0 0 * * ?}")
+    public void checkInventory() {
+        if (!isEmailConfigured()) {
+            log.warn("Параметры электронной почты не настроены. Пропуск проверки запасов медикаментов.");
+            return;
+        }
 
-                    if (!lowStockMedications.isEmpty()) {
-                        sendNotifications(lowStockMedications);
+        try {
+            String progressKey = progressKey();
+            long deadline = System.nanoTime() + reconcileWindow.toNanos();
+            Deque<Integer> pendingShards = pendingShards(progressKey);
+            log.info("Начало проверки запасов медикаментов, сегментов к проверке: {}", pendingShards.size());
+
+            while (!pendingShards.isEmpty() && System.nanoTime() < deadline) {
+                int busyShards = pendingShards.size();
+                for (int i = 0; i < busyShards; i++) {
+                    int shard = pendingShards.removeFirst();
+                    if (!tryCheckShard(progressKey, shard)) {
+                        pendingShards.addLast(shard);
                     }
-
-                    log.info("Проверка запасов медикаментов завершена.");
-                } else {
-                    log.info("Другой экземпляр уже выполняет проверку запасов медикаментов.");
                 }
-            } catch (Exception e) {
-                log.error("Ошибка во время проверки запасов медикаментов", e);
-
-            } finally {
-                try {
-                    lock.unlock();
-                } catch (IllegalStateException e) {
-                    log.warn("Не удалось освободить блокировку. "
-                            + "Блокировка не удерживается этим экземпляром.", e);
+                if (!pendingShards.isEmpty()) {
+                    Thread.sleep(shardPollInterval);
                 }
             }
-        } else {
-            log.warn("Параметры электронной почты не настроены. Пропуск проверки запасов медикаментов.");
+
+            if (pendingShards.isEmpty()) {
+                log.info("Проверка запасов медикаментов завершена.");
+            } else {
+                log.warn("Проверка запасов медикаментов не завершена, непроверенные сегменты: {}", pendingShards);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Проверка запасов медикаментов прервана");
+        } catch (Exception e) {
+            log.error("Ошибка во время проверки запасов медикаментов", e);
         }
     }
 
     /**
-     * Отправляет уведомления сотрудникам аптеки о низких запасах медикаментов.
+     * Проверяет сегмент, если он еще не проверен и не заблокирован другим экземпляром.
      *
-     * @param medications список медикаментов с низким запасом
+     * @return {@code true}, если сегмент проверен в текущем запуске
+     */
+    private boolean tryCheckShard(String progressKey, int shard) {
+        if (isShardDone(progressKey, shard)) {
+            return true;
+        }
+
+        Lock lock = redisLockRegistry.obtain("inventoryCheckLock:" + shard);
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (isShardDone(progressKey, shard)) {
+                return true;
+            }
+
+            List<PharmacyMedication> lowStockMedications = lowStockTracker.reconcile(shard, shards);
+            if (!lowStockMedications.isEmpty()) {
+                enqueueNotifications(lowStockMedications);
+            }
+
+            stringRedisTemplate.opsForSet().add(progressKey, String.valueOf(shard));
+            stringRedisTemplate.expire(progressKey, reconcileWindow);
+            log.info("Сегмент {} из {} проверен, позиций ниже порога: {}", shard, shards, lowStockMedications.size());
+            return true;
+        } finally {
+            try {
+                lock.unlock();
+            } catch (IllegalStateException e) {
+                log.warn("Не удалось освободить блокировку сегмента {}. "
+                        + "Блокировка не удерживается этим экземпляром.", shard, e);
+            }
+        }
+    }
+
+    /**
+     * Возвращает ключ отметок о проверенных сегментах текущего запуска.
+     * Первый экземпляр, начавший проверку, создает идентификатор запуска, который остальные экземпляры
+     * используют до истечения окна проверки.
      */
-    public void sendNotifications(List<PharmacyMedication> medications) {
-        medications.stream()
-                .collect(Collectors.groupingBy(pm -> pm.getPharmacy().getId()))
-                .forEach((pharmacyId, pharmacyMedications) -> {
-                    List<Employee> employees = employeeRepository.findByPharmacyId(pharmacyId);
-                    employees.forEach(employee -> {
-                        String subject = "Уведомление о низком запасе медикаментов";
-                        StringBuilder message = new StringBuilder("Следующие медикаменты имеют низкий запас:\n\n");
-
-                        for (PharmacyMedication pm : pharmacyMedications) {
-                            message.append("ID: ").append(pm.getMedication().getId())
-                                    .append(", Наименование: ").append(pm.getMedication().getName())
-                                    .append(", Форма выпуска: ").append(pm.getMedication().getForm().name())
-                                    .append(", Цена: ").append(pm.getMedication().getPrice())
-                                    .append(", Количество: ").append(pm.getQuantity())
-                                    .append("\n");
-                        }
-
-                        try {
-                            sendEmail(employee.getEmail(), subject, message.toString());
-                        } catch (MessagingException e) {
-                            log.error("Не удалось отправить уведомление о низком запасе на почту {}", employee.getEmail(), e);
-                        }
-                    });
-                });
+    private String progressKey() {
+        stringRedisTemplate.opsForValue().setIfAbsent(runKey, UUID.randomUUID().toString(), reconcileWindow);
+        String runId = stringRedisTemplate.opsForValue().get(runKey);
+        return runKey + ":" + runId + ":shards";
+    }
+
+    private Deque<Integer> pendingShards(String progressKey) {
+        Set<String> done = stringRedisTemplate.opsForSet().members(progressKey);
+        List<Integer> pending = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            if (done == null || !done.contains(String.valueOf(shard))) {
+                pending.add(shard);
+            }
+        }
+        // экземпляры начинают со случайного сегмента, чтобы реже соревноваться за одну блокировку
+        Collections.rotate(pending, ThreadLocalRandom.current().nextInt(Math.max(pending.size(), 1)));
+        return new ArrayDeque<>(pending);
+    }
+
+    private boolean isShardDone(String progressKey, int shard) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(progressKey, String.valueOf(shard)));
     }
 
     /**
-     * Отправляет электронное письмо.
+     * Записывает уведомления сотрудникам аптеки о низких запасах медикаментов в очередь исходящих уведомлений,
+     * откуда их отправляет {@link NotificationOutboxRelay}.
+     * Сотрудники всех аптек загружаются одним запросом, а позиции должны быть загружены
+     * вместе с лекарствами, поэтому число обращений к БД не зависит от количества аптек.
+     * Текст письма формируется один раз для аптеки, а все уведомления записываются в одной транзакции.
+     * Если записать уведомления не удалось, отметки об уведомлениях снимаются, чтобы позиции
+     * были найдены при следующей проверке.
      *
-     * @param to      адрес получателя
-     * @param subject тема письма
-     * @param text    текст письма
-     * @throws MessagingException если произошла ошибка при отправке письма
+     * @param medications список медикаментов с низким запасом
+     * @return количество записанных уведомлений
      */
-    public void sendEmail(String to, String subject, String text) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+    public int enqueueNotifications(List<PharmacyMedication> medications) {
+        try {
+            Map<Long, List<PharmacyMedication>> medicationsByPharmacy = medications.stream()
+                    .collect(Collectors.groupingBy(pm -> pm.getId().getPharmacyId()));
+            Map<Long, List<Employee>> employeesByPharmacy = employeeRepository
+                    .findByPharmacyIdIn(medicationsByPharmacy.keySet()).stream()
+                    .collect(Collectors.groupingBy(employee -> employee.getPharmacy().getId()));
+
+            LocalDateTime now = LocalDateTime.now();
+            List<NotificationOutbox> notifications = new ArrayList<>();
+            medicationsByPharmacy.forEach((pharmacyId, pharmacyMedications) -> {
+                List<Employee> employees = employeesByPharmacy.getOrDefault(pharmacyId, List.of());
+                if (employees.isEmpty()) {
+                    return;
+                }
 
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(text, true);
+                String text = buildMessage(pharmacyMedications);
+                employees.forEach(employee -> notifications.add(NotificationOutbox.builder()
+                        .recipient(employee.getEmail())
+                        .subject(SUBJECT)
+                        .body(text)
+                        .nextAttemptAt(now)
+                        .createdAt(now)
+                        .build()));
+            });
+            notificationOutboxRepository.saveAll(notifications);
+            return notifications.size();
+        } catch (RuntimeException e) {
+            lowStockTracker.unmarkNotified(medications);
+            throw e;
+        }
+    }
 
-        mailSender.send(message);
-        log.info("Уведомление о низком запасе медикаментов отправлено на адрес {}", to);
+    private String buildMessage(List<PharmacyMedication> pharmacyMedications) {
+        StringBuilder message = new StringBuilder("Следующие медикаменты имеют низкий запас:\n\n");
+        for (PharmacyMedication pm : pharmacyMedications) {
+            message.append("ID: ").append(pm.getMedication().getId())
+                    .append(", Наименование: ").append(pm.getMedication().getName())
+                    .append(", Форма выпуска: ").append(pm.getMedication().getForm().name())
+                    .append(", Цена: ").append(pm.getMedication().getPrice())
+                    .append(", Количество: ").append(pm.getQuantity())
+                    .append("\n");
+        }
+        return message.toString();
     }
 
     private boolean isEmailConfigured() {
@@ -0,0 +1,195 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.bakht.pharmacy.service.event.StockChangedEvent;
+import ru.bakht.pharmacy.service.model.PharmacyMedication;
+import ru.bakht.pharmacy.service.model.PharmacyMedicationId;
+import ru.bakht.pharmacy.service.repository.PharmacyMedicationRepository;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Класс для отслеживания перехода остатков лекарств ниже порогового значения.
+ * Порог позиции задается правилами {@link ru.bakht.pharmacy.service.model.StockThreshold},
+ * а при их отсутствии используется значение по умолчанию.
+ * Изменения остатков накапливаются по позиции аптеки и проверяются одним запросом, когда позиция
+ * не менялась в течение интервала ожидания, но не позже максимальной задержки.
+ * Позиции, о которых уже уведомили, хранятся в Redis, поэтому уведомление отправляется
+ * один раз при переходе порога, а не при каждом изменении остатка, и не дублируется экземплярами сервиса.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LowStockTracker {
+
+    private final PharmacyMedicationRepository pharmacyMedicationRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Map<PharmacyMedicationId, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+
+    @Value("${pharmacy.low-stock.threshold:10}")
+    private int defaultThreshold;
+
+    @Value("${pharmacy.low-stock.debounce:5s}")
+    private Duration debounce;
+
+    @Value("${pharmacy.low-stock.max-delay:1m}")
+    private Duration maxDelay;
+
+    @Value("${pharmacy.low-stock.notified-key:pharmacy-service:low-stock:notified}")
+    private String notifiedKey;
+
+    /**
+     * Запоминает позицию для проверки после фиксации транзакции, изменившей остаток.
+     *
+     * @param event событие изменения остатка
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        long now = System.nanoTime();
+        pendingChanges.merge(new PharmacyMedicationId(event.pharmacyId(), event.medicationId()),
+                new PendingChange(now, now),
+                (previous, current) -> new PendingChange(previous.firstChangeNanos(), now));
+    }
+
+    /**
+     * Проверяет накопленные позиции, изменения которых завершились, и возвращает те,
+     * остаток которых опустился ниже порога после последнего уведомления.
+     *
+     * @return позиции, о которых нужно уведомить сотрудников
+     */
+    public List<PharmacyMedication> drainCrossed() {
+        long now = System.nanoTime();
+        Set<PharmacyMedicationId> ready = new HashSet<>();
+        pendingChanges.forEach((id, change) -> {
+            if (now - change.lastChangeNanos() >= debounce.toNanos()
+                    || now - change.firstChangeNanos() >= maxDelay.toNanos()) {
+                if (pendingChanges.remove(id, change)) {
+                    ready.add(id);
+                }
+            }
+        });
+        if (ready.isEmpty()) {
+            return List.of();
+        }
+
+        Map<PharmacyMedicationId, PharmacyMedication> lowStock = pharmacyMedicationRepository
+                .findBelowThresholdByPharmacyIdsAndMedicationIds(
+                        ready.stream().map(PharmacyMedicationId::getPharmacyId).collect(Collectors.toSet()),
+                        ready.stream().map(PharmacyMedicationId::getMedicationId).collect(Collectors.toSet()),
+                        defaultThreshold)
+                .stream()
+                .filter(pm -> ready.contains(pm.getId()))
+                .collect(Collectors.toMap(PharmacyMedication::getId, Function.identity()));
+
+        List<PharmacyMedication> crossed = new ArrayList<>();
+        List<String> restocked = new ArrayList<>();
+        for (PharmacyMedicationId id : ready) {
+            PharmacyMedication pharmacyMedication = lowStock.get(id);
+            if (pharmacyMedication == null) {
+                restocked.add(member(id));
+            } else if (markNotified(id)) {
+                crossed.add(pharmacyMedication);
+            }
+        }
+        clearNotified(restocked);
+
+        log.debug("Проверено позиций после изменения остатков: {}, ниже порога: {}", ready.size(), crossed.size());
+        return crossed;
+    }
+
+    /**
+     * Сверяет отметки об уведомлениях сегмента аптек со списком позиций сегмента ниже порога,
+     * загруженным одним запросом. Аптека относится к сегменту {@code pharmacyId % shardCount}.
+     * Отметки позиций, которые были пополнены, снимаются, а позиции, о которых еще не уведомляли
+     * (например, измененные в обход сервиса), возвращаются для уведомления.
+     *
+     * @param shard      номер сегмента
+     * @param shardCount количество сегментов
+     * @return позиции, о которых нужно уведомить сотрудников
+     */
+    public List<PharmacyMedication> reconcile(int shard, int shardCount) {
+        Map<String, PharmacyMedication> lowStockByMember = pharmacyMedicationRepository
+                .findBelowThresholdInShard(shard, shardCount, defaultThreshold).stream()
+                .collect(Collectors.toMap(pm -> member(pm.getId()), Function.identity()));
+
+        Set<String> notified = notifiedMembers().stream()
+                .filter(member -> Long.parseLong(member.substring(0, member.indexOf(':'))) % shardCount == shard)
+                .collect(Collectors.toSet());
+        clearNotified(notified.stream()
+                .filter(member -> !lowStockByMember.containsKey(member))
+                .toList());
+
+        List<PharmacyMedication> crossed = new ArrayList<>();
+        lowStockByMember.forEach((member, pharmacyMedication) -> {
+            if (!notified.contains(member) && markNotified(pharmacyMedication.getId())) {
+                crossed.add(pharmacyMedication);
+            }
+        });
+        return crossed;
+    }
+
+    /**
+     * Снимает отметки об уведомлениях, например, если уведомления не удалось записать.
+     *
+     * @param pharmacyMedications позиции, отметки которых нужно снять
+     */
+    public void unmarkNotified(Collection<PharmacyMedication> pharmacyMedications) {
+        clearNotified(pharmacyMedications.stream()
+                .map(pm -> member(pm.getId()))
+                .toList());
+    }
+
+    /**
+     * Отмечает позицию как уведомленную. Если Redis недоступен, позиция считается новой:
+     * повторное уведомление лучше пропущенного.
+     *
+     * @return {@code true}, если отметки еще не было
+     */
+    private boolean markNotified(PharmacyMedicationId id) {
+        try {
+            Long added = stringRedisTemplate.opsForSet().add(notifiedKey, member(id));
+            return added == null || added > 0;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отметить уведомление о низком запасе {}: {}", id, e.getMessage());
+            return true;
+        }
+    }
+
+    private void clearNotified(Collection<String> members) {
+        if (members.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForSet().remove(notifiedKey, members.toArray());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось снять отметки об уведомлениях о низком запасе: {}", e.getMessage());
+        }
+    }
+
+    private Set<String> notifiedMembers() {
+        try {
+            Set<String> members = stringRedisTemplate.opsForSet().members(notifiedKey);
+            return members != null ? members : Set.of();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось получить отметки об уведомлениях о низком запасе: {}", e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private String member(PharmacyMedicationId id) {
+        return id.getPharmacyId() + ":" + id.getMedicationId();
+    }
+
+    private record PendingChange(long firstChangeNanos, long lastChangeNanos) {
+    }
+}
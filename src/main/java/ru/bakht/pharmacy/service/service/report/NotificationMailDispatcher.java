@@ -0,0 +1,207 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Класс для параллельной отправки писем уведомлений.
+ * Каждое письмо отправляется в отдельном виртуальном потоке, а число одновременных соединений
+ * с SMTP-сервером ограничено, поэтому медленный ответ сервера задерживает только одно письмо.
+ * Временные ошибки отправки повторяются с экспоненциальной задержкой.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationMailDispatcher {
+
+    /**
+     * Число ответов SMTP-сервера, которые ожидаются при отправке одного письма: приветствие, EHLO, STARTTLS,
+     * повторный EHLO, AUTH, MAIL FROM, RCPT TO, DATA, окончание письма и QUIT.
+     * Ожидание каждого ответа ограничено таймаутом чтения.
+     */
+    private static final int SMTP_REPLIES = 10;
+
+    private final JavaMailSender mailSender;
+
+    @Value("${pharmacy.notification-mail.max-connections:4}")
+    private int maxConnections;
+
+    @Value("${pharmacy.notification-mail.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${pharmacy.notification-mail.backoff:1s}")
+    private Duration backoff;
+
+    @Value("${spring.mail.properties.mail.smtp.connectiontimeout:0}")
+    private long connectionTimeoutMillis;
+
+    @Value("${spring.mail.properties.mail.smtp.timeout:0}")
+    private long readTimeoutMillis;
+
+    @Value("${spring.mail.properties.mail.smtp.writetimeout:0}")
+    private long writeTimeoutMillis;
+
+    private Semaphore connections;
+
+    @PostConstruct
+    void init() {
+        connections = new Semaphore(maxConnections);
+    }
+
+    /**
+     * Отправляет письма и дожидается окончания всех отправок.
+     *
+     * @param mails письма для отправки
+     * @return идентификаторы отправленных и неотправленных писем
+     */
+    public Summary dispatch(Collection<Mail> mails) {
+        Queue<Long> sent = new ConcurrentLinkedQueue<>();
+        Queue<Long> failed = new ConcurrentLinkedQueue<>();
+        long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Mail mail : mails) {
+                executor.execute(() -> (send(mail) ? sent : failed).add(mail.id()));
+            }
+        }
+
+        Summary summary = new Summary(List.copyOf(sent), List.copyOf(failed),
+                Duration.ofNanos(System.nanoTime() - start));
+        log.info("Отправка уведомлений завершена: отправлено {}, не отправлено {}, время {} мс",
+                summary.sent(), summary.failed(), summary.elapsed().toMillis());
+        return summary;
+    }
+
+    /**
+     * Возвращает число писем, которые отправляются одновременно без ожидания свободного соединения.
+     *
+     * @return максимальное число одновременных соединений с SMTP-сервером
+     */
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Оценивает сверху время отправки одного письма со всеми попытками и задержками между ними,
+     * если письмо не ждет свободного соединения.
+     *
+     * @return наибольшее время отправки письма
+     * @throws IllegalStateException если таймауты SMTP не заданы и время отправки не ограничено
+     */
+    public Duration maxSendTime() {
+        if (connectionTimeoutMillis <= 0 || readTimeoutMillis <= 0 || writeTimeoutMillis <= 0) {
+            throw new IllegalStateException("Таймауты SMTP не заданы, время отправки письма не ограничено");
+        }
+        Duration attempt = Duration.ofMillis(
+                connectionTimeoutMillis + SMTP_REPLIES * readTimeoutMillis + writeTimeoutMillis);
+        // задержки между попытками: backoff, 2 * backoff, ..., 2^(maxAttempts - 2) * backoff
+        Duration delays = backoff.multipliedBy((1L << (maxAttempts - 1)) - 1);
+        return attempt.multipliedBy(maxAttempts).plus(delays);
+    }
+
+    private boolean send(Mail mail) {
+        Duration delay = backoff;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                connections.acquire();
+                try {
+                    mailSender.send(toMimeMessage(mail));
+                } finally {
+                    connections.release();
+                }
+                log.debug("Уведомление отправлено на адрес {}", mail.to());
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Отправка уведомления на адрес {} прервана", mail.to());
+                return false;
+            } catch (MailAuthenticationException | MailParseException | MailPreparationException e) {
+                log.error("Не удалось отправить уведомление на адрес {}: {}", mail.to(), e.getMessage());
+                return false;
+            } catch (MailException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Не удалось отправить уведомление на адрес {} за {} попыток", mail.to(), attempt, e);
+                    return false;
+                }
+                log.warn("Ошибка отправки уведомления на адрес {}, попытка {} из {}: {}",
+                        mail.to(), attempt, maxAttempts, e.getMessage());
+                if (!sleep(delay)) {
+                    return false;
+                }
+                delay = delay.multipliedBy(2);
+            }
+        }
+    }
+
+    private MimeMessage toMimeMessage(Mail mail) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true);
+            helper.setTo(mail.to());
+            helper.setSubject(mail.subject());
+            helper.setText(mail.text(), true);
+            return message;
+        } catch (MessagingException e) {
+            throw new MailPreparationException(e);
+        }
+    }
+
+    private boolean sleep(Duration delay) {
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Письмо уведомления.
+     *
+     * @param id      идентификатор уведомления
+     * @param to      адрес получателя
+     * @param subject тема письма
+     * @param text    текст письма
+     */
+    public record Mail(Long id, String to, String subject, String text) {
+    }
+
+    /**
+     * Итоги отправки писем.
+     *
+     * @param sentIds   идентификаторы отправленных писем
+     * @param failedIds идентификаторы писем, которые не удалось отправить
+     * @param elapsed   время отправки
+     */
+    public record Summary(List<Long> sentIds, List<Long> failedIds, Duration elapsed) {
+
+        public int sent() {
+            return sentIds.size();
+        }
+
+        public int failed() {
+            return failedIds.size();
+        }
+    }
+}
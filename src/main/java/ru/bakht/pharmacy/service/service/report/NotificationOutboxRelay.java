@@ -0,0 +1,128 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bakht.pharmacy.service.model.NotificationOutbox;
+import ru.bakht.pharmacy.service.repository.NotificationOutboxRepository;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Класс для отправки уведомлений из очереди исходящих уведомлений.
+ * Уведомления захватываются пачками в короткой транзакции с пропуском строк, заблокированных другими
+ * экземплярами, поэтому очередь разбирается всеми экземплярами сервиса параллельно.
+ * Захваченная строка арендуется на время отправки: если экземпляр упадет, не отправив письмо,
+ * после окончания аренды уведомление захватит другой экземпляр, так что каждое уведомление
+ * будет отправлено хотя бы один раз.
+ * Захваченная пачка отправляется частями не больше числа соединений с SMTP-сервером, и перед каждой частью
+ * аренда оставшихся уведомлений продлевается. Поэтому аренда должна покрывать только наибольшее время
+ * отправки одного письма, что проверяется при запуске: иначе другой экземпляр мог бы захватить
+ * уведомление во время отправки и отправить его повторно.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationOutboxRelay {
+
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final NotificationMailDispatcher notificationMailDispatcher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${pharmacy.notification-outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${pharmacy.notification-outbox.lease:10m}")
+    private Duration lease;
+
+    @Value("${pharmacy.notification-outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${pharmacy.notification-outbox.backoff:1m}")
+    private Duration backoff;
+
+    @Value("${spring.mail.username}")
+    private String mailUsername;
+
+    private int chunkSize;
+
+    /**
+     * Проверяет, что аренда покрывает наибольшее время отправки части пачки.
+     *
+     * @throws IllegalStateException если аренда короче наибольшего времени отправки письма
+     */
+    @PostConstruct
+    void init() {
+        chunkSize = Math.max(1, notificationMailDispatcher.maxConnections());
+        if (mailUsername == null || mailUsername.isEmpty()) {
+            return;
+        }
+        Duration maxSendTime = notificationMailDispatcher.maxSendTime();
+        if (lease.compareTo(maxSendTime) <= 0) {
+            throw new IllegalStateException(String.format(
+                    "Аренда уведомлений %s не покрывает наибольшее время отправки письма %s: "
+                            + "увеличьте pharmacy.notification-outbox.lease или уменьшите таймауты SMTP",
+                    lease, maxSendTime));
+        }
+    }
+
+    /**
+     * Отправляет готовые уведомления пачками, пока очередь не опустеет.
+     */
+    @Scheduled(fixedDelayString = "${pharmacy.notification-outbox.relay-interval:2s}")
+    public void relay() {
+        if (mailUsername == null || mailUsername.isEmpty()) {
+            return;
+        }
+        try {
+            int claimed;
+            do {
+                claimed = relayBatch();
+            } while (claimed == batchSize);
+        } catch (Exception e) {
+            log.error("Ошибка во время отправки уведомлений из очереди", e);
+        }
+    }
+
+    private int relayBatch() {
+        List<NotificationOutbox> batch = transactionTemplate.execute(status ->
+                notificationOutboxRepository.claimBatch(batchSize, lease.toSeconds()));
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        for (int from = 0; from < batch.size(); from += chunkSize) {
+            if (from > 0) {
+                // аренда первой части установлена при захвате
+                List<Long> remainingIds = batch.subList(from, batch.size()).stream()
+                        .map(NotificationOutbox::getId)
+                        .toList();
+                transactionTemplate.executeWithoutResult(status ->
+                        notificationOutboxRepository.extendLease(remainingIds, lease.toSeconds()));
+            }
+            dispatch(batch.subList(from, Math.min(from + chunkSize, batch.size())));
+        }
+        return batch.size();
+    }
+
+    private void dispatch(List<NotificationOutbox> chunk) {
+        NotificationMailDispatcher.Summary summary = notificationMailDispatcher.dispatch(chunk.stream()
+                .map(notification -> new NotificationMailDispatcher.Mail(notification.getId(),
+                        notification.getRecipient(), notification.getSubject(), notification.getBody()))
+                .toList());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!summary.sentIds().isEmpty()) {
+                notificationOutboxRepository.deleteAllByIdInBatch(summary.sentIds());
+            }
+            if (!summary.failedIds().isEmpty()) {
+                notificationOutboxRepository.reschedule(summary.failedIds(), maxAttempts, backoff.toSeconds());
+            }
+        });
+    }
+}
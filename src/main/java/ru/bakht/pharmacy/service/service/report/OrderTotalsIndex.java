@@ -0,0 +1,249 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.bakht.pharmacy.service.event.OrderTotalsChangedEvent;
+import ru.bakht.pharmacy.service.model.dto.DailyOrderTotalsProjection;
+import ru.bakht.pharmacy.service.model.dto.TotalOrders;
+import ru.bakht.pharmacy.service.repository.OrderDailyTotalRepository;
+import ru.bakht.pharmacy.service.repository.TransactionRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Индекс дневных итогов заказов в памяти для расчета суммы за период за O(log n).
+ * Количество и сумма по дням хранятся в деревьях Фенвика на примитивных массивах.
+ * Индекс заполняется из дневных итогов при старте, обновляется событиями
+ * {@link OrderTotalsChangedEvent} после фиксации транзакции и периодически сверяется с БД,
+ * что также подхватывает изменения, сделанные другими экземплярами сервиса.
+ * Согласованность деревьев с событиями, пришедшими во время перестроения, обеспечивает {@link SnapshotIndex}.
+ */
+@Component
+public class OrderTotalsIndex extends SnapshotIndex<OrderTotalsChangedEvent, OrderTotalsIndex.DailyTotalsTree> {
+
+    private final OrderDailyTotalRepository orderDailyTotalRepository;
+
+    public OrderTotalsIndex(OrderDailyTotalRepository orderDailyTotalRepository,
+                            TransactionRepository transactionRepository,
+                            PlatformTransactionManager transactionManager) {
+        super("итогов заказов", transactionRepository, transactionManager);
+        this.orderDailyTotalRepository = orderDailyTotalRepository;
+    }
+
+    /**
+     * Возвращает общее количество и сумму заказов за период.
+     *
+     * @param startDate начальная дата периода
+     * @param endDate конечная дата периода
+     * @return итоги за период или пустое значение, если индекс еще не заполнен
+     *         или период затрагивает заказы с датами вне окна индекса
+     */
+    public Optional<TotalOrders> findTotals(LocalDate startDate, LocalDate endDate) {
+        return read(tree -> tree != null
+                ? Optional.ofNullable(tree.sum(startDate.toEpochDay(), endDate.toEpochDay()))
+                : Optional.empty());
+    }
+
+    /**
+     * Применяет изменение дневных итогов после фиксации транзакции заказа.
+     *
+     * @param event изменение итогов за день
+     */
+    @TransactionalEventListener
+    public void onOrderTotalsChanged(OrderTotalsChangedEvent event) {
+        onEvent(event);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        reconcile();
+    }
+
+    /**
+     * Перестраивает индекс по дневным итогам из БД.
+     */
+    @Scheduled(fixedDelayString = "${pharmacy.order-totals-index.reconcile-interval:1m}",
+            initialDelayString = "${pharmacy.order-totals-index.reconcile-interval:1m}")
+    public void reconcile() {
+        rebuildFromSnapshot();
+    }
+
+    @Override
+    protected DailyTotalsTree load() {
+        return DailyTotalsTree.of(orderDailyTotalRepository.findDailyTotals());
+    }
+
+    @Override
+    protected void apply(DailyTotalsTree tree, OrderTotalsChangedEvent event) {
+        tree.add(event.orderDate().toEpochDay(), event.quantity(), event.amount());
+    }
+
+    @Override
+    protected long transactionIdOf(OrderTotalsChangedEvent event) {
+        return event.transactionId();
+    }
+
+    /**
+     * Деревья Фенвика по количеству и сумме заказов за дни, начиная с {@code baseDay}.
+     * Значения по дням хранятся отдельно, чтобы при выходе даты за границы диапазона
+     * деревья перестраивались за O(n).
+     * Деревья покрывают только окно от {@value #PAST_YEARS} лет назад до {@value #FUTURE_YEARS} лет вперед,
+     * поэтому ошибочная дата заказа не раздувает массивы. Заказы вне окна не учитываются, а итоги
+     * за период, затрагивающий такие заказы, не возвращаются, и отчет читает их из БД.
+     */
+    static final class DailyTotalsTree {
+
+        private static final int MIN_CAPACITY = 64;
+
+        private static final int PAST_YEARS = 100;
+
+        private static final int FUTURE_YEARS = 10;
+
+        private final long windowStart;
+        private final long windowEnd;
+        private boolean outliersBefore;
+        private boolean outliersAfter;
+
+        private long baseDay;
+        private long[] dayQuantities;
+        private double[] dayAmounts;
+        private long[] quantityTree;
+        private double[] amountTree;
+
+        private DailyTotalsTree(long windowStart, long windowEnd, long baseDay, int capacity) {
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            this.baseDay = baseDay;
+            this.dayQuantities = new long[capacity];
+            this.dayAmounts = new double[capacity];
+        }
+
+        static DailyTotalsTree of(List<DailyOrderTotalsProjection> dailyTotals) {
+            LocalDate today = LocalDate.now();
+            long windowStart = today.minusYears(PAST_YEARS).toEpochDay();
+            long windowEnd = today.plusYears(FUTURE_YEARS).toEpochDay();
+
+            long firstDay = today.toEpochDay();
+            long lastDay = firstDay;
+            for (DailyOrderTotalsProjection total : dailyTotals) {
+                long day = total.getOrderDate().toEpochDay();
+                if (day >= windowStart && day <= windowEnd) {
+                    firstDay = Math.min(firstDay, day);
+                    lastDay = Math.max(lastDay, day);
+                }
+            }
+
+            DailyTotalsTree tree = new DailyTotalsTree(windowStart, windowEnd, firstDay,
+                    capacityFor(lastDay - firstDay + 1));
+            for (DailyOrderTotalsProjection total : dailyTotals) {
+                long day = total.getOrderDate().toEpochDay();
+                if (!tree.inWindow(day)) {
+                    continue;
+                }
+                int index = (int) (day - firstDay);
+                tree.dayQuantities[index] = total.getTotalQuantity() != null ? total.getTotalQuantity() : 0L;
+                tree.dayAmounts[index] = total.getTotalAmount() != null ? total.getTotalAmount() : 0.0;
+            }
+            tree.build();
+            return tree;
+        }
+
+        void add(long day, long quantity, double amount) {
+            if (!inWindow(day)) {
+                return;
+            }
+            ensureRange(day);
+            int index = (int) (day - baseDay);
+            dayQuantities[index] += quantity;
+            dayAmounts[index] += amount;
+            for (int i = index + 1; i < quantityTree.length; i += i & -i) {
+                quantityTree[i] += quantity;
+                amountTree[i] += amount;
+            }
+        }
+
+        /**
+         * Возвращает итоги за период или {@code null}, если период затрагивает заказы вне окна.
+         */
+        TotalOrders sum(long fromDay, long toDay) {
+            if (fromDay < windowStart && outliersBefore || toDay > windowEnd && outliersAfter) {
+                return null;
+            }
+            long from = Math.max(fromDay, baseDay);
+            long to = Math.min(toDay, baseDay + dayQuantities.length - 1);
+            if (from > to) {
+                return new TotalOrders(0, 0.0);
+            }
+
+            long quantity = 0;
+            double amount = 0;
+            for (int i = (int) (to - baseDay) + 1; i > 0; i -= i & -i) {
+                quantity += quantityTree[i];
+                amount += amountTree[i];
+            }
+            for (int i = (int) (from - baseDay); i > 0; i -= i & -i) {
+                quantity -= quantityTree[i];
+                amount -= amountTree[i];
+            }
+            return new TotalOrders((int) quantity, amount);
+        }
+
+        private boolean inWindow(long day) {
+            if (day < windowStart) {
+                outliersBefore = true;
+                return false;
+            }
+            if (day > windowEnd) {
+                outliersAfter = true;
+                return false;
+            }
+            return true;
+        }
+
+        private void ensureRange(long day) {
+            long lastDay = baseDay + dayQuantities.length - 1;
+            if (day >= baseDay && day <= lastDay) {
+                return;
+            }
+
+            long newBaseDay = Math.min(baseDay, day);
+            int capacity = capacityFor(Math.max(lastDay, day) - newBaseDay + 1);
+            int offset = (int) (baseDay - newBaseDay);
+
+            long[] quantities = new long[capacity];
+            double[] amounts = new double[capacity];
+            System.arraycopy(dayQuantities, 0, quantities, offset, dayQuantities.length);
+            System.arraycopy(dayAmounts, 0, amounts, offset, dayAmounts.length);
+
+            baseDay = newBaseDay;
+            dayQuantities = quantities;
+            dayAmounts = amounts;
+            build();
+        }
+
+        private void build() {
+            int length = dayQuantities.length + 1;
+            quantityTree = new long[length];
+            amountTree = new double[length];
+            for (int i = 1; i < length; i++) {
+                quantityTree[i] += dayQuantities[i - 1];
+                amountTree[i] += dayAmounts[i - 1];
+                int parent = i + (i & -i);
+                if (parent < length) {
+                    quantityTree[parent] += quantityTree[i];
+                    amountTree[parent] += amountTree[i];
+                }
+            }
+        }
+
+        private static int capacityFor(long days) {
+            return (int) Math.max(MIN_CAPACITY, Long.highestOneBit(days - 1) << 1);
+        }
+    }
+}
@@ -1,132 +1,220 @@
 package ru.bakht.pharmacy.service.service.report;
 
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
 import com.itextpdf.io.font.PdfEncodings;
 import com.itextpdf.kernel.font.PdfFont;
 import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.font.PdfFontFactory.EmbeddingStrategy;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdownRow;
 import ru.bakht.pharmacy.service.model.dto.TotalOrders;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
+/**
+ * Реализация интерфейса {@link ReportGenerator} для генерации PDF-отчетов.
+ * Шрифт разбирается один раз и переиспользуется всеми документами, а таблицы отчетов
+ * по спискам строятся в режиме большой таблицы и сбрасываются в документ порциями.
+ */
 @Slf4j
 @Service
 public class PdfReportService implements ReportGenerator {
 
     private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    private static final int TABLE_FLUSH_INTERVAL = 100;
+
+    @Value("${pharmacy.report.pdf.font-path:static/arial-unicode-ms.ttf}")
+    private String fontPath;
+
+    private volatile FontProgram fontProgram;
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public byte[] generateMedicationsReport(List<MedicationDto> medications) throws IOException {
+    public void writeMedicationsReport(List<MedicationDto> medications, OutputStream outputStream) throws IOException {
         log.info("Генерация PDF-отчета по лекарствам с {} записями", medications.size());
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        PdfWriter writer = new PdfWriter(outputStream);
-        PdfDocument pdfDoc = new PdfDocument(writer);
-        Document document = new Document(pdfDoc);
-        PdfFont font = PdfFontFactory.createFont("static/arial-unicode-ms.ttf", PdfEncodings.IDENTITY_H);
-
-        document.add(new Paragraph("Отчет по лекарствам").setFont(font));
-        Table table = new Table(new float[]{1, 3, 2, 2, 3});
-        table.addHeaderCell(new Paragraph("ID").setFont(font));
-        table.addHeaderCell(new Paragraph("Наименование").setFont(font));
-        table.addHeaderCell(new Paragraph("Форма").setFont(font));
-        table.addHeaderCell(new Paragraph("Цена").setFont(font));
-        table.addHeaderCell(new Paragraph("Дата истечения срока").setFont(font));
-
-        for (MedicationDto medication : medications) {
-            table.addCell(new Paragraph(medication.getId().toString()).setFont(font));
-            table.addCell(new Paragraph(medication.getName()).setFont(font));
-            table.addCell(new Paragraph(medication.getForm().name()).setFont(font));
-            table.addCell(new Paragraph(medication.getPrice().toString()).setFont(font));
-            table.addCell(new Paragraph(dateFormat.format(medication.getExpirationDate())).setFont(font));
+        try (Document document = createDocument(outputStream)) {
+            document.add(new Paragraph("Отчет по лекарствам"));
+            Table table = new Table(new float[]{1, 3, 2, 2, 3}, true);
+            table.addHeaderCell(new Paragraph("ID"));
+            table.addHeaderCell(new Paragraph("Наименование"));
+            table.addHeaderCell(new Paragraph("Форма"));
+            table.addHeaderCell(new Paragraph("Цена"));
+            table.addHeaderCell(new Paragraph("Дата истечения срока"));
+            document.add(table);
+
+            int rowNum = 0;
+            for (MedicationDto medication : medications) {
+                table.addCell(new Paragraph(medication.getId().toString()));
+                table.addCell(new Paragraph(medication.getName()));
+                table.addCell(new Paragraph(medication.getForm().name()));
+                table.addCell(new Paragraph(medication.getPrice().toString()));
+                table.addCell(new Paragraph(dateFormat.format(medication.getExpirationDate())));
+                flushIfNeeded(table, ++rowNum);
+            }
+
+            table.complete();
         }
 
-        document.add(table);
-        document.close();
-
         log.info("PDF-отчет по лекарствам успешно сгенерирован");
-
-        return outputStream.toByteArray();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public byte[] generateOrdersReport(List<OrderDto> orders) throws IOException {
+    public void writeOrdersReport(List<OrderDto> orders, OutputStream outputStream) throws IOException {
         log.info("Генерация PDF-отчета по заказам с {} записями", orders.size());
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        PdfWriter writer = new PdfWriter(outputStream);
-        PdfDocument pdfDoc = new PdfDocument(writer);
-        Document document = new Document(pdfDoc);
-        PdfFont font = PdfFontFactory.createFont("static/arial-unicode-ms.ttf", PdfEncodings.IDENTITY_H);
-
-        document.add(new Paragraph("Отчет по заказам").setFont(font));
-        Table table = new Table(new float[]{1, 3, 2, 2, 3, 2});
-        table.addHeaderCell(new Paragraph("ID").setFont(font));
-        table.addHeaderCell(new Paragraph("Названия").setFont(font));
-        table.addHeaderCell(new Paragraph("Количество").setFont(font));
-        table.addHeaderCell(new Paragraph("Общая сумма").setFont(font));
-        table.addHeaderCell(new Paragraph("Дата заказа").setFont(font));
-        table.addHeaderCell(new Paragraph("Статус").setFont(font));
-
-        for (OrderDto order : orders) {
-            table.addCell(new Paragraph(order.getId().toString()).setFont(font));
-            table.addCell(new Paragraph(order.getMedication().getName()).setFont(font));
-            table.addCell(new Paragraph(order.getQuantity().toString()).setFont(font));
-            table.addCell(new Paragraph(order.getTotalAmount().toString()).setFont(font));
-            table.addCell(new Paragraph(dateFormat.format(order.getOrderDate())).setFont(font));
-            table.addCell(new Paragraph(order.getOrderStatus().name()).setFont(font));
+        try (Document document = createDocument(outputStream)) {
+            document.add(new Paragraph("Отчет по заказам"));
+            Table table = new Table(new float[]{1, 3, 2, 2, 3, 2}, true);
+            table.addHeaderCell(new Paragraph("ID"));
+            table.addHeaderCell(new Paragraph("Названия"));
+            table.addHeaderCell(new Paragraph("Количество"));
+            table.addHeaderCell(new Paragraph("Общая сумма"));
+            table.addHeaderCell(new Paragraph("Дата заказа"));
+            table.addHeaderCell(new Paragraph("Статус"));
+            document.add(table);
+
+            int rowNum = 0;
+            for (OrderDto order : orders) {
+                table.addCell(new Paragraph(order.getId().toString()));
+                table.addCell(new Paragraph(order.getMedication().getName()));
+                table.addCell(new Paragraph(order.getQuantity().toString()));
+                table.addCell(new Paragraph(order.getTotalAmount().toString()));
+                table.addCell(new Paragraph(dateFormat.format(order.getOrderDate())));
+                table.addCell(new Paragraph(order.getOrderStatus().name()));
+                flushIfNeeded(table, ++rowNum);
+            }
+
+            table.complete();
         }
 
-        document.add(table);
-        document.close();
-
         log.info("PDF-отчет по заказам успешно сгенерирован");
-
-        return outputStream.toByteArray();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public byte[] generateTotalOrdersReport(TotalOrders totalOrders) throws IOException {
+    public void writeTotalOrdersReport(TotalOrders totalOrders, OutputStream outputStream) throws IOException {
         log.info("Генерация PDF-отчета по общему числу заказов");
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        PdfWriter writer = new PdfWriter(outputStream);
-        PdfDocument pdfDoc = new PdfDocument(writer);
-        Document document = new Document(pdfDoc);
-        PdfFont font = PdfFontFactory.createFont("static/arial-unicode-ms.ttf", PdfEncodings.IDENTITY_H);
-
-        document.add(new Paragraph("Отчет по общему числу заказов").setFont(font));
-        Table table = new Table(new float[]{2, 2});
-        table.addHeaderCell(new Paragraph("Общее количество").setFont(font));
-        table.addHeaderCell(new Paragraph("Общая сумма").setFont(font));
+        try (Document document = createDocument(outputStream)) {
+            document.add(new Paragraph("Отчет по общему числу заказов"));
+            Table table = new Table(new float[]{2, 2});
+            table.addHeaderCell(new Paragraph("Общее количество"));
+            table.addHeaderCell(new Paragraph("Общая сумма"));
 
-        table.addCell(new Paragraph(totalOrders.getTotalQuantity().toString()).setFont(font));
-        table.addCell(new Paragraph(totalOrders.getTotalAmount().toString()).setFont(font));
+            table.addCell(new Paragraph(totalOrders.getTotalQuantity().toString()));
+            table.addCell(new Paragraph(totalOrders.getTotalAmount().toString()));
 
-        document.add(table);
-        document.close();
+            document.add(table);
+        }
 
         log.info("PDF-отчет по общему числу заказов успешно сгенерирован");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeSalesBreakdownReport(SalesBreakdown salesBreakdown, OutputStream outputStream) throws IOException {
+        log.info("Генерация PDF-отчета по разрезам продаж с {} записями", salesBreakdown.getRows().size());
+
+        try (Document document = createDocument(outputStream)) {
+            document.add(new Paragraph("Отчет по продажам с " + dateFormat.format(salesBreakdown.getStartDate())
+                    + " по " + dateFormat.format(salesBreakdown.getEndDate())));
+            Table table = new Table(new float[]{2, 2, 3, 2, 2, 2}, true);
+            table.addHeaderCell(new Paragraph("Разрез"));
+            table.addHeaderCell(new Paragraph("Значение"));
+            table.addHeaderCell(new Paragraph("Наименование"));
+            table.addHeaderCell(new Paragraph("Количество заказов"));
+            table.addHeaderCell(new Paragraph("Количество"));
+            table.addHeaderCell(new Paragraph("Общая сумма"));
+            document.add(table);
+
+            int rowNum = 0;
+            for (SalesBreakdownRow row : salesBreakdown.getRows()) {
+                table.addCell(new Paragraph(row.getDimension().name()));
+                table.addCell(new Paragraph(row.getKey()));
+                table.addCell(new Paragraph(row.getLabel() != null ? row.getLabel() : ""));
+                table.addCell(new Paragraph(row.getOrderCount().toString()));
+                table.addCell(new Paragraph(row.getTotalQuantity().toString()));
+                table.addCell(new Paragraph(row.getTotalAmount().toString()));
+                flushIfNeeded(table, ++rowNum);
+            }
+
+            table.complete();
+        }
+
+        log.info("PDF-отчет по разрезам продаж успешно сгенерирован");
+    }
+
+    /**
+     * Создает документ, который пишет в поток, не закрывая его, и использует общий шрифт отчетов.
+     *
+     * @param outputStream поток для записи PDF
+     * @return документ с установленным шрифтом
+     * @throws IOException если не удалось загрузить шрифт
+     */
+    private Document createDocument(OutputStream outputStream) throws IOException {
+        PdfWriter writer = new PdfWriter(outputStream);
+        writer.setCloseStream(false);
+        Document document = new Document(new PdfDocument(writer));
+        document.setFont(createFont());
+        return document;
+    }
 
-        return outputStream.toByteArray();
+    /**
+     * Создает шрифт для нового документа. {@link PdfFont} привязан к документу и не может
+     * использоваться повторно, поэтому переиспользуется только разобранный {@link FontProgram}.
+     *
+     * @return шрифт для одного документа
+     * @throws IOException если не удалось прочитать файл шрифта
+     */
+    private PdfFont createFont() throws IOException {
+        FontProgram program = fontProgram;
+        if (program == null) {
+            synchronized (this) {
+                program = fontProgram;
+                if (program == null) {
+                    log.info("Загрузка шрифта отчетов {}", fontPath);
+                    program = FontProgramFactory.createFont(fontPath);
+                    fontProgram = program;
+                }
+            }
+        }
+        return PdfFontFactory.createFont(program, PdfEncodings.IDENTITY_H, EmbeddingStrategy.PREFER_EMBEDDED);
+    }
+
+    /**
+     * Сбрасывает накопленные строки большой таблицы в документ.
+     *
+     * @param table таблица в режиме большой таблицы
+     * @param rowNum количество добавленных строк
+     */
+    private void flushIfNeeded(Table table, int rowNum) {
+        if (rowNum % TABLE_FLUSH_INTERVAL == 0) {
+            table.flush();
+        }
     }
 }
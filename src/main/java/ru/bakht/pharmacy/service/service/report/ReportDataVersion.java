@@ -0,0 +1,106 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.bakht.pharmacy.service.event.ReportDataChangedEvent;
+
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версия данных отчетов, общая для всех экземпляров сервиса и хранящаяся в Redis.
+ * Версия увеличивается после фиксации каждой транзакции, изменившей заказы, остатки или лекарства,
+ * поэтому закэшированные отчеты прежних версий больше не используются.
+ * <p>
+ * Если увеличить версию не удалось, увеличение остается незавершенным и повторяется по расписанию
+ * и при каждом запросе версии, пока не выполнится. До этого кэш отчетов на этом экземпляре не используется,
+ * а другие экземпляры, которым Redis доступен, могут отдавать отчеты прежней версии
+ * до первого успешного повтора (не дольше {@code pharmacy.report-cache.version-retry-interval},
+ * если Redis доступен и этому экземпляру).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportDataVersion {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${pharmacy.report-cache.version-key:pharmacy-service:report-data-version}")
+    private String versionKey;
+
+    /**
+     * Количество неудачных попыток увеличить версию.
+     */
+    private final AtomicLong failedBumps = new AtomicLong();
+
+    /**
+     * Количество неудачных попыток, покрытых последующим успешным увеличением версии.
+     * Увеличение покрывает только неудачи, случившиеся до его начала: их транзакции
+     * зафиксированы раньше, чем версия была увеличена.
+     */
+    private final AtomicLong coveredBumps = new AtomicLong();
+
+    /**
+     * Возвращает текущую версию данных. Если есть незавершенное увеличение версии, сначала повторяет его.
+     *
+     * @return версия данных или пустое значение, если она недоступна
+     */
+    public OptionalLong current() {
+        if (hasMissedBump() && !increment()) {
+            return OptionalLong.empty();
+        }
+        try {
+            String version = stringRedisTemplate.opsForValue().get(versionKey);
+            return OptionalLong.of(version != null ? Long.parseLong(version) : 0L);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось получить версию данных отчетов: {}", e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Увеличивает версию данных после фиксации транзакции, изменившей данные отчетов.
+     *
+     * @param event событие изменения данных
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReportDataChanged(ReportDataChangedEvent event) {
+        if (increment()) {
+            log.debug("Версия данных отчетов увеличена после изменения {} {}", event.entityName(), event.entityId());
+        }
+    }
+
+    /**
+     * Повторяет незавершенное увеличение версии, чтобы другие экземпляры перестали использовать
+     * отчеты прежней версии, даже если на этом экземпляре версия больше не запрашивается.
+     */
+    @Scheduled(fixedDelayString = "${pharmacy.report-cache.version-retry-interval:5s}")
+    public void retryMissedBump() {
+        if (hasMissedBump() && increment()) {
+            log.info("Незавершенное увеличение версии данных отчетов выполнено, кэш отчетов снова используется");
+        }
+    }
+
+    private boolean hasMissedBump() {
+        return failedBumps.get() > coveredBumps.get();
+    }
+
+    private boolean increment() {
+        long failedBefore = failedBumps.get();
+        try {
+            stringRedisTemplate.opsForValue().increment(versionKey);
+            coveredBumps.accumulateAndGet(failedBefore, Math::max);
+            return true;
+        } catch (RuntimeException e) {
+            failedBumps.incrementAndGet();
+            log.warn("Не удалось увеличить версию данных отчетов, кэш отчетов отключен до повтора: {}",
+                    e.getMessage());
+            return false;
+        }
+    }
+}
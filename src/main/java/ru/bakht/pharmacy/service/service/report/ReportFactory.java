@@ -10,11 +10,14 @@ public class ReportFactory {
 
     private final ExcelReportService excelReportService;
     private final PdfReportService pdfReportService;
+    private final CsvReportService csvReportService;
 
     public ReportGenerator getReportGenerator(FileFormat fileFormat) {
         return switch (fileFormat) {
             case EXCEL -> excelReportService;
             case PDF -> pdfReportService;
+            case CSV -> csvReportService;
+            case CSV_GZIP -> new GzipReportGenerator(csvReportService);
         };
     }
 }
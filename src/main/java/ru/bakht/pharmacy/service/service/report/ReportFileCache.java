@@ -0,0 +1,157 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.bakht.pharmacy.service.enums.FileFormat;
+import ru.bakht.pharmacy.service.enums.ReportType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш сформированных файлов отчетов в Redis.
+ * Ключ включает тип отчета, формат, параметры и {@link ReportDataVersion версию данных},
+ * поэтому после изменения данных прежние файлы перестают находиться и удаляются по TTL.
+ * Отчет при промахе пишется в ответ потоково и одновременно копируется в буфер;
+ * файлы больше заданного размера не кэшируются.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportFileCache {
+
+    private final RedisTemplate<String, byte[]> reportFileRedisTemplate;
+    private final ReportDataVersion reportDataVersion;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${pharmacy.report-cache.key-prefix:pharmacy-service:report:}")
+    private String keyPrefix;
+
+    @Value("${pharmacy.report-cache.ttl:1h}")
+    private Duration ttl;
+
+    @Value("${pharmacy.report-cache.max-size:5MB}")
+    private DataSize maxSize;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    void registerMetrics() {
+        hitCounter = meterRegistry.counter("report.file.cache", "result", "hit");
+        missCounter = meterRegistry.counter("report.file.cache", "result", "miss");
+    }
+
+    /**
+     * Возвращает отчет из кэша или формирует его и сохраняет в кэш.
+     *
+     * @param reportType тип отчета
+     * @param fileFormat формат файла
+     * @param parameters параметры отчета в виде строки, однозначно определяющей его содержимое
+     * @param report поставщик отчета, вызываемый только при промахе
+     * @return тело ответа с файлом отчета
+     */
+    public StreamingResponseBody getOrGenerate(ReportType reportType, FileFormat fileFormat, String parameters,
+                                               Supplier<StreamingResponseBody> report) {
+        OptionalLong version = reportDataVersion.current();
+        if (version.isEmpty()) {
+            return report.get();
+        }
+
+        String key = keyPrefix + version.getAsLong() + ":" + reportType + ":" + fileFormat + ":" + parameters;
+        byte[] cached = find(key);
+        if (cached != null) {
+            hitCounter.increment();
+            log.debug("Отчет {} получен из кэша", key);
+            return outputStream -> outputStream.write(cached);
+        }
+
+        missCounter.increment();
+        StreamingResponseBody body = report.get();
+        return outputStream -> {
+            CopyingOutputStream copying = new CopyingOutputStream(outputStream, maxSize.toBytes());
+            body.writeTo(copying);
+            byte[] bytes = copying.toByteArray();
+            if (bytes != null) {
+                store(key, bytes);
+            }
+        };
+    }
+
+    private byte[] find(String key) {
+        try {
+            return reportFileRedisTemplate.opsForValue().get(key);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось прочитать отчет {} из кэша: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, byte[] bytes) {
+        try {
+            reportFileRedisTemplate.opsForValue().set(key, bytes, ttl);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сохранить отчет {} в кэш: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Поток, который пишет данные в ответ и копирует их в буфер, пока размер не превысит лимит.
+     */
+    private static final class CopyingOutputStream extends OutputStream {
+
+        private final OutputStream target;
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private CopyingOutputStream(OutputStream target, long limit) {
+            this.target = target;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            if (copy != null && reserve(1)) {
+                copy.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            if (copy != null && reserve(len)) {
+                copy.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        private boolean reserve(int len) {
+            if (copy.size() + (long) len > limit) {
+                copy = null;
+                return false;
+            }
+            return true;
+        }
+
+        private byte[] toByteArray() {
+            return copy != null ? copy.toByteArray() : null;
+        }
+    }
+}
@@ -2,16 +2,69 @@ package ru.bakht.pharmacy.service.service.report;
 
 import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
 import ru.bakht.pharmacy.service.model.dto.TotalOrders;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
- * Интерфейс для генерации отчетов в формате Excel/PDF.
+ * Интерфейс для генерации отчетов в формате Excel/PDF/CSV.
+ * Отчеты записываются непосредственно в переданный поток, который реализация не закрывает.
  */
 public interface ReportGenerator {
 
+    /**
+     * Записывает отчет по медикаментам в поток.
+     *
+     * @param medications список медикаментов для включения в отчет
+     * @param outputStream поток, в который записывается Excel/PDF файл
+     * @throws IOException если произошла ошибка ввода-вывода при создании отчета
+     */
+    void writeMedicationsReport(List<MedicationDto> medications, OutputStream outputStream) throws IOException;
+
+    /**
+     * Записывает отчет по заказам в поток.
+     *
+     * @param orders список заказов для включения в отчет
+     * @param outputStream поток, в который записывается Excel/PDF файл
+     * @throws IOException если произошла ошибка ввода-вывода при создании отчета
+     */
+    void writeOrdersReport(List<OrderDto> orders, OutputStream outputStream) throws IOException;
+
+    /**
+     * Записывает отчет по заказам, читаемым из потока. По умолчанию заказы собираются в список;
+     * реализации, которым не нужен весь набор данных сразу, записывают строки по мере чтения.
+     *
+     * @param orders поток заказов для включения в отчет
+     * @param outputStream поток, в который записывается файл отчета
+     * @throws IOException если произошла ошибка ввода-вывода при создании отчета
+     */
+    default void writeOrdersReport(Stream<OrderDto> orders, OutputStream outputStream) throws IOException {
+        writeOrdersReport(orders.toList(), outputStream);
+    }
+
+    /**
+     * Записывает отчет по общему количеству и сумме заказов в поток.
+     *
+     * @param totalOrders объект, содержащий общее количество и сумму заказов
+     * @param outputStream поток, в который записывается Excel/PDF файл
+     * @throws IOException если произошла ошибка ввода-вывода при создании отчета
+     */
+    void writeTotalOrdersReport(TotalOrders totalOrders, OutputStream outputStream) throws IOException;
+
+    /**
+     * Записывает отчет по разрезам продаж за период в поток.
+     *
+     * @param salesBreakdown итоги заказов по аптекам, медикаментам, сотрудникам, статусам и периодам
+     * @param outputStream поток, в который записывается файл отчета
+     * @throws IOException если произошла ошибка ввода-вывода при создании отчета
+     */
+    void writeSalesBreakdownReport(SalesBreakdown salesBreakdown, OutputStream outputStream) throws IOException;
+
     /**
      * Генерирует отчет по медикаментам.
      *
@@ -19,7 +72,11 @@ public interface ReportGenerator {
      * @return байтовый массив, представляющий Excel/PDF файл
      * @throws IOException если произошла ошибка ввода-вывода при создании отчета
      */
-    byte[] generateMedicationsReport(List<MedicationDto> medications) throws IOException;
+    default byte[] generateMedicationsReport(List<MedicationDto> medications) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeMedicationsReport(medications, outputStream);
+        return outputStream.toByteArray();
+    }
 
     /**
      * Генерирует отчет по заказам.
@@ -28,7 +85,11 @@ public interface ReportGenerator {
      * @return байтовый массив, представляющий Excel/PDF файл
      * @throws IOException если произошла ошибка ввода-вывода при создании отчета
      */
-    byte[] generateOrdersReport(List<OrderDto> orders) throws IOException;
+    default byte[] generateOrdersReport(List<OrderDto> orders) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeOrdersReport(orders, outputStream);
+        return outputStream.toByteArray();
+    }
 
     /**
      * Генерирует отчет по общему количеству и сумме заказов.
@@ -37,5 +98,9 @@ public interface ReportGenerator {
      * @return байтовый массив, представляющий Excel/PDF файл
      * @throws IOException если произошла ошибка ввода-вывода при создании отчета
      */
-    byte[] generateTotalOrdersReport(TotalOrders totalOrders) throws IOException;
+    default byte[] generateTotalOrdersReport(TotalOrders totalOrders) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeTotalOrdersReport(totalOrders, outputStream);
+        return outputStream.toByteArray();
+    }
 }
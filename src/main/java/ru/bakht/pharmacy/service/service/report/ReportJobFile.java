@@ -0,0 +1,13 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import java.nio.file.Path;
+
+/**
+ * Готовый файл отчета, сформированного в фоне.
+ *
+ * @param path путь к файлу в каталоге отчетов
+ * @param size размер файла в байтах
+ * @param fileName имя файла для скачивания
+ */
+public record ReportJobFile(Path path, long size, String fileName) {
+}
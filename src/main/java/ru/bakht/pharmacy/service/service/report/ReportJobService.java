@@ -0,0 +1,277 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.bakht.pharmacy.service.enums.FileFormat;
+import ru.bakht.pharmacy.service.enums.ReportJobStatus;
+import ru.bakht.pharmacy.service.enums.ReportType;
+import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
+import ru.bakht.pharmacy.service.model.dto.ReportJobDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Класс для фонового формирования отчетов.
+ * Задания выполняются ограниченным пулом потоков и записывают результат во временный файл
+ * в каталоге отчетов; готовые и завершившиеся ошибкой задания удаляются по истечении TTL,
+ * но не раньше, чем завершатся начатые скачивания файла.
+ * Задания хранятся в памяти экземпляра сервиса, поэтому статус и файл доступны только на нем.
+ */
+@Slf4j
+@Service
+public class ReportJobService {
+
+    private static final String PART_SUFFIX = ".part";
+
+    private final Map<UUID, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${pharmacy.report-jobs.threads:2}")
+    private int threads;
+
+    @Value("${pharmacy.report-jobs.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${pharmacy.report-jobs.spool-dir:${java.io.tmpdir}/pharmacy-reports}")
+    private Path spoolDir;
+
+    @Value("${pharmacy.report-jobs.ttl:1h}")
+    private Duration ttl;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(spoolDir);
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            files.forEach(this::deleteQuietly);
+        }
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("report-job-"));
+        log.info("Каталог фоновых отчетов: {}", spoolDir);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ставит формирование отчета в очередь.
+     *
+     * @param reportType тип отчета
+     * @param fileFormat формат файла
+     * @param fileName имя файла для скачивания без расширения
+     * @param report поставщик отчета; вызывается в фоновом потоке, поэтому загрузка данных
+     *               не занимает поток обработки запроса
+     * @return состояние созданного задания
+     * @throws RejectedExecutionException если очередь заданий заполнена
+     */
+    public ReportJobDto submit(ReportType reportType, FileFormat fileFormat, String fileName,
+                               Supplier<StreamingResponseBody> report) {
+        ReportJob job = new ReportJob(UUID.randomUUID(), reportType, fileFormat, fileName + fileFormat.getExtension());
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, report));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new RejectedExecutionException("Очередь формирования отчетов заполнена, повторите запрос позже");
+        }
+
+        log.info("Задание {} на формирование отчета {} в формате {} поставлено в очередь",
+                job.id, reportType, fileFormat);
+        return job.toDto();
+    }
+
+    /**
+     * Возвращает состояние задания.
+     *
+     * @param id идентификатор задания
+     * @return состояние задания
+     * @throws EntityNotFoundException если задание не найдено или уже удалено
+     */
+    public ReportJobDto getJob(UUID id) {
+        return findJob(id).toDto();
+    }
+
+    /**
+     * Возвращает файл готового отчета.
+     *
+     * @param id идентификатор задания
+     * @return файл отчета
+     * @throws EntityNotFoundException если задание не найдено или уже удалено
+     * @throws IllegalStateException если отчет еще не сформирован или формирование завершилось ошибкой
+     */
+    public ReportJobFile getFile(UUID id) {
+        ReportJob job = findJob(id);
+        if (job.status != ReportJobStatus.COMPLETED) {
+            throw new IllegalStateException(String.format("Отчет %s не готов, статус: %s", id, job.status));
+        }
+        return new ReportJobFile(job.file, job.size, job.fileName);
+    }
+
+    /**
+     * Передает часть файла готового отчета в поток ответа.
+     * Пока передача не завершена, файл не удаляется при очистке, даже если срок хранения задания истек.
+     *
+     * @param id идентификатор задания
+     * @param position смещение первого передаваемого байта
+     * @param count количество передаваемых байтов
+     * @param outputStream поток ответа
+     * @throws EntityNotFoundException если задание не найдено или уже удалено
+     * @throws IOException если файл отчета не удалось прочитать или передать
+     */
+    public void transferFile(UUID id, long position, long count, OutputStream outputStream) throws IOException {
+        ReportJob job = findJob(id);
+        synchronized (job) {
+            if (job.removed) {
+                throw new EntityNotFoundException("Задание на формирование отчета", id);
+            }
+            job.downloads++;
+        }
+
+        try (FileChannel channel = FileChannel.open(job.file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long transferred = 0;
+            while (transferred < count) {
+                long written = channel.transferTo(position + transferred, count - transferred, target);
+                if (written <= 0) {
+                    throw new IOException("Файл отчета " + job.file + " короче ожидаемого");
+                }
+                transferred += written;
+            }
+        } finally {
+            synchronized (job) {
+                job.downloads--;
+            }
+        }
+    }
+
+    /**
+     * Удаляет задания, завершившиеся раньше, чем TTL назад, вместе с их файлами.
+     * Задания, файл которых сейчас скачивается, удаляются при следующей очистке.
+     */
+    @Scheduled(fixedDelayString = "${pharmacy.report-jobs.cleanup-interval:5m}")
+    public void cleanup() {
+        Instant expiredBefore = Instant.now().minus(ttl);
+        jobs.values().removeIf(job -> {
+            Instant finishedAt = job.finishedAt;
+            if (finishedAt == null || finishedAt.isAfter(expiredBefore)) {
+                return false;
+            }
+            synchronized (job) {
+                if (job.downloads > 0) {
+                    log.debug("Задание {} не удалено: файл отчета скачивается", job.id);
+                    return false;
+                }
+                job.removed = true;
+            }
+            if (job.file != null) {
+                deleteQuietly(job.file);
+            }
+            log.debug("Задание {} удалено по истечении срока хранения", job.id);
+            return true;
+        });
+    }
+
+    private void run(ReportJob job, Supplier<StreamingResponseBody> report) {
+        job.status = ReportJobStatus.RUNNING;
+        Path partFile = spoolDir.resolve(job.id + PART_SUFFIX);
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(partFile)) {
+                report.get().writeTo(outputStream);
+            }
+            Path file = Files.move(partFile, spoolDir.resolve(job.id + job.fileFormat.getExtension()),
+                    StandardCopyOption.ATOMIC_MOVE);
+            job.file = file;
+            job.size = Files.size(file);
+            job.status = ReportJobStatus.COMPLETED;
+            log.info("Задание {} выполнено, размер отчета {} байт", job.id, job.size);
+        } catch (Exception e) {
+            deleteQuietly(partFile);
+            job.error = e.getMessage();
+            job.status = ReportJobStatus.FAILED;
+            log.error("Задание {} завершилось ошибкой: {}", job.id, e.getMessage(), e);
+        } finally {
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    private ReportJob findJob(UUID id) {
+        ReportJob job = jobs.get(id);
+        if (job == null) {
+            throw new EntityNotFoundException("Задание на формирование отчета", id);
+        }
+        return job;
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить файл отчета {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class ReportJob {
+
+        private final UUID id;
+        private final ReportType reportType;
+        private final FileFormat fileFormat;
+        private final String fileName;
+        private final Instant createdAt = Instant.now();
+
+        private volatile ReportJobStatus status = ReportJobStatus.QUEUED;
+        private volatile Path file;
+        private volatile long size;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        /**
+         * Количество незавершенных скачиваний файла; изменяется под монитором задания.
+         */
+        private int downloads;
+        private boolean removed;
+
+        private ReportJob(UUID id, ReportType reportType, FileFormat fileFormat, String fileName) {
+            this.id = id;
+            this.reportType = reportType;
+            this.fileFormat = fileFormat;
+            this.fileName = fileName;
+        }
+
+        private ReportJobDto toDto() {
+            ReportJobStatus currentStatus = status;
+            return ReportJobDto.builder()
+                    .id(id)
+                    .reportType(reportType)
+                    .fileFormat(fileFormat)
+                    .status(currentStatus)
+                    .createdAt(createdAt)
+                    .finishedAt(finishedAt)
+                    .size(currentStatus == ReportJobStatus.COMPLETED ? size : null)
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -1,21 +1,37 @@
 package ru.bakht.pharmacy.service.service.report;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.bakht.pharmacy.service.enums.SalesDimension;
+import ru.bakht.pharmacy.service.exception.IndexNotReadyException;
 import ru.bakht.pharmacy.service.mapper.MedicationMapper;
 import ru.bakht.pharmacy.service.mapper.OrderMapper;
+import ru.bakht.pharmacy.service.model.Order;
+import ru.bakht.pharmacy.service.model.PharmacyMedication;
 import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdownRow;
+import ru.bakht.pharmacy.service.model.dto.StockoutForecastDto;
 import ru.bakht.pharmacy.service.model.dto.TotalOrders;
 import ru.bakht.pharmacy.service.model.dto.TotalOrdersProjection;
 import ru.bakht.pharmacy.service.repository.MedicationRepository;
+import ru.bakht.pharmacy.service.repository.OrderDailyTotalRepository;
 import ru.bakht.pharmacy.service.repository.OrderRepository;
+import ru.bakht.pharmacy.service.repository.PharmacyMedicationRepository;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.function.Function;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Класс для генерации отчетов, связанных с медикаментами и заказами.
@@ -26,11 +42,20 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ReportService {
 
+    private static final int STREAM_CLEAR_INTERVAL = 500;
+
     private final MedicationRepository medicationRepository;
     private final OrderRepository orderRepository;
+    private final OrderDailyTotalRepository orderDailyTotalRepository;
+    private final OrderTotalsIndex orderTotalsIndex;
+    private final PharmacyMedicationRepository pharmacyMedicationRepository;
+    private final ConsumptionRateIndex consumptionRateIndex;
     private final MedicationMapper medicationMapper;
     private final OrderMapper orderMapper;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Получает список медикаментов, доступных в конкретной аптеке.
      *
@@ -46,6 +71,8 @@ public class ReportService {
 
     /**
      * Получает общее количество и общую стоимость всех заказов за указанный период.
+     * Значения берутся из {@link OrderTotalsIndex}, а пока индекс не заполнен,
+     * суммируются по дневным итогам заказов в БД.
      *
      * @param startDate начальная дата периода
      * @param endDate конечная дата периода
@@ -54,12 +81,50 @@ public class ReportService {
     public TotalOrders getTotalQuantityAndAmount(LocalDate startDate, LocalDate endDate) {
         log.info("Получен запрос на получение общего количества и суммы заказов с {} по {}", startDate, endDate);
 
-        TotalOrdersProjection projection = orderRepository.findTotalQuantityAndAmountByDateRange(startDate, endDate);
+        return orderTotalsIndex.findTotals(startDate, endDate)
+                .orElseGet(() -> getStoredTotalQuantityAndAmount(startDate, endDate));
+    }
+
+    /**
+     * Получает общее количество и общую стоимость заказов за период по дневным итогам в БД, минуя индекс.
+     * Используется для отчетов, которые кэшируются для всех экземпляров сервиса: индекс экземпляра
+     * может еще не содержать заказы, записанные другими экземплярами.
+     *
+     * @param startDate начальная дата периода
+     * @param endDate конечная дата периода
+     * @return объект {@link TotalOrders}, содержащий общее количество и общую стоимость заказов
+     */
+    public TotalOrders getStoredTotalQuantityAndAmount(LocalDate startDate, LocalDate endDate) {
+        TotalOrdersProjection projection = orderDailyTotalRepository.findTotalQuantityAndAmountByDateRange(
+                startDate, endDate);
         Integer totalQuantity = (projection.getTotalQuantity() != null) ? projection.getTotalQuantity() : 0;
         Double totalAmount = (projection.getTotalAmount() != null) ? projection.getTotalAmount() : 0.0;
         return new TotalOrders(totalQuantity, totalAmount);
     }
 
+    /**
+     * Получает итоги заказов за период в разрезе аптек, медикаментов, сотрудников, статусов,
+     * дней, недель и месяцев. Все разрезы считаются одним запросом с {@code GROUPING SETS}
+     * за один проход по заказам периода.
+     *
+     * @param startDate начальная дата периода
+     * @param endDate конечная дата периода
+     * @return объект {@link SalesBreakdown} со строками, упорядоченными по разрезу и значению
+     */
+    public SalesBreakdown getSalesBreakdown(LocalDate startDate, LocalDate endDate) {
+        log.info("Получен запрос на получение разрезов продаж с {} по {}", startDate, endDate);
+
+        List<SalesBreakdownRow> rows = mapToDto(orderRepository.findSalesBreakdown(startDate, endDate),
+                projection -> new SalesBreakdownRow(
+                        SalesDimension.valueOf(projection.getDimension()),
+                        projection.getGroupKey(),
+                        projection.getLabel(),
+                        projection.getOrderCount(),
+                        projection.getTotalQuantity(),
+                        projection.getTotalAmount()));
+        return new SalesBreakdown(startDate, endDate, rows);
+    }
+
     /**
      * Получает список заказов, сделанных конкретным клиентом по его номеру телефона.
      *
@@ -72,6 +137,32 @@ public class ReportService {
         return mapToDto(orderRepository.findOrdersByCustomerPhone(phone), orderMapper::toDto);
     }
 
+    /**
+     * Записывает отчет по заказам клиента, читая заказы курсором и передавая их генератору по одному.
+     * Контекст персистентности периодически очищается, поэтому объем памяти не зависит
+     * от количества заказов.
+     *
+     * @param phone номер телефона клиента
+     * @param reportGenerator генератор отчета нужного формата
+     * @param outputStream поток, в который записывается отчет
+     * @throws IOException если произошла ошибка записи в поток
+     */
+    public void writeOrdersByCustomerPhone(String phone, ReportGenerator reportGenerator,
+                                           OutputStream outputStream) throws IOException {
+        log.info("Получен запрос на выгрузку заказов для клиента с телефоном {}", phone);
+
+        int[] count = {0};
+        try (Stream<Order> orders = orderRepository.streamOrdersByCustomerPhone(phone)) {
+            reportGenerator.writeOrdersReport(orders.map(order -> {
+                OrderDto orderDto = orderMapper.toDto(order);
+                if (++count[0] % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+                return orderDto;
+            }), outputStream);
+        }
+    }
+
     /**
      * Получает список медикаментов, которые закончились в аптека по id аптека.
      *
@@ -85,6 +176,36 @@ public class ReportService {
                 medicationMapper::toDto);
     }
 
+    /**
+     * Прогнозирует, через сколько дней закончится каждое лекарство аптеки при текущем расходе.
+     * Остатки аптеки загружаются одним запросом, а средний расход берется из {@link ConsumptionRateIndex}.
+     *
+     * @param pharmacyId ID аптеки
+     * @return список {@link StockoutForecastDto}, упорядоченный по возрастанию срока исчерпания;
+     * лекарства без расхода находятся в конце списка
+     * @throws IndexNotReadyException если индекс расхода еще не заполнен
+     */
+    public List<StockoutForecastDto> getStockoutForecast(Long pharmacyId) {
+        log.info("Получен запрос на прогноз исчерпания запасов для аптеки с id {}", pharmacyId);
+
+        List<PharmacyMedication> stock = pharmacyMedicationRepository.findWithMedicationByPharmacyId(pharmacyId);
+        double[] rates = consumptionRateIndex.dailyRates(pharmacyId,
+                stock.stream().mapToLong(pm -> pm.getId().getMedicationId()).toArray());
+
+        List<StockoutForecastDto> forecast = new ArrayList<>(stock.size());
+        for (int i = 0; i < stock.size(); i++) {
+            PharmacyMedication pm = stock.get(i);
+            forecast.add(new StockoutForecastDto(
+                    pm.getMedication().getId(),
+                    pm.getMedication().getName(),
+                    pm.getQuantity(),
+                    rates[i],
+                    rates[i] > 0 ? pm.getQuantity() / rates[i] : null));
+        }
+        forecast.sort(Comparator.comparing(StockoutForecastDto::getDaysUntilStockout,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return forecast;
+    }
 
     /**
      * Универсальный метод для маппинга сущностей в DTO.
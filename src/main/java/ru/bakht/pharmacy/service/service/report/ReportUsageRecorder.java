@@ -0,0 +1,126 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.bakht.pharmacy.service.enums.ReportType;
+import ru.bakht.pharmacy.service.feign.ReportServiceClient;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс для учета запросов отчетов без синхронного обращения к REPORT-SERVICE.
+ * Запросы подсчитываются в памяти по типу отчета и периодически отправляются пакетом.
+ * Неотправленные пакеты хранятся в ограниченной очереди: при ее переполнении
+ * самый старый пакет отбрасывается, а количество потерянных запросов учитывается в метриках.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportUsageRecorder {
+
+    private static final ReportType[] REPORT_TYPES = ReportType.values();
+
+    private final ReportServiceClient reportServiceClient;
+    private final MeterRegistry meterRegistry;
+
+    private final LongAdder[] counters = createCounters();
+    private final Deque<Map<ReportType, Long>> backlog = new ArrayDeque<>();
+
+    @Value("${pharmacy.report-usage.max-backlog:60}")
+    private int maxBacklog;
+
+    private Counter droppedCounter;
+    private Counter overflowCounter;
+    private Counter flushFailureCounter;
+
+    @PostConstruct
+    void registerMetrics() {
+        droppedCounter = meterRegistry.counter("report.usage.dropped");
+        overflowCounter = meterRegistry.counter("report.usage.backlog.overflow");
+        flushFailureCounter = meterRegistry.counter("report.usage.flush.failures");
+        meterRegistry.gauge("report.usage.backlog.size", backlog, Deque::size);
+    }
+
+    /**
+     * Учитывает запрос отчета указанного типа.
+     *
+     * @param reportType тип отчета
+     */
+    public void record(ReportType reportType) {
+        counters[reportType.ordinal()].increment();
+    }
+
+    /**
+     * Отправляет накопленные счетчики в REPORT-SERVICE одним пакетом.
+     * Если отправка не удалась, пакет остается в очереди и будет отправлен при следующем сбросе.
+     */
+    @Scheduled(fixedDelayString = "${pharmacy.report-usage.flush-interval:10s}")
+    public synchronized void flush() {
+        Map<ReportType, Long> snapshot = drainCounters();
+        if (!snapshot.isEmpty()) {
+            enqueue(snapshot);
+        }
+        if (backlog.isEmpty()) {
+            return;
+        }
+
+        Map<ReportType, Long> batch = new EnumMap<>(ReportType.class);
+        backlog.forEach(pending -> pending.forEach((type, count) -> batch.merge(type, count, Long::sum)));
+
+        try {
+            reportServiceClient.recordReportRequests(batch);
+            backlog.clear();
+            log.debug("Отправлена статистика запросов отчетов: {}", batch);
+        } catch (RuntimeException e) {
+            flushFailureCounter.increment();
+            log.warn("Не удалось отправить статистику запросов отчетов, пакетов в очереди: {}. Причина: {}",
+                    backlog.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private Map<ReportType, Long> drainCounters() {
+        Map<ReportType, Long> snapshot = new EnumMap<>(ReportType.class);
+        for (ReportType type : REPORT_TYPES) {
+            long count = counters[type.ordinal()].sumThenReset();
+            if (count > 0) {
+                snapshot.put(type, count);
+            }
+        }
+        return snapshot;
+    }
+
+    private void enqueue(Map<ReportType, Long> snapshot) {
+        if (backlog.size() >= maxBacklog) {
+            Map<ReportType, Long> dropped = backlog.pollFirst();
+            long droppedCount = dropped.values().stream().mapToLong(Long::longValue).sum();
+            overflowCounter.increment();
+            droppedCounter.increment(droppedCount);
+            log.warn("Очередь статистики запросов отчетов переполнена, отброшено {} запросов", droppedCount);
+        }
+        backlog.addLast(snapshot);
+    }
+
+    private static LongAdder[] createCounters() {
+        LongAdder[] counters = new LongAdder[REPORT_TYPES.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,154 @@
+package ru.bakht.pharmacy.service.service.report;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bakht.pharmacy.service.model.dto.TransactionSnapshot;
+import ru.bakht.pharmacy.service.repository.TransactionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Индекс в памяти, который строится по данным из БД и обновляется событиями после фиксации транзакций.
+ * Вместе с состоянием индекса хранится снимок транзакций, по которому оно построено: событие транзакции,
+ * видимой в снимке, уже учтено и пропускается. Данные читаются в транзакции {@code REPEATABLE READ}
+ * вместе с ее снимком, а события, полученные во время чтения, применяются к новому состоянию перед заменой,
+ * если их транзакций нет в снимке. Событие, полученное до начала перестроения, относится к транзакции,
+ * зафиксированной до снимка, и уже учтено в прочитанных данных.
+ *
+ * @param <E> тип события
+ * @param <S> тип состояния индекса
+ */
+@Slf4j
+abstract class SnapshotIndex<E, S> {
+
+    private final String name;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate snapshotTransactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private S state;
+
+    private TransactionSnapshot snapshot;
+
+    /**
+     * События, полученные с начала текущего перестроения; {@code null}, если перестроение не выполняется.
+     */
+    private List<E> pendingEvents;
+
+    /**
+     * @param name                  название индекса в родительном падеже для журнала, например «итогов заказов»
+     * @param transactionRepository репозиторий снимков транзакций
+     * @param transactionManager    менеджер транзакций для чтения данных
+     */
+    protected SnapshotIndex(String name,
+                            TransactionRepository transactionRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.name = name;
+        this.transactionRepository = transactionRepository;
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Читает данные из БД и строит по ним новое состояние индекса.
+     * Вызывается в транзакции, снимок которой сохраняется вместе с состоянием.
+     */
+    protected abstract S load();
+
+    /**
+     * Применяет событие к состоянию индекса. Вызывается под блокировкой записи.
+     */
+    protected abstract void apply(S state, E event);
+
+    /**
+     * Возвращает идентификатор транзакции, в которой произошло событие.
+     */
+    protected abstract long transactionIdOf(E event);
+
+    /**
+     * Читает состояние индекса под блокировкой чтения.
+     *
+     * @param reader функция чтения; получает {@code null}, если индекс еще не заполнен
+     * @return результат функции чтения
+     */
+    protected <R> R read(Function<S, R> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(state);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Применяет событие к индексу, если его транзакции нет в снимке, и запоминает его
+     * для нового состояния, если выполняется перестроение.
+     *
+     * @param event событие, полученное после фиксации транзакции
+     */
+    protected void onEvent(E event) {
+        lock.writeLock().lock();
+        try {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            if (state != null && !snapshot.contains(transactionIdOf(event))) {
+                apply(state, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Перестраивает индекс по снимку БД. Ошибка чтения записывается в журнал, а индекс
+     * сохраняет прежнее состояние до следующего перестроения.
+     */
+    protected synchronized void rebuildFromSnapshot() {
+        lock.writeLock().lock();
+        try {
+            pendingEvents = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            Snapshot<S> loaded = snapshotTransactionTemplate.execute(status ->
+                    new Snapshot<>(transactionRepository.currentSnapshot(), load()));
+
+            lock.writeLock().lock();
+            try {
+                for (E event : pendingEvents) {
+                    if (!loaded.snapshot().contains(transactionIdOf(event))) {
+                        apply(loaded.state(), event);
+                    }
+                }
+                state = loaded.state();
+                snapshot = loaded.snapshot();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Индекс {} перестроен", name);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось перестроить индекс {}: {}", name, e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendingEvents = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private record Snapshot<S>(TransactionSnapshot snapshot, S state) {
+    }
+}
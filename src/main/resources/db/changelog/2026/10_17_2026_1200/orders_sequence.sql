@@ -0,0 +1,3 @@
+-- Шаг последовательности заказов совпадает с allocationSize в сущности Order,
+-- чтобы Hibernate выделял идентификаторы пачками и мог группировать INSERT в JDBC-батчи
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
@@ -0,0 +1,7 @@
+-- Заполнение дневных итогов по уже существующим заказам
+INSERT INTO order_daily_totals (order_date, pharmacy_id, status, order_count, total_quantity, total_amount)
+SELECT order_date, pharmacy_id, status, COUNT(*), SUM(quantity), COALESCE(SUM(total_amount), 0)
+FROM orders
+WHERE pharmacy_id IS NOT NULL
+GROUP BY order_date, pharmacy_id, status
+ON CONFLICT (order_date, pharmacy_id, status) DO NOTHING;
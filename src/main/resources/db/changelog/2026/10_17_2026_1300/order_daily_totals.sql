@@ -0,0 +1,21 @@
+-- Таблица для хранения дневных итогов заказов по аптеке и статусу
+CREATE TABLE IF NOT EXISTS order_daily_totals (
+    order_date     DATE         NOT NULL,
+    pharmacy_id    INT          NOT NULL REFERENCES pharmacies(id) ON DELETE CASCADE,
+    status         VARCHAR(50)  NOT NULL,
+    order_count    BIGINT       NOT NULL,
+    total_quantity BIGINT       NOT NULL,
+    total_amount   DECIMAL      NOT NULL,
+    PRIMARY KEY (order_date, pharmacy_id, status)
+);
+
+COMMENT ON TABLE order_daily_totals IS 'Таблица для хранения дневных итогов заказов по аптеке и статусу';
+COMMENT ON COLUMN order_daily_totals.order_date IS 'Дата заказов';
+COMMENT ON COLUMN order_daily_totals.pharmacy_id IS 'Идентификатор аптеки';
+COMMENT ON COLUMN order_daily_totals.status IS 'Статус заказов';
+COMMENT ON COLUMN order_daily_totals.order_count IS 'Количество заказов';
+COMMENT ON COLUMN order_daily_totals.total_quantity IS 'Общее количество лекарств в заказах';
+COMMENT ON COLUMN order_daily_totals.total_amount IS 'Общая сумма заказов';
+
+-- Индекс для выборки заказов за период
+CREATE INDEX IF NOT EXISTS idx_orders_order_date ON orders (order_date);
@@ -0,0 +1,21 @@
+-- Индексы по внешним ключам заказов: выборка заказов покупателя и аптеки,
+-- а также каскадное удаление покупателей, сотрудников, аптек и лекарств
+CREATE INDEX IF NOT EXISTS idx_orders_customer_id ON orders (customer_id);
+CREATE INDEX IF NOT EXISTS idx_orders_pharmacy_id_order_date ON orders (pharmacy_id, order_date);
+CREATE INDEX IF NOT EXISTS idx_orders_employee_id ON orders (employee_id);
+CREATE INDEX IF NOT EXISTS idx_orders_medication_id ON orders (medication_id);
+
+-- Индекс для выборки сотрудников аптеки
+CREATE INDEX IF NOT EXISTS idx_employees_pharmacy_id ON employees (pharmacy_id);
+
+-- Частичный индекс для отчета по закончившимся лекарствам аптеки
+CREATE INDEX IF NOT EXISTS idx_pharmacy_medications_out_of_stock
+    ON pharmacy_medications (pharmacy_id, medication_id) WHERE quantity = 0;
+
+-- Покрывающий индекс для поиска остатков ниже порога: порог передается параметром,
+-- поэтому индекс строится по количеству, а не частичным по фиксированному значению
+CREATE INDEX IF NOT EXISTS idx_pharmacy_medications_quantity
+    ON pharmacy_medications (quantity) INCLUDE (pharmacy_id, medication_id);
+
+-- Индекс по лекарству для каскадного удаления лекарств и выборки аптек по лекарству
+CREATE INDEX IF NOT EXISTS idx_pharmacy_medications_medication_id ON pharmacy_medications (medication_id);
@@ -0,0 +1,16 @@
+-- Таблица для хранения пороговых значений остатков лекарств
+CREATE TABLE IF NOT EXISTS stock_thresholds (
+    id            SERIAL    PRIMARY KEY,
+    pharmacy_id   INT       REFERENCES pharmacies(id) ON DELETE CASCADE,
+    medication_id INT       REFERENCES medications(id) ON DELETE CASCADE,
+    threshold     INT       NOT NULL CHECK (threshold >= 0),
+    CONSTRAINT uq_stock_thresholds_pharmacy_medication UNIQUE NULLS NOT DISTINCT (pharmacy_id, medication_id)
+);
+
+COMMENT ON TABLE stock_thresholds IS 'Таблица для хранения пороговых значений остатков лекарств';
+COMMENT ON COLUMN stock_thresholds.id IS 'Уникальный идентификатор порога';
+COMMENT ON COLUMN stock_thresholds.pharmacy_id IS 'Идентификатор аптеки или NULL для всех аптек';
+COMMENT ON COLUMN stock_thresholds.medication_id IS 'Идентификатор лекарства или NULL для всех лекарств';
+COMMENT ON COLUMN stock_thresholds.threshold IS 'Минимальное количество лекарства, ниже которого отправляется уведомление';
+
+CREATE INDEX IF NOT EXISTS idx_stock_thresholds_medication_id ON stock_thresholds (medication_id);
@@ -0,0 +1,28 @@
+-- Таблица исходящих уведомлений, записываемых в транзакции и отправляемых фоновым процессом
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id              BIGINT       PRIMARY KEY,
+    recipient       VARCHAR(255) NOT NULL,
+    subject         VARCHAR(255) NOT NULL,
+    body            TEXT         NOT NULL,
+    status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP    NOT NULL DEFAULT now(),
+    created_at      TIMESTAMP    NOT NULL DEFAULT now()
+);
+
+-- Шаг последовательности совпадает с allocationSize в сущности NotificationOutbox
+CREATE SEQUENCE IF NOT EXISTS notification_outbox_id_seq INCREMENT BY 50 OWNED BY notification_outbox.id;
+
+COMMENT ON TABLE notification_outbox IS 'Таблица исходящих уведомлений';
+COMMENT ON COLUMN notification_outbox.id IS 'Уникальный идентификатор уведомления';
+COMMENT ON COLUMN notification_outbox.recipient IS 'Адрес получателя';
+COMMENT ON COLUMN notification_outbox.subject IS 'Тема письма';
+COMMENT ON COLUMN notification_outbox.body IS 'Текст письма';
+COMMENT ON COLUMN notification_outbox.status IS 'Статус уведомления: PENDING - ожидает отправки, FAILED - попытки исчерпаны';
+COMMENT ON COLUMN notification_outbox.attempts IS 'Количество попыток отправки';
+COMMENT ON COLUMN notification_outbox.next_attempt_at IS 'Время, начиная с которого уведомление можно отправить; при захвате сдвигается на время аренды';
+COMMENT ON COLUMN notification_outbox.created_at IS 'Время создания уведомления';
+
+-- Индекс для выбора уведомлений, готовых к отправке
+CREATE INDEX IF NOT EXISTS idx_notification_outbox_pending
+    ON notification_outbox (next_attempt_at) WHERE status = 'PENDING';
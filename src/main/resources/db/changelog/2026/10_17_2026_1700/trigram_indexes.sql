@@ -0,0 +1,8 @@
+-- Триграммы для поиска по подстроке и нечеткого поиска с опечатками
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Индексы по выражению lower(...): фильтры по подстроке сравнивают строки без учета регистра,
+-- а btree-индекс idx_medications_name не используется для шаблонов вида '%значение%'
+CREATE INDEX IF NOT EXISTS idx_medications_name_trgm ON medications USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_customers_name_trgm ON customers USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_customers_address_trgm ON customers USING gin (lower(address) gin_trgm_ops);
@@ -0,0 +1,15 @@
+-- Дневные итоги заказов без аптеки: такие заказы входят в отчет по сумме заказов,
+-- поэтому учитываются в итогах с пустым идентификатором аптеки
+ALTER TABLE order_daily_totals DROP CONSTRAINT order_daily_totals_pkey;
+ALTER TABLE order_daily_totals ALTER COLUMN pharmacy_id DROP NOT NULL;
+ALTER TABLE order_daily_totals
+    ADD CONSTRAINT uq_order_daily_totals UNIQUE NULLS NOT DISTINCT (order_date, pharmacy_id, status);
+
+COMMENT ON COLUMN order_daily_totals.pharmacy_id IS 'Идентификатор аптеки; пустой для заказов без аптеки';
+
+INSERT INTO order_daily_totals (order_date, pharmacy_id, status, order_count, total_quantity, total_amount)
+SELECT order_date, NULL, status, COUNT(*), SUM(quantity), COALESCE(SUM(total_amount), 0)
+FROM orders
+WHERE pharmacy_id IS NULL
+GROUP BY order_date, status
+ON CONFLICT (order_date, pharmacy_id, status) DO NOTHING;
@@ -0,0 +1,167 @@
+package ru.bakht.pharmacy.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import ru.bakht.pharmacy.service.config.CacheConfig;
+import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.mapper.MedicationMapper;
+import ru.bakht.pharmacy.service.mapper.PharmacyMapper;
+import ru.bakht.pharmacy.service.model.Medication;
+import ru.bakht.pharmacy.service.model.Pharmacy;
+import ru.bakht.pharmacy.service.model.PharmacyMedication;
+import ru.bakht.pharmacy.service.model.PharmacyMedicationId;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
+import ru.bakht.pharmacy.service.model.dto.PharmacyDto;
+import ru.bakht.pharmacy.service.model.dto.PharmacyMedicationDto;
+import ru.bakht.pharmacy.service.repository.MedicationRepository;
+import ru.bakht.pharmacy.service.repository.PharmacyRepository;
+import ru.bakht.pharmacy.service.service.MedicationService;
+import ru.bakht.pharmacy.service.service.PharmacyService;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig
+class CatalogCachingTest {
+
+    @Configuration
+    @EnableCaching(proxyTargetClass = true)
+    @Import({MedicationService.class, PharmacyService.class})
+    static class Config {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheConfig.MEDICATIONS, CacheConfig.MEDICATION_PAGES,
+                    CacheConfig.PHARMACIES, CacheConfig.PHARMACY_PAGES);
+        }
+    }
+
+    @MockBean
+    private MedicationRepository medicationRepository;
+
+    @MockBean
+    private MedicationMapper medicationMapper;
+
+    @MockBean
+    private PharmacyRepository pharmacyRepository;
+
+    @MockBean
+    private PharmacyMapper pharmacyMapper;
+
+    @MockBean
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MedicationService medicationService;
+
+    @Autowired
+    private PharmacyService pharmacyService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Medication medication;
+    private MedicationDto medicationDto;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        medication = new Medication(1L, "Аспирин", MedicationForm.TABLET, 100.0, null);
+        medicationDto = new MedicationDto(1L, "Аспирин", MedicationForm.TABLET, 100.0, null);
+    }
+
+    @Test
+    void getById_ReadsDatabaseOnce() {
+        when(medicationRepository.findById(1L)).thenReturn(Optional.of(medication));
+        when(medicationMapper.toDto(medication)).thenReturn(medicationDto);
+
+        medicationService.getById(1L);
+        MedicationDto result = medicationService.getById(1L);
+
+        assertEquals(medicationDto, result);
+        verify(medicationRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getAll_ReadsDatabaseOncePerPage() {
+        when(medicationRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(medication)));
+        when(medicationMapper.toDto(medication)).thenReturn(medicationDto);
+
+        medicationService.getAll(null, 50);
+        medicationService.getAll(0L, 50);
+
+        verify(medicationRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    void update_EvictsCachedMedicationAndPages() {
+        when(medicationRepository.findById(1L)).thenReturn(Optional.of(medication));
+        when(medicationRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(medication)));
+        when(medicationRepository.save(medication)).thenReturn(medication);
+        when(medicationMapper.toDto(medication)).thenReturn(medicationDto);
+
+        medicationService.getById(1L);
+        medicationService.getAll(null, 50);
+        medicationService.update(1L, medicationDto);
+        medicationService.getById(1L);
+        medicationService.getAll(null, 50);
+
+        // два чтения через getById и одно внутри update
+        verify(medicationRepository, times(3)).findById(1L);
+        verify(medicationRepository, times(2)).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    void delete_EvictsCachedMedication() {
+        when(medicationRepository.findById(1L)).thenReturn(Optional.of(medication));
+        when(medicationMapper.toDto(medication)).thenReturn(medicationDto);
+
+        medicationService.getById(1L);
+        medicationService.delete(1L);
+        medicationService.getById(1L);
+
+        verify(medicationRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void addOrUpdatePharmacyMedication_ReadsPharmacyAndMedicationFromCache() {
+        var pharmacy = new Pharmacy(1L, "Аптека №1", "ул. Ленина, 2", "89007654321", null);
+        var pharmacyDto = new PharmacyDto(1L, "Аптека №1", "ул. Ленина, 2", "89007654321");
+        var entityManager = mock(EntityManager.class);
+        when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+        when(entityManager.find(PharmacyMedication.class, new PharmacyMedicationId(1L, 1L)))
+                .thenReturn(new PharmacyMedication(new PharmacyMedicationId(1L, 1L), pharmacy, medication, 5));
+        when(pharmacyRepository.findById(1L)).thenReturn(Optional.of(pharmacy));
+        when(pharmacyMapper.toDto(pharmacy)).thenReturn(pharmacyDto);
+        when(medicationRepository.findById(1L)).thenReturn(Optional.of(medication));
+        when(medicationMapper.toDto(medication)).thenReturn(medicationDto);
+        var pharmacyMedicationDto = new PharmacyMedicationDto(pharmacyDto, medicationDto, 3);
+
+        pharmacyService.addOrUpdatePharmacyMedication(pharmacyMedicationDto);
+        pharmacyService.addOrUpdatePharmacyMedication(pharmacyMedicationDto);
+
+        verify(pharmacyRepository, times(1)).findById(1L);
+        verify(medicationRepository, times(1)).findById(1L);
+    }
+}
@@ -0,0 +1,179 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.bakht.pharmacy.service.event.StockConsumedEvent;
+import ru.bakht.pharmacy.service.exception.IndexNotReadyException;
+import ru.bakht.pharmacy.service.model.dto.MedicationConsumptionProjection;
+import ru.bakht.pharmacy.service.model.dto.TransactionSnapshot;
+import ru.bakht.pharmacy.service.repository.OrderRepository;
+import ru.bakht.pharmacy.service.repository.TransactionRepository;
+import ru.bakht.pharmacy.service.service.report.ConsumptionRateIndex;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumptionRateIndexTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ConsumptionRateIndex consumptionRateIndex;
+
+    @BeforeEach
+    void setUp() {
+        consumptionRateIndex = new ConsumptionRateIndex(orderRepository, transactionRepository, transactionManager);
+        // транзакции с идентификаторами меньше 100 зафиксированы до снимка
+        lenient().when(transactionRepository.currentSnapshot()).thenReturn(TransactionSnapshot.parse("100:100:"));
+        ReflectionTestUtils.setField(consumptionRateIndex, "halfLife", Duration.ofDays(7));
+        ReflectionTestUtils.setField(consumptionRateIndex, "history", Duration.ofDays(56));
+        ReflectionTestUtils.setField(consumptionRateIndex, "retryAfter", Duration.ofSeconds(30));
+        ReflectionTestUtils.invokeMethod(consumptionRateIndex, "init");
+    }
+
+    @Test
+    void dailyRates_FailsUntilIndexIsLoaded() {
+        IndexNotReadyException exception = assertThrows(IndexNotReadyException.class,
+                () -> consumptionRateIndex.dailyRates(1L, new long[]{1L}));
+        assertEquals(Duration.ofSeconds(30), exception.getRetryAfter());
+    }
+
+    @Test
+    void dailyRates_MatchSteadyConsumption() {
+        List<MedicationConsumptionProjection> consumption = new ArrayList<>();
+        for (int day = 56; day >= 1; day--) {
+            consumption.add(consumption(1L, 1L, LocalDate.now().minusDays(day), 4));
+            consumption.add(consumption(1L, 2L, LocalDate.now().minusDays(day), 1));
+        }
+        when(orderRepository.findDailyConsumptionSince(any())).thenReturn(consumption);
+        consumptionRateIndex.rebuild();
+
+        double[] rates = consumptionRateIndex.dailyRates(1L, new long[]{1L, 2L, 3L});
+
+        assertEquals(4.0, rates[0], 0.4);
+        assertEquals(1.0, rates[1], 0.1);
+        assertEquals(0.0, rates[2]);
+    }
+
+    @Test
+    void onStockConsumed_RaisesRateWithoutReloading() {
+        when(orderRepository.findDailyConsumptionSince(any())).thenReturn(List.of());
+        consumptionRateIndex.rebuild();
+
+        consumptionRateIndex.onStockConsumed(consumed(1L, 1L, 10, 101));
+        double afterFirst = consumptionRateIndex.dailyRates(1L, new long[]{1L})[0];
+        consumptionRateIndex.onStockConsumed(consumed(1L, 1L, 10, 101));
+        double afterSecond = consumptionRateIndex.dailyRates(1L, new long[]{1L})[0];
+
+        // 10 единиц при периоде полураспада 7 дней дают расход 10 * ln 2 / 7 в день
+        assertEquals(10 * Math.log(2) / 7, afterFirst, 1e-3);
+        assertEquals(2 * afterFirst, afterSecond, 1e-3);
+        assertEquals(0.0, consumptionRateIndex.dailyRates(2L, new long[]{1L})[0]);
+    }
+
+    @Test
+    void onStockConsumed_KeepsPairsOfManyPharmaciesApart() {
+        when(orderRepository.findDailyConsumptionSince(any())).thenReturn(List.of());
+        consumptionRateIndex.rebuild();
+
+        for (long pharmacyId = 1; pharmacyId <= 1000; pharmacyId++) {
+            consumptionRateIndex.onStockConsumed(consumed(pharmacyId, pharmacyId % 7 + 1, (int) pharmacyId, 101));
+        }
+
+        for (long pharmacyId = 1; pharmacyId <= 1000; pharmacyId++) {
+            double[] rates = consumptionRateIndex.dailyRates(pharmacyId, new long[]{pharmacyId % 7 + 1, pharmacyId % 7 + 2});
+            assertEquals(pharmacyId * Math.log(2) / 7, rates[0], 1e-3 * pharmacyId);
+            assertEquals(0.0, rates[1]);
+        }
+    }
+
+    @Test
+    void onStockConsumed_CountsUpdatedOrderOnlyOnce() {
+        when(orderRepository.findDailyConsumptionSince(any())).thenReturn(List.of());
+        consumptionRateIndex.rebuild();
+
+        consumptionRateIndex.onStockConsumed(consumed(1L, 1L, 10, 101));
+        // изменение заказа исключает прежнее количество и добавляет новое
+        consumptionRateIndex.onStockConsumed(consumed(1L, 1L, -10, 102));
+        consumptionRateIndex.onStockConsumed(consumed(1L, 1L, 4, 102));
+
+        assertEquals(4 * Math.log(2) / 7, consumptionRateIndex.dailyRates(1L, new long[]{1L})[0], 1e-3);
+    }
+
+    @Test
+    void onStockConsumed_CancelledOrderRemovesConsumption() {
+        when(orderRepository.findDailyConsumptionSince(any())).thenReturn(List.of());
+        consumptionRateIndex.rebuild();
+
+        consumptionRateIndex.onStockConsumed(consumed(1L, 1L, 10, 101));
+        // отмена заказа только исключает его количество из расхода
+        consumptionRateIndex.onStockConsumed(consumed(1L, 1L, -10, 102));
+
+        assertEquals(0.0, consumptionRateIndex.dailyRates(1L, new long[]{1L})[0]);
+    }
+
+    @Test
+    void rebuild_AppliesEventsReceivedDuringRebuildThatAreNotInSnapshot() {
+        when(orderRepository.findDailyConsumptionSince(any())).thenAnswer(invocation -> {
+            // заказ, зафиксированный после снимка, пока расход читается из БД
+            consumptionRateIndex.onStockConsumed(consumed(1L, 1L, 3, 101));
+            // заказ транзакции, видимой в снимке: его расход уже прочитан из БД
+            consumptionRateIndex.onStockConsumed(consumed(1L, 1L, 5, 80));
+            return List.of(consumption(1L, 1L, LocalDate.now(), 5));
+        });
+
+        consumptionRateIndex.rebuild();
+        // событие транзакции из снимка, доставленное после замены таблицы
+        consumptionRateIndex.onStockConsumed(consumed(1L, 1L, 5, 80));
+
+        assertEquals(8 * Math.log(2) / 7, consumptionRateIndex.dailyRates(1L, new long[]{1L})[0], 1e-3);
+    }
+
+    private StockConsumedEvent consumed(long pharmacyId, long medicationId, int quantity, long transactionId) {
+        return new StockConsumedEvent(pharmacyId, medicationId, quantity, LocalDate.now(), transactionId);
+    }
+
+    private MedicationConsumptionProjection consumption(Long pharmacyId, Long medicationId, LocalDate orderDate,
+                                                        long quantity) {
+        return new MedicationConsumptionProjection() {
+            @Override
+            public Long getPharmacyId() {
+                return pharmacyId;
+            }
+
+            @Override
+            public Long getMedicationId() {
+                return medicationId;
+            }
+
+            @Override
+            public LocalDate getOrderDate() {
+                return orderDate;
+            }
+
+            @Override
+            public Long getQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.Test;
+import ru.bakht.pharmacy.service.enums.FileFormat;
+import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.enums.OrderStatus;
+import ru.bakht.pharmacy.service.enums.SalesDimension;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
+import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdownRow;
+import ru.bakht.pharmacy.service.model.dto.TotalOrders;
+import ru.bakht.pharmacy.service.service.report.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReportServiceTest {
+
+    private final CsvReportService csvReportService = new CsvReportService();
+
+    private final MedicationDto medication = new MedicationDto(
+            1L, "Аспирин \"Плюс\", 500 мг", MedicationForm.TABLET, 12_500_000.0, LocalDate.of(2030, 1, 1));
+
+    @Test
+    void writeMedicationsReport_QuotesValuesWithDelimiterAndQuotes() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        csvReportService.writeMedicationsReport(List.of(medication), outputStream);
+
+        assertEquals("ID,Наименование,Форма,Цена,Срок годности\r\n"
+                        + "1,\"Аспирин \"\"Плюс\"\", 500 мг\",TABLET,12500000,2030-01-01\r\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeOrdersReport_StreamsRowsBeyondBufferSize() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        csvReportService.writeOrdersReport(orders(10_000).stream(), outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(10_001, lines.length);
+        assertEquals("10000,\"Аспирин \"\"Плюс\"\", 500 мг\",2,200.5,2026-10-17,NEW", lines[10_000]);
+    }
+
+    @Test
+    void writeSalesBreakdownReport_WritesRowPerDimensionValue() throws IOException {
+        SalesBreakdown salesBreakdown = new SalesBreakdown(LocalDate.of(2026, 10, 1), LocalDate.of(2026, 10, 31),
+                List.of(new SalesBreakdownRow(SalesDimension.PHARMACY, "1", "Аптека, центр", 2L, 5L, 250.0),
+                        new SalesBreakdownRow(SalesDimension.MONTH, "2026-10", null, 2L, 5L, 250.0)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        csvReportService.writeSalesBreakdownReport(salesBreakdown, outputStream);
+
+        assertEquals("Разрез,Значение,Наименование,Количество заказов,Количество,Общая сумма\r\n"
+                        + "PHARMACY,1,\"Аптека, центр\",2,5,250.0\r\n"
+                        + "MONTH,2026-10,,2,5,250.0\r\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void csvGzip_ProducesReadableArchiveAndKeepsStreamOpen() throws IOException {
+        ReportGenerator reportGenerator = new ReportFactory(
+                new ExcelReportService(), new PdfReportService(), csvReportService)
+                .getReportGenerator(FileFormat.CSV_GZIP);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        reportGenerator.writeTotalOrdersReport(new TotalOrders(5, 500.0), outputStream);
+        outputStream.write('!');
+
+        byte[] report = outputStream.toByteArray();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(report, 0, report.length - 1))) {
+            assertEquals("Общее количество,Общая сумма\r\n5,500.0\r\n",
+                    new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private List<OrderDto> orders(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(id -> OrderDto.builder()
+                        .id(id)
+                        .medication(medication)
+                        .quantity(2)
+                        .totalAmount(200.5)
+                        .orderDate(LocalDate.of(2026, 10, 17))
+                        .orderStatus(OrderStatus.NEW)
+                        .build())
+                .toList();
+    }
+}
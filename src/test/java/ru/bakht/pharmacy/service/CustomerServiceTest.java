@@ -6,6 +6,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
 import ru.bakht.pharmacy.service.mapper.CustomerMapper;
 import ru.bakht.pharmacy.service.model.Customer;
@@ -43,15 +45,16 @@ public class CustomerServiceTest {
 
     @Test
     void getAllCustomers_ReturnsCustomerList() {
-        when(customerRepository.findAll()).thenReturn(List.of(customer));
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(customer)));
         when(customerMapper.toDto(any(Customer.class))).thenReturn(customerDto);
 
-        List<CustomerDto> customers = customerService.getAll();
+        List<CustomerDto> customers = customerService.getAll(null, 50).getContent();
 
         assertNotNull(customers);
         assertEquals(1, customers.size());
         assertEquals("Bakha", customers.getFirst().getName());
-        verify(customerRepository, times(1)).findAll();
+        verify(customerRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class));
         verify(customerMapper, times(1)).toDto(any(Customer.class));
     }
 
@@ -6,6 +6,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import ru.bakht.pharmacy.service.enums.EmployeePosition;
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
 import ru.bakht.pharmacy.service.mapper.EmployeeMapper;
@@ -52,10 +54,11 @@ class EmployeeServiceTest {
         EmployeeDto employeeDto = new EmployeeDto(
                 1L, "Ivan Ivanov", EmployeePosition.PHARMACIST, "ivanov@example.com", new PharmacyDto());
 
-        when(employeeRepository.findAll()).thenReturn(List.of(employee));
+        when(employeeRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(employee)));
         when(employeeMapper.toDto(any(Employee.class))).thenReturn(employeeDto);
 
-        List<EmployeeDto> employees = employeeService.getAll();
+        List<EmployeeDto> employees = employeeService.getAll(null, 50).getContent();
 
         assertEquals(1, employees.size());
         assertEquals(1L, employees.getFirst().getId());
@@ -63,7 +66,7 @@ class EmployeeServiceTest {
         assertEquals(EmployeePosition.PHARMACIST, employees.getFirst().getPosition());
         assertEquals("ivanov@example.com", employees.getFirst().getEmail());
 
-        verify(employeeRepository, times(1)).findAll();
+        verify(employeeRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class));
         verify(employeeMapper, times(1)).toDto(any(Employee.class));
     }
 
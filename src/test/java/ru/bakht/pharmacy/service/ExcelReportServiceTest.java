@@ -0,0 +1,63 @@
+package ru.bakht.pharmacy.service;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.enums.OrderStatus;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
+import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.TotalOrders;
+import ru.bakht.pharmacy.service.service.report.ExcelReportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExcelReportServiceTest {
+
+    private final ExcelReportService excelReportService = new ExcelReportService();
+
+    @Test
+    void writeOrdersReport_WritesAllRowsBeyondRowWindow() throws IOException {
+        MedicationDto medication = new MedicationDto(
+                1L, "Аспирин", MedicationForm.TABLET, 100.0, LocalDate.of(2030, 1, 1));
+        List<OrderDto> orders = LongStream.rangeClosed(1, 1_000)
+                .mapToObj(id -> OrderDto.builder()
+                        .id(id)
+                        .medication(medication)
+                        .quantity(1)
+                        .totalAmount(100.0)
+                        .orderDate(LocalDate.of(2026, 10, 17))
+                        .orderStatus(OrderStatus.NEW)
+                        .build())
+                .toList();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        excelReportService.writeOrdersReport(orders, outputStream);
+
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Sheet sheet = workbook.getSheet("Заказы");
+            assertEquals(1_000, sheet.getLastRowNum());
+            assertEquals(1_000.0, sheet.getRow(1_000).getCell(0).getNumericCellValue());
+            assertEquals("Аспирин", sheet.getRow(1_000).getCell(1).getStringCellValue());
+        }
+    }
+
+    @Test
+    void generateTotalOrdersReport_ReturnsReadableWorkbook() throws IOException {
+        byte[] report = excelReportService.generateTotalOrdersReport(new TotalOrders(5, 500.0));
+
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(report))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(5.0, sheet.getRow(1).getCell(0).getNumericCellValue());
+            assertEquals(500.0, sheet.getRow(1).getCell(1).getNumericCellValue());
+        }
+    }
+}
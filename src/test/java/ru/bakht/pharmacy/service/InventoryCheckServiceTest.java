@@ -0,0 +1,162 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.integration.redis.util.RedisLockRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.model.*;
+import ru.bakht.pharmacy.service.repository.EmployeeRepository;
+import ru.bakht.pharmacy.service.repository.NotificationOutboxRepository;
+import ru.bakht.pharmacy.service.service.report.InventoryCheckService;
+import ru.bakht.pharmacy.service.service.report.LowStockTracker;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryCheckServiceTest {
+
+    private static final String RUN_KEY = "reconcile-run";
+    private static final String PROGRESS_KEY = RUN_KEY + ":run-1:shards";
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Mock
+    private RedisLockRegistry redisLockRegistry;
+
+    @Mock
+    private LowStockTracker lowStockTracker;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private Lock freeLock;
+
+    @Mock
+    private Lock busyLock;
+
+    private InventoryCheckService inventoryCheckService;
+
+    @BeforeEach
+    void setUp() {
+        inventoryCheckService = new InventoryCheckService(employeeRepository, notificationOutboxRepository,
+                redisLockRegistry, lowStockTracker, stringRedisTemplate);
+        ReflectionTestUtils.setField(inventoryCheckService, "mailUsername", "user");
+        ReflectionTestUtils.setField(inventoryCheckService, "mailPassword", "password");
+        ReflectionTestUtils.setField(inventoryCheckService, "shards", 3);
+        ReflectionTestUtils.setField(inventoryCheckService, "reconcileWindow", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(inventoryCheckService, "shardPollInterval", Duration.ZERO);
+        ReflectionTestUtils.setField(inventoryCheckService, "runKey", RUN_KEY);
+
+        lenient().when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(valueOperations.get(RUN_KEY)).thenReturn("run-1");
+        lenient().when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        lenient().when(freeLock.tryLock()).thenReturn(true);
+        lenient().when(busyLock.tryLock()).thenReturn(false);
+        lenient().when(lowStockTracker.reconcile(anyInt(), eq(3))).thenReturn(List.of());
+    }
+
+    @Test
+    void checkInventory_ChecksFreeShardsAndWaitsForShardOfAnotherInstance() {
+        when(setOperations.members(PROGRESS_KEY)).thenReturn(Set.of());
+        when(redisLockRegistry.obtain("inventoryCheckLock:0")).thenReturn(freeLock);
+        when(redisLockRegistry.obtain("inventoryCheckLock:1")).thenReturn(busyLock);
+        when(redisLockRegistry.obtain("inventoryCheckLock:2")).thenReturn(freeLock);
+        // другой экземпляр завершает сегмент 1, пока этот экземпляр проверяет свои сегменты
+        lenient().when(setOperations.isMember(PROGRESS_KEY, "1")).thenReturn(false, true);
+
+        inventoryCheckService.checkInventory();
+
+        verify(lowStockTracker).reconcile(0, 3);
+        verify(lowStockTracker).reconcile(2, 3);
+        verify(lowStockTracker, never()).reconcile(1, 3);
+        verify(setOperations).add(PROGRESS_KEY, "0");
+        verify(setOperations).add(PROGRESS_KEY, "2");
+        verify(freeLock, times(2)).unlock();
+    }
+
+    @Test
+    void checkInventory_TakesOverShardAfterLockIsReleased() {
+        when(setOperations.members(PROGRESS_KEY)).thenReturn(Set.of("0", "2"));
+        when(redisLockRegistry.obtain("inventoryCheckLock:1")).thenReturn(busyLock, freeLock);
+
+        inventoryCheckService.checkInventory();
+
+        verify(lowStockTracker).reconcile(1, 3);
+        verify(setOperations).add(PROGRESS_KEY, "1");
+        verify(lowStockTracker, never()).reconcile(0, 3);
+    }
+
+    @Test
+    void checkInventory_SkipsWithoutMailSettings() {
+        ReflectionTestUtils.setField(inventoryCheckService, "mailUsername", "");
+
+        inventoryCheckService.checkInventory();
+
+        verifyNoInteractions(redisLockRegistry, lowStockTracker, stringRedisTemplate);
+    }
+
+    @Test
+    void enqueueNotifications_WritesOneNotificationPerEmployeeWithSharedPharmacyBody() {
+        Pharmacy pharmacy = Pharmacy.builder().id(1L).build();
+        List<PharmacyMedication> lowStock = List.of(stock(pharmacy, 1L, "Аспирин", 3), stock(pharmacy, 2L, "Инсулин", 1));
+        when(employeeRepository.findByPharmacyIdIn(Set.of(1L))).thenReturn(List.of(
+                Employee.builder().email("first@example.com").pharmacy(pharmacy).build(),
+                Employee.builder().email("second@example.com").pharmacy(pharmacy).build()));
+
+        assertEquals(2, inventoryCheckService.enqueueNotifications(lowStock));
+
+        ArgumentCaptor<List<NotificationOutbox>> captor = ArgumentCaptor.captor();
+        verify(notificationOutboxRepository).saveAll(captor.capture());
+        List<NotificationOutbox> notifications = captor.getValue();
+        assertEquals(List.of("first@example.com", "second@example.com"),
+                notifications.stream().map(NotificationOutbox::getRecipient).toList());
+        assertSame(notifications.get(0).getBody(), notifications.get(1).getBody());
+        assertTrue(notifications.getFirst().getBody().contains("Инсулин"));
+    }
+
+    @Test
+    void enqueueNotifications_UnmarksPositionsWhenWriteFails() {
+        Pharmacy pharmacy = Pharmacy.builder().id(1L).build();
+        List<PharmacyMedication> lowStock = List.of(stock(pharmacy, 1L, "Аспирин", 3));
+        when(employeeRepository.findByPharmacyIdIn(Set.of(1L)))
+                .thenReturn(List.of(Employee.builder().email("first@example.com").pharmacy(pharmacy).build()));
+        when(notificationOutboxRepository.saveAll(anyList())).thenThrow(new IllegalStateException("БД недоступна"));
+
+        assertThrows(IllegalStateException.class, () -> inventoryCheckService.enqueueNotifications(lowStock));
+        verify(lowStockTracker).unmarkNotified(lowStock);
+    }
+
+    private PharmacyMedication stock(Pharmacy pharmacy, Long medicationId, String name, int quantity) {
+        Medication medication = Medication.builder()
+                .id(medicationId).name(name).form(MedicationForm.TABLET).price(100.0).build();
+        return new PharmacyMedication(new PharmacyMedicationId(pharmacy.getId(), medicationId),
+                pharmacy, medication, quantity);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.bakht.pharmacy.service.event.StockChangedEvent;
+import ru.bakht.pharmacy.service.model.PharmacyMedication;
+import ru.bakht.pharmacy.service.model.PharmacyMedicationId;
+import ru.bakht.pharmacy.service.repository.PharmacyMedicationRepository;
+import ru.bakht.pharmacy.service.service.report.LowStockTracker;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LowStockTrackerTest {
+
+    private static final String KEY = "low-stock";
+
+    @Mock
+    private PharmacyMedicationRepository pharmacyMedicationRepository;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    private LowStockTracker lowStockTracker;
+
+    @BeforeEach
+    void setUp() {
+        lowStockTracker = new LowStockTracker(pharmacyMedicationRepository, stringRedisTemplate);
+        ReflectionTestUtils.setField(lowStockTracker, "defaultThreshold", 10);
+        ReflectionTestUtils.setField(lowStockTracker, "debounce", Duration.ZERO);
+        ReflectionTestUtils.setField(lowStockTracker, "maxDelay", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(lowStockTracker, "notifiedKey", KEY);
+    }
+
+    @Test
+    void drainCrossed_ChecksRepeatedChangesOnceAndReportsNewCrossing() {
+        lowStockTracker.onStockChanged(new StockChangedEvent(1L, 1L));
+        lowStockTracker.onStockChanged(new StockChangedEvent(1L, 1L));
+        lowStockTracker.onStockChanged(new StockChangedEvent(1L, 2L));
+        when(pharmacyMedicationRepository.findBelowThresholdByPharmacyIdsAndMedicationIds(Set.of(1L), Set.of(1L, 2L), 10))
+                .thenReturn(List.of(stock(1L, 1L, 3)));
+        when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.add(KEY, "1:1")).thenReturn(1L);
+
+        List<PharmacyMedication> crossed = lowStockTracker.drainCrossed();
+
+        assertEquals(1, crossed.size());
+        assertEquals(new PharmacyMedicationId(1L, 1L), crossed.getFirst().getId());
+        verify(setOperations).remove(KEY, "1:2");
+        verify(pharmacyMedicationRepository, times(1)).findBelowThresholdByPharmacyIdsAndMedicationIds(any(), any(), anyInt());
+        assertTrue(lowStockTracker.drainCrossed().isEmpty());
+    }
+
+    @Test
+    void drainCrossed_SkipsAlreadyNotifiedPosition() {
+        lowStockTracker.onStockChanged(new StockChangedEvent(1L, 1L));
+        when(pharmacyMedicationRepository.findBelowThresholdByPharmacyIdsAndMedicationIds(Set.of(1L), Set.of(1L), 10))
+                .thenReturn(List.of(stock(1L, 1L, 2)));
+        when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.add(KEY, "1:1")).thenReturn(0L);
+
+        assertTrue(lowStockTracker.drainCrossed().isEmpty());
+    }
+
+    @Test
+    void drainCrossed_WaitsUntilChangesSettle() {
+        ReflectionTestUtils.setField(lowStockTracker, "debounce", Duration.ofMinutes(1));
+        lowStockTracker.onStockChanged(new StockChangedEvent(1L, 1L));
+
+        assertTrue(lowStockTracker.drainCrossed().isEmpty());
+        verifyNoInteractions(pharmacyMedicationRepository, stringRedisTemplate);
+    }
+
+    @Test
+    void reconcile_ClearsRestockedAndReportsMissedPositionsOfShard() {
+        when(pharmacyMedicationRepository.findBelowThresholdInShard(1, 2, 10))
+                .thenReturn(List.of(stock(1L, 1L, 0), stock(3L, 3L, 5)));
+        when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.members(KEY)).thenReturn(Set.of("1:1", "2:2", "3:4"));
+        when(setOperations.add(KEY, "3:3")).thenReturn(1L);
+
+        List<PharmacyMedication> crossed = lowStockTracker.reconcile(1, 2);
+
+        assertEquals(1, crossed.size());
+        assertEquals(new PharmacyMedicationId(3L, 3L), crossed.getFirst().getId());
+        // отметка аптеки 2 относится к другому сегменту и не снимается
+        verify(setOperations).remove(KEY, "3:4");
+        verify(setOperations, never()).add(KEY, "1:1");
+    }
+
+    private PharmacyMedication stock(Long pharmacyId, Long medicationId, int quantity) {
+        return PharmacyMedication.builder()
+                .id(new PharmacyMedicationId(pharmacyId, medicationId))
+                .quantity(quantity)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.bakht.pharmacy.service.mapper.MedicationMapperImpl;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
+import ru.bakht.pharmacy.service.service.MedicationService;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет поиск лекарств на PostgreSQL: нечеткий поиск выполняется функциями расширения
+ * {@code pg_trgm}, которых нет в H2. Тест запускается при указании сервера так же, как {@link ReportQueryPlanTest}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = PostgresTestDatabase.JDBC_URL_PROPERTY, matches = ".+")
+@Import({MedicationService.class, MedicationMapperImpl.class})
+class MedicationSearchTest {
+
+    private static final PostgresTestDatabase DATABASE = new PostgresTestDatabase("medication_search_test");
+
+    @Autowired
+    private MedicationService medicationService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        DATABASE.register(registry);
+    }
+
+    @AfterAll
+    static void dropDatabase() {
+        DATABASE.drop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("TRUNCATE medications CASCADE");
+        for (String name : List.of("Cardio-Aspirin", "Aspirn", "Paracetamol", "Aspirin", "Solution 0,9%")) {
+            jdbcTemplate.update("INSERT INTO medications (name, form, price, expiration_date) "
+                    + "VALUES (?, 'TABLET', 100, DATE '2030-01-01')", name);
+        }
+    }
+
+    @Test
+    void search_RanksSubstringMatchesBeforeTypos() {
+        assertEquals(List.of("Cardio-Aspirin", "Aspirin", "Aspirn"), names(medicationService.search("aspirin", 20)));
+    }
+
+    @Test
+    void search_AppliesLimitAfterRanking() {
+        assertEquals(List.of("Cardio-Aspirin", "Aspirin"), names(medicationService.search("aspirin", 2)));
+    }
+
+    @Test
+    void search_TreatsLikeWildcardsAsText() {
+        assertTrue(medicationService.search("%%%", 20).isEmpty());
+        assertTrue(medicationService.search("___", 20).isEmpty());
+        assertEquals(List.of("Solution 0,9%"), names(medicationService.search("0,9%", 20)));
+    }
+
+    private List<String> names(List<MedicationDto> medications) {
+        return medications.stream()
+                .map(MedicationDto::getName)
+                .toList();
+    }
+}
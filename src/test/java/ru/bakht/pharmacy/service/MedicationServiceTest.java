@@ -6,7 +6,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.event.ReportDataChangedEvent;
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
 import ru.bakht.pharmacy.service.mapper.MedicationMapper;
 import ru.bakht.pharmacy.service.model.Medication;
@@ -30,6 +34,9 @@ class MedicationServiceTest {
     @Mock
     private MedicationMapper medicationMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private MedicationService medicationService;
 
@@ -41,10 +48,11 @@ class MedicationServiceTest {
         MedicationDto medicationDto = new MedicationDto(
                 1L, "Aspirin", MedicationForm.TABLET, 100.0, null);
 
-        when(medicationRepository.findAll()).thenReturn(List.of(medication));
+        when(medicationRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(medication)));
         when(medicationMapper.toDto(any(Medication.class))).thenReturn(medicationDto);
 
-        List<MedicationDto> medications = medicationService.getAll();
+        List<MedicationDto> medications = medicationService.getAll(null, 50).getContent();
 
         assertEquals(1, medications.size());
         assertEquals(1L, medications.getFirst().getId());
@@ -52,7 +60,7 @@ class MedicationServiceTest {
         assertEquals(MedicationForm.TABLET, medications.getFirst().getForm());
         assertEquals(100.0, medications.getFirst().getPrice());
 
-        verify(medicationRepository, times(1)).findAll();
+        verify(medicationRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class));
         verify(medicationMapper, times(1)).toDto(any(Medication.class));
     }
 
@@ -155,6 +163,31 @@ class MedicationServiceTest {
         medicationService.delete(medicationId);
 
         verify(medicationRepository, times(1)).deleteById(medicationId);
+        verify(eventPublisher, times(1)).publishEvent(new ReportDataChangedEvent("Лекарство", medicationId));
+    }
+
+    @Test
+    void search_TrimsQueryAndReturnsRankedMedications() {
+        Medication medication = new Medication(1L, "Aspirin", MedicationForm.TABLET, 100.0, null);
+        MedicationDto medicationDto = new MedicationDto(1L, "Aspirin", MedicationForm.TABLET, 100.0, null);
+        when(medicationRepository.searchByName("asprin", "asprin", 20)).thenReturn(List.of(medication));
+        when(medicationMapper.toDto(medication)).thenReturn(medicationDto);
+
+        List<MedicationDto> result = medicationService.search("  asprin ", 20);
+
+        assertEquals(List.of(medicationDto), result);
     }
 
+    @Test
+    void search_EscapesLikeWildcards() {
+        when(medicationRepository.searchByName("5%_\\", "5\\%\\_\\\\", 20)).thenReturn(List.of());
+
+        assertEquals(List.of(), medicationService.search("5%_\\", 20));
+    }
+
+    @Test
+    void search_RejectsTooShortQuery() {
+        assertThrows(IllegalArgumentException.class, () -> medicationService.search(" as ", 20));
+        verifyNoInteractions(medicationRepository);
+    }
 }
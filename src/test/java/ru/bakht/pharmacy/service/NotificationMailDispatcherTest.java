@@ -0,0 +1,120 @@
+package ru.bakht.pharmacy.service;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.bakht.pharmacy.service.service.report.NotificationMailDispatcher;
+import ru.bakht.pharmacy.service.service.report.NotificationMailDispatcher.Mail;
+import ru.bakht.pharmacy.service.service.report.NotificationMailDispatcher.Summary;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationMailDispatcherTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    private NotificationMailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new NotificationMailDispatcher(mailSender);
+        ReflectionTestUtils.setField(dispatcher, "maxConnections", 2);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "backoff", Duration.ZERO);
+        ReflectionTestUtils.invokeMethod(dispatcher, "init");
+        lenient().when(mailSender.createMimeMessage())
+                .thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
+    }
+
+    @Test
+    void dispatch_RetriesTransientFailure() {
+        doThrow(new MailSendException("Соединение сброшено"))
+                .doNothing()
+                .when(mailSender).send(any(MimeMessage.class));
+
+        Summary summary = dispatcher.dispatch(List.of(mail(1L)));
+
+        assertEquals(List.of(1L), summary.sentIds());
+        assertEquals(0, summary.failed());
+        verify(mailSender, times(2)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void dispatch_CountsFailedAfterLastAttempt() {
+        doThrow(new MailSendException("Сервер недоступен")).when(mailSender).send(any(MimeMessage.class));
+
+        Summary summary = dispatcher.dispatch(List.of(mail(1L)));
+
+        assertEquals(0, summary.sent());
+        assertEquals(List.of(1L), summary.failedIds());
+        verify(mailSender, times(3)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void maxSendTime_CoversAllAttemptsAndBackoff() {
+        ReflectionTestUtils.setField(dispatcher, "backoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(dispatcher, "connectionTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(dispatcher, "readTimeoutMillis", 10000L);
+        ReflectionTestUtils.setField(dispatcher, "writeTimeoutMillis", 10000L);
+
+        // 3 попытки по 5 + 10 * 10 + 10 секунд и задержки 1 + 2 секунды
+        assertEquals(Duration.ofSeconds(348), dispatcher.maxSendTime());
+    }
+
+    @Test
+    void maxSendTime_RejectsMissingSmtpTimeouts() {
+        assertThrows(IllegalStateException.class, () -> dispatcher.maxSendTime());
+    }
+
+    @Test
+    void dispatch_DoesNotRetryAuthenticationFailure() {
+        doThrow(new MailAuthenticationException("Неверный пароль")).when(mailSender).send(any(MimeMessage.class));
+
+        Summary summary = dispatcher.dispatch(List.of(mail(1L)));
+
+        assertEquals(1, summary.failed());
+        verify(mailSender, times(1)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void dispatch_SendsInParallelWithinConnectionLimit() {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            active.decrementAndGet();
+            return null;
+        }).when(mailSender).send(any(MimeMessage.class));
+
+        Summary summary = dispatcher.dispatch(LongStream.range(0, 10)
+                .mapToObj(this::mail)
+                .toList());
+
+        assertEquals(10, summary.sent());
+        assertEquals(2, maxActive.get());
+    }
+
+    private Mail mail(long id) {
+        return new Mail(id, "employee" + id + "@example.com", "Уведомление о низком запасе медикаментов", "Аспирин: 3");
+    }
+}
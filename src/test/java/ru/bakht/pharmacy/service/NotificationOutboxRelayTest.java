@@ -0,0 +1,144 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bakht.pharmacy.service.model.NotificationOutbox;
+import ru.bakht.pharmacy.service.repository.NotificationOutboxRepository;
+import ru.bakht.pharmacy.service.service.report.NotificationMailDispatcher;
+import ru.bakht.pharmacy.service.service.report.NotificationMailDispatcher.Mail;
+import ru.bakht.pharmacy.service.service.report.NotificationMailDispatcher.Summary;
+import ru.bakht.pharmacy.service.service.report.NotificationOutboxRelay;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationOutboxRelayTest {
+
+    @Mock
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Mock
+    private NotificationMailDispatcher notificationMailDispatcher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private NotificationOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new NotificationOutboxRelay(notificationOutboxRepository, notificationMailDispatcher,
+                transactionTemplate);
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "lease", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(relay, "maxAttempts", 5);
+        ReflectionTestUtils.setField(relay, "backoff", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(relay, "mailUsername", "user");
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(notificationMailDispatcher.maxConnections()).thenReturn(2);
+        lenient().when(notificationMailDispatcher.maxSendTime()).thenReturn(Duration.ofMinutes(1));
+        ReflectionTestUtils.invokeMethod(relay, "init");
+    }
+
+    @Test
+    void relay_DeletesSentAndReschedulesFailedUntilQueueIsDrained() {
+        when(notificationOutboxRepository.claimBatch(2, 300))
+                .thenReturn(List.of(notification(1L), notification(2L)), List.of(notification(3L)));
+        when(notificationMailDispatcher.dispatch(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.<List<Mail>>getArgument(0).stream().map(Mail::id).toList();
+            return ids.contains(1L)
+                    ? new Summary(List.of(1L), List.of(2L), Duration.ZERO)
+                    : new Summary(List.of(3L), List.of(), Duration.ZERO);
+        });
+
+        relay.relay();
+
+        verify(notificationOutboxRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(notificationOutboxRepository).reschedule(List.of(2L), 5, 60);
+        verify(notificationOutboxRepository).deleteAllByIdInBatch(List.of(3L));
+        verify(notificationOutboxRepository, times(2)).claimBatch(anyInt(), anyLong());
+    }
+
+    @Test
+    void relay_ExtendsLeaseOfRemainingNotificationsBeforeEachChunk() {
+        when(notificationMailDispatcher.maxConnections()).thenReturn(1);
+        ReflectionTestUtils.invokeMethod(relay, "init");
+        when(notificationOutboxRepository.claimBatch(2, 300))
+                .thenReturn(List.of(notification(1L), notification(2L)), List.of());
+        when(notificationMailDispatcher.dispatch(anyList())).thenAnswer(invocation -> {
+            Long id = invocation.<List<Mail>>getArgument(0).getFirst().id();
+            return new Summary(List.of(id), List.of(), Duration.ZERO);
+        });
+
+        relay.relay();
+
+        InOrder inOrder = inOrder(notificationMailDispatcher, notificationOutboxRepository);
+        inOrder.verify(notificationMailDispatcher).dispatch(List.of(
+                new Mail(1L, "employee1@example.com", "Уведомление", "Текст 1")));
+        inOrder.verify(notificationOutboxRepository).extendLease(List.of(2L), 300);
+        inOrder.verify(notificationMailDispatcher).dispatch(List.of(
+                new Mail(2L, "employee2@example.com", "Уведомление", "Текст 2")));
+        verify(notificationOutboxRepository, times(1)).extendLease(anyList(), anyLong());
+    }
+
+    @Test
+    void init_RejectsLeaseShorterThanMaxSendTime() {
+        when(notificationMailDispatcher.maxSendTime()).thenReturn(Duration.ofMinutes(6));
+
+        assertThrows(IllegalStateException.class, () -> ReflectionTestUtils.invokeMethod(relay, "init"));
+    }
+
+    @Test
+    void relay_StopsWhenNothingIsClaimed() {
+        when(notificationOutboxRepository.claimBatch(2, 300)).thenReturn(List.of());
+
+        relay.relay();
+
+        verify(notificationMailDispatcher, never()).dispatch(any());
+        verify(notificationOutboxRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void relay_PassesNotificationContentToDispatcher() {
+        when(notificationOutboxRepository.claimBatch(2, 300)).thenReturn(List.of(notification(7L)));
+        when(notificationMailDispatcher.dispatch(anyList()))
+                .thenReturn(new Summary(List.of(7L), List.of(), Duration.ZERO));
+
+        relay.relay();
+
+        verify(notificationMailDispatcher).dispatch(List.of(
+                new Mail(7L, "employee7@example.com", "Уведомление", "Текст 7")));
+        assertEquals(1, mockingDetails(notificationOutboxRepository).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("claimBatch"))
+                .count());
+    }
+
+    private NotificationOutbox notification(Long id) {
+        return NotificationOutbox.builder()
+                .id(id)
+                .recipient("employee" + id + "@example.com")
+                .subject("Уведомление")
+                .body("Текст " + id)
+                .build();
+    }
+}
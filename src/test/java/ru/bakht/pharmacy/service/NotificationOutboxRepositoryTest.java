@@ -0,0 +1,185 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bakht.pharmacy.service.model.NotificationOutbox;
+import ru.bakht.pharmacy.service.repository.NotificationOutboxRepository;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет захват и откладывание уведомлений на PostgreSQL: {@code FOR UPDATE SKIP LOCKED}
+ * и {@code UPDATE ... RETURNING} не поддерживаются H2. Тест запускается при указании сервера
+ * так же, как {@link ReportQueryPlanTest}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = PostgresTestDatabase.JDBC_URL_PROPERTY, matches = ".+")
+class NotificationOutboxRepositoryTest {
+
+    private static final PostgresTestDatabase DATABASE = new PostgresTestDatabase("outbox_test");
+
+    private static final long LEASE_SECONDS = 300;
+
+    @Autowired
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transactionTemplate;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        DATABASE.register(registry);
+    }
+
+    @AfterAll
+    static void dropDatabase() {
+        DATABASE.drop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("TRUNCATE notification_outbox");
+    }
+
+    @Test
+    void claimBatch_ConcurrentClaimsReturnDisjointRows() throws Exception {
+        insertPending(10);
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // первая транзакция удерживает захваченные строки, пока вторая захватывает свою пачку
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(status -> {
+                    List<Long> ids = ids(notificationOutboxRepository.claimBatch(6, LEASE_SECONDS));
+                    claimed.countDown();
+                    await(release);
+                    return ids;
+                }));
+        assertTrue(claimed.await(10, TimeUnit.SECONDS));
+        List<Long> second = transactionTemplate.execute(status ->
+                ids(notificationOutboxRepository.claimBatch(6, LEASE_SECONDS)));
+        release.countDown();
+        List<Long> firstIds = first.get(10, TimeUnit.SECONDS);
+
+        assertEquals(6, firstIds.size());
+        assertEquals(4, second.size());
+        Set<Long> all = new HashSet<>(firstIds);
+        all.addAll(second);
+        assertEquals(10, all.size());
+        assertTrue(claim(10).isEmpty(), "Захваченные строки арендованы и не захватываются повторно");
+    }
+
+    @Test
+    void claimBatchExtendLeaseAndReschedule_AdvanceAttemptsAndNextAttempt() {
+        insertPending(1);
+
+        List<Long> ids = claim(10);
+
+        assertEquals(1, ids.size());
+        assertEquals(1, attempts(ids.getFirst()));
+        assertEquals(LEASE_SECONDS, secondsUntilNextAttempt(ids.getFirst()), 5);
+
+        transactionTemplate.executeWithoutResult(status -> notificationOutboxRepository.extendLease(ids, 900));
+        assertEquals(900, secondsUntilNextAttempt(ids.getFirst()), 5);
+
+        transactionTemplate.executeWithoutResult(status -> notificationOutboxRepository.reschedule(ids, 5, 60));
+
+        assertEquals("PENDING", status(ids.getFirst()));
+        assertEquals(60, secondsUntilNextAttempt(ids.getFirst()), 5);
+
+        makeDue();
+        List<Long> retried = claim(10);
+        assertEquals(ids, retried);
+        assertEquals(2, attempts(ids.getFirst()));
+
+        transactionTemplate.executeWithoutResult(status -> notificationOutboxRepository.reschedule(ids, 5, 60));
+        assertEquals(120, secondsUntilNextAttempt(ids.getFirst()), 5);
+    }
+
+    @Test
+    void reschedule_MarksExhaustedRowFailedAndItIsNeverClaimedAgain() {
+        insertPending(1);
+        jdbcTemplate.update("UPDATE notification_outbox SET attempts = 4");
+
+        List<Long> ids = claim(10);
+        transactionTemplate.executeWithoutResult(status -> notificationOutboxRepository.reschedule(ids, 5, 60));
+
+        assertEquals("FAILED", status(ids.getFirst()));
+        makeDue();
+        assertTrue(claim(10).isEmpty());
+        assertEquals(5, attempts(ids.getFirst()));
+    }
+
+    private void insertPending(int count) {
+        jdbcTemplate.update("INSERT INTO notification_outbox (id, recipient, subject, body, next_attempt_at) "
+                + "SELECT g, 'employee' || g || '@example.com', 'Уведомление', 'Текст', now() - interval '1 minute' "
+                + "FROM generate_series(1, ?) g", count);
+    }
+
+    private void makeDue() {
+        jdbcTemplate.update("UPDATE notification_outbox SET next_attempt_at = now() - interval '1 second'");
+    }
+
+    private List<Long> claim(int batchSize) {
+        return transactionTemplate.execute(status ->
+                ids(notificationOutboxRepository.claimBatch(batchSize, LEASE_SECONDS)));
+    }
+
+    private int attempts(long id) {
+        return jdbcTemplate.queryForObject("SELECT attempts FROM notification_outbox WHERE id = ?", Integer.class, id);
+    }
+
+    private String status(long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM notification_outbox WHERE id = ?", String.class, id);
+    }
+
+    private double secondsUntilNextAttempt(long id) {
+        return jdbcTemplate.queryForObject(
+                "SELECT extract(epoch FROM next_attempt_at - now()) FROM notification_outbox WHERE id = ?",
+                Double.class, id);
+    }
+
+    private static List<Long> ids(List<NotificationOutbox> notifications) {
+        return notifications.stream().map(NotificationOutbox::getId).sorted().toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ru.bakht.pharmacy.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.integration.redis.util.RedisLockRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bakht.pharmacy.service.enums.OrderStatus;
+import ru.bakht.pharmacy.service.model.Order;
+import ru.bakht.pharmacy.service.model.dto.TotalOrdersProjection;
+import ru.bakht.pharmacy.service.repository.OrderDailyTotalRepository;
+import ru.bakht.pharmacy.service.repository.TransactionRepository;
+import ru.bakht.pharmacy.service.service.OrderDailyTotalService;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверяет дневные итоги заказов на PostgreSQL: заказы без аптеки хранятся в строке
+ * с пустым идентификатором аптеки, а ограничение {@code UNIQUE NULLS NOT DISTINCT} поддерживается
+ * только PostgreSQL. Тест запускается при указании сервера так же, как {@link ReportQueryPlanTest}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = PostgresTestDatabase.JDBC_URL_PROPERTY, matches = ".+")
+@Import({OrderDailyTotalService.class, TransactionRepository.class})
+class OrderDailyTotalRepositoryTest {
+
+    private static final PostgresTestDatabase DATABASE = new PostgresTestDatabase("order_totals_test");
+
+    private static final LocalDate DATE = LocalDate.of(2026, 10, 17);
+
+    @Autowired
+    private OrderDailyTotalRepository orderDailyTotalRepository;
+
+    @Autowired
+    private OrderDailyTotalService orderDailyTotalService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private RedisLockRegistry redisLockRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transactionTemplate;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        DATABASE.register(registry);
+    }
+
+    @AfterAll
+    static void dropDatabase() {
+        DATABASE.drop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("TRUNCATE order_daily_totals, orders");
+    }
+
+    @Test
+    void insertTotalsFromOrders_MatchesSumOverOrdersIncludingOrdersWithoutPharmacy() {
+        long pharmacyId = jdbcTemplate.queryForObject("SELECT min(id) FROM pharmacies", Long.class);
+        insertOrder(pharmacyId, 2, "0.1");
+        insertOrder(pharmacyId, 1, "0.2");
+        insertOrder(null, 3, "300.5");
+        insertOrder(null, 4, "0.7");
+
+        transactionTemplate.executeWithoutResult(status -> orderDailyTotalRepository.insertTotalsFromOrders());
+
+        TotalOrdersProjection totals = orderDailyTotalRepository.findTotalQuantityAndAmountByDateRange(DATE, DATE);
+        Map<String, Object> expected = jdbcTemplate.queryForMap(
+                "SELECT SUM(quantity) AS quantity, SUM(total_amount) AS amount FROM orders WHERE order_date = ?",
+                DATE);
+        assertEquals(((Number) expected.get("quantity")).intValue(), totals.getTotalQuantity());
+        assertEquals(((BigDecimal) expected.get("amount")).doubleValue(), totals.getTotalAmount());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM order_daily_totals", Integer.class));
+    }
+
+    @Test
+    void add_MergesOrdersWithoutPharmacyIntoOneRow() {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderDailyTotalRepository.add(DATE, null, "NEW", 1, 1, new BigDecimal("0.1"));
+            orderDailyTotalRepository.add(DATE, null, "NEW", 1, 2, new BigDecimal("0.2"));
+        });
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT order_count, total_quantity, total_amount FROM order_daily_totals WHERE pharmacy_id IS NULL");
+        assertEquals(2L, row.get("order_count"));
+        assertEquals(3L, row.get("total_quantity"));
+        assertEquals(0, new BigDecimal("0.3").compareTo((BigDecimal) row.get("total_amount")));
+    }
+
+    @Test
+    void add_StoresOrderAmountAsOrdersTableDoes() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = Order.builder()
+                    .orderDate(DATE)
+                    .quantity(3)
+                    .totalAmount(3 * 10.1)
+                    .orderStatus(OrderStatus.NEW)
+                    .build();
+            entityManager.persist(order);
+            orderDailyTotalService.add(order);
+        });
+
+        BigDecimal expected = jdbcTemplate.queryForObject("SELECT SUM(total_amount) FROM orders", BigDecimal.class);
+        BigDecimal amount = jdbcTemplate.queryForObject("SELECT total_amount FROM order_daily_totals", BigDecimal.class);
+        assertEquals(0, expected.compareTo(amount), () -> expected + " != " + amount);
+    }
+
+    private void insertOrder(Long pharmacyId, int quantity, String amount) {
+        jdbcTemplate.update("INSERT INTO orders (pharmacy_id, quantity, total_amount, order_date, status) "
+                + "VALUES (?, ?, ?, ?, 'NEW')", pharmacyId, quantity, new BigDecimal(amount), DATE);
+    }
+}
@@ -0,0 +1,143 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.integration.redis.util.RedisLockRegistry;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bakht.pharmacy.service.enums.OrderStatus;
+import ru.bakht.pharmacy.service.event.OrderTotalsChangedEvent;
+import ru.bakht.pharmacy.service.model.Order;
+import ru.bakht.pharmacy.service.model.Pharmacy;
+import ru.bakht.pharmacy.service.repository.OrderDailyTotalRepository;
+import ru.bakht.pharmacy.service.repository.TransactionRepository;
+import ru.bakht.pharmacy.service.service.OrderDailyTotalService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderDailyTotalServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 10, 17);
+
+    @Mock
+    private OrderDailyTotalRepository orderDailyTotalRepository;
+
+    @Mock
+    private RedisLockRegistry redisLockRegistry;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private Lock lock;
+
+    @InjectMocks
+    private OrderDailyTotalService orderDailyTotalService;
+
+    private Pharmacy pharmacy;
+
+    @BeforeEach
+    void setUp() {
+        pharmacy = Pharmacy.builder().id(1L).build();
+    }
+
+    @Test
+    void subtract_AppliesNegatedOrderValues() {
+        when(transactionRepository.currentTransactionId()).thenReturn(7L);
+
+        orderDailyTotalService.subtract(order(pharmacy, OrderStatus.NEW, 3, 300.0));
+
+        verify(orderDailyTotalRepository).add(eq(DATE), eq(1L), eq("NEW"), eq(-1L), eq(-3L), amount("-300.0"));
+        verify(eventPublisher).publishEvent(new OrderTotalsChangedEvent(DATE, -3, -300.0, 7L));
+    }
+
+    @Test
+    void addAll_UpsertsOncePerDatePharmacyAndStatus() {
+        Pharmacy otherPharmacy = Pharmacy.builder().id(2L).build();
+
+        orderDailyTotalService.addAll(List.of(
+                order(pharmacy, OrderStatus.NEW, 1, 100.0),
+                order(pharmacy, OrderStatus.NEW, 2, 200.0),
+                order(otherPharmacy, OrderStatus.NEW, 5, 500.0)));
+
+        verify(orderDailyTotalRepository).add(eq(DATE), eq(1L), eq("NEW"), eq(2L), eq(3L), amount("300.0"));
+        verify(orderDailyTotalRepository).add(eq(DATE), eq(2L), eq("NEW"), eq(1L), eq(5L), amount("500.0"));
+        verifyNoMoreInteractions(orderDailyTotalRepository);
+    }
+
+    @Test
+    void addAll_SumsAmountsExactly() {
+        orderDailyTotalService.addAll(List.of(
+                order(pharmacy, OrderStatus.NEW, 1, 0.1),
+                order(pharmacy, OrderStatus.NEW, 1, 0.2)));
+
+        // в double 0.1 + 0.2 дает 0.30000000000000004, а SUM по столбцу DECIMAL дает 0.3
+        verify(orderDailyTotalRepository).add(eq(DATE), eq(1L), eq("NEW"), eq(2L), eq(2L), amount("0.3"));
+    }
+
+    @Test
+    void add_RoundsAmountAsStoredByPostgres() {
+        when(transactionRepository.currentTransactionId()).thenReturn(7L);
+
+        // 3 * 10.1 дает в double 30.299999999999997, а столбец DECIMAL хранит 30.3
+        orderDailyTotalService.add(order(pharmacy, OrderStatus.NEW, 3, 3 * 10.1));
+
+        verify(orderDailyTotalRepository).add(eq(DATE), eq(1L), eq("NEW"), eq(1L), eq(3L), amount("30.3"));
+    }
+
+    @Test
+    void add_CountsOrderWithoutPharmacyUnderEmptyPharmacy() {
+        when(transactionRepository.currentTransactionId()).thenReturn(7L);
+
+        orderDailyTotalService.add(order(null, OrderStatus.COMPLETED, 2, 200.0));
+
+        verify(orderDailyTotalRepository).add(eq(DATE), isNull(), eq("COMPLETED"), eq(1L), eq(2L), amount("200.0"));
+        verify(eventPublisher).publishEvent(new OrderTotalsChangedEvent(DATE, 2, 200.0, 7L));
+    }
+
+    @Test
+    void rebuild_SkipsWhenAnotherInstanceHoldsLock() {
+        when(redisLockRegistry.obtain(any())).thenReturn(lock);
+        when(lock.tryLock()).thenReturn(false);
+
+        orderDailyTotalService.rebuild();
+
+        verifyNoInteractions(transactionTemplate, orderDailyTotalRepository);
+        verify(lock, never()).unlock();
+    }
+
+    private static BigDecimal amount(String value) {
+        BigDecimal expected = new BigDecimal(value);
+        return argThat(amount -> amount.compareTo(expected) == 0);
+    }
+
+    private Order order(Pharmacy pharmacy, OrderStatus status, int quantity, double amount) {
+        return Order.builder()
+                .pharmacy(pharmacy)
+                .orderStatus(status)
+                .orderDate(DATE)
+                .quantity(quantity)
+                .totalAmount(amount)
+                .build();
+    }
+}
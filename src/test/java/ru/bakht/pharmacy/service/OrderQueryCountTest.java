@@ -0,0 +1,199 @@
+package ru.bakht.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import ru.bakht.pharmacy.service.enums.EmployeePosition;
+import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.enums.OrderStatus;
+import ru.bakht.pharmacy.service.mapper.*;
+import ru.bakht.pharmacy.service.model.*;
+import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.TotalOrders;
+import ru.bakht.pharmacy.service.repository.OrderRepository;
+import ru.bakht.pharmacy.service.repository.TransactionRepository;
+import ru.bakht.pharmacy.service.service.OrderDailyTotalService;
+import ru.bakht.pharmacy.service.service.OrderService;
+import ru.bakht.pharmacy.service.service.report.ConsumptionRateIndex;
+import ru.bakht.pharmacy.service.service.report.CsvReportService;
+import ru.bakht.pharmacy.service.service.report.OrderTotalsIndex;
+import ru.bakht.pharmacy.service.service.report.ReportService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({
+        OrderService.class,
+        ReportService.class,
+        OrderMapperImpl.class,
+        CustomerMapperImpl.class,
+        EmployeeMapperImpl.class,
+        PharmacyMapperImpl.class,
+        MedicationMapperImpl.class
+})
+public class OrderQueryCountTest {
+
+    private static final int ORDERS = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private OrderDailyTotalService orderDailyTotalService;
+
+    @MockBean
+    private OrderTotalsIndex orderTotalsIndex;
+
+    @MockBean
+    private ConsumptionRateIndex consumptionRateIndex;
+
+    @MockBean
+    private TransactionRepository transactionRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDERS; i++) {
+            var pharmacy = testEntityManager.persist(Pharmacy.builder()
+                    .name("Аптека №" + i).address("ул. Ленина, " + i).phone("8900765432" + i).build());
+            var employee = testEntityManager.persist(Employee.builder()
+                    .name("Сотрудник " + i).position(EmployeePosition.PHARMACIST)
+                    .email("employee" + i + "@example.com").pharmacy(pharmacy).build());
+            var customer = testEntityManager.persist(Customer.builder()
+                    .name("Покупатель " + i).address("ул. Ленина, " + i).phone("89001234567").build());
+            var medication = testEntityManager.persist(Medication.builder()
+                    .name("Лекарство " + i).form(MedicationForm.TABLET).price(100.0).build());
+            testEntityManager.persist(new PharmacyMedication(
+                    new PharmacyMedicationId(pharmacy.getId(), medication.getId()), pharmacy, medication, 10));
+            testEntityManager.persist(Order.builder()
+                    .customer(customer).employee(employee).pharmacy(pharmacy).medication(medication)
+                    .quantity(1).totalAmount(100.0).orderDate(LocalDate.now()).orderStatus(OrderStatus.NEW)
+                    .build());
+            testEntityManager.persist(new OrderDailyTotal(
+                    new OrderDailyTotalId(LocalDate.now(), pharmacy.getId(), OrderStatus.NEW), 1L, 1L, BigDecimal.valueOf(100.0)));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAll_ExecutesSingleStatement() {
+        var page = orderService.getAll(null, 50);
+
+        assertEquals(ORDERS, page.getContent().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getById_ExecutesSingleStatement() {
+        var id = orderService.getAll(null, 1).getContent().getFirst().getId();
+        testEntityManager.clear();
+        statistics.clear();
+
+        orderService.getById(id);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getByFilters_ExecutesSingleStatement() {
+        var filter = new OrderDto();
+        filter.setOrderStatus(OrderStatus.NEW);
+
+        List<OrderDto> result = orderService.getByFilters(filter);
+
+        assertEquals(ORDERS, result.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getOrdersByCustomerPhone_ExecutesSingleStatement() {
+        List<OrderDto> result = reportService.getOrdersByCustomerPhone("89001234567");
+
+        assertEquals(ORDERS, result.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getTotalQuantityAndAmount_ReadsDailyTotalsInSingleStatement() {
+        TotalOrders result = reportService.getTotalQuantityAndAmount(LocalDate.now(), LocalDate.now());
+
+        assertEquals(ORDERS, result.getTotalQuantity());
+        assertEquals(ORDERS * 100.0, result.getTotalAmount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void writeOrdersByCustomerPhone_StreamsCsvInSingleStatement() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        reportService.writeOrdersByCustomerPhone("89001234567", new CsvReportService(), outputStream);
+
+        assertEquals(ORDERS + 1, outputStream.toString().split("\r\n").length);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void create_ValidatesRelatedEntitiesInSingleStatement() {
+        var existing = orderService.getAll(null, 1).getContent().getFirst();
+        testEntityManager.clear();
+        statistics.clear();
+
+        existing.setId(null);
+        existing.setQuantity(3);
+        var created = orderService.create(existing);
+        testEntityManager.flush();
+
+        assertEquals(300.0, created.getTotalAmount());
+        // проверка связей, вставка заказа и списание остатка; идентификатор берется из уже выделенного пула
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findDailyConsumptionSince_GroupsByPositionAndDayInSingleStatement() {
+        var consumption = orderRepository.findDailyConsumptionSince(LocalDate.now().minusDays(7));
+
+        assertEquals(ORDERS, consumption.size());
+        assertEquals(1L, consumption.getFirst().getQuantity());
+        assertEquals(LocalDate.now(), consumption.getFirst().getOrderDate());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -1,26 +1,39 @@
 package ru.bakht.pharmacy.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import ru.bakht.pharmacy.service.enums.EmployeePosition;
 import ru.bakht.pharmacy.service.enums.MedicationForm;
 import ru.bakht.pharmacy.service.enums.OrderStatus;
+import ru.bakht.pharmacy.service.event.ReportDataChangedEvent;
+import ru.bakht.pharmacy.service.event.StockChangedEvent;
+import ru.bakht.pharmacy.service.event.StockConsumedEvent;
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
 import ru.bakht.pharmacy.service.mapper.OrderMapper;
 import ru.bakht.pharmacy.service.model.*;
 import ru.bakht.pharmacy.service.model.dto.*;
 import ru.bakht.pharmacy.service.repository.*;
+import ru.bakht.pharmacy.service.service.OrderDailyTotalService;
 import ru.bakht.pharmacy.service.service.OrderService;
 
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -47,9 +60,24 @@ public class OrderServiceTest {
     @Mock
     private MedicationRepository medicationRepository;
 
+    @Mock
+    private PharmacyMedicationRepository pharmacyMedicationRepository;
+
     @Mock
     private EntityManager entityManager;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private OrderDailyTotalService orderDailyTotalService;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private OrderService orderService;
 
@@ -105,18 +133,32 @@ public class OrderServiceTest {
 
     @Test
     void getAllOrders_ReturnsOrderList() {
-        when(orderRepository.findAll()).thenReturn(List.of(order));
+        when(orderRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(order)));
         when(orderMapper.toDto(any(Order.class))).thenReturn(orderDto);
 
-        List<OrderDto> result = orderService.getAll();
+        List<OrderDto> result = orderService.getAll(null, 50).getContent();
 
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(orderDto, result.getFirst());
-        verify(orderRepository, times(1)).findAll();
+        verify(orderRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class));
         verify(orderMapper, times(1)).toDto(any(Order.class));
     }
 
+    @Test
+    void getAllOrders_ReturnsNextCursorWhenSliceHasNext() {
+        when(orderRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(order), PageRequest.ofSize(1), true));
+        when(orderMapper.toDto(any(Order.class))).thenReturn(orderDto);
+
+        CursorPage<OrderDto> result = orderService.getAll(null, 1);
+
+        assertTrue(result.isHasNext());
+        assertEquals(1L, result.getNextCursor());
+        assertEquals(1, result.getContent().size());
+    }
+
     @Test
     void getOrderById_ReturnsOrderDto() {
         when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
@@ -145,35 +187,114 @@ public class OrderServiceTest {
 
     @Test
     void createOrder_ReturnsOrderDto() {
-        when(employeeRepository.findById(1L)).thenReturn(Optional.of(employee));
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
-        when(pharmacyRepository.findById(1L)).thenReturn(Optional.of(pharmacy));
-        when(medicationRepository.findById(1L)).thenReturn(Optional.of(medication));
-        when(entityManager.find(eq(PharmacyMedication.class),
-                any(PharmacyMedicationId.class))).thenReturn(pharmacyMedication);
+        when(orderRepository.findOrderValidationData(1L, 1L, 1L, 1L))
+                .thenReturn(Optional.of(validationData(employee, 50)));
         when(orderMapper.toEntity(any(OrderDto.class))).thenReturn(order);
         when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(pharmacyMedicationRepository.decrementQuantity(1L, 1L, 2)).thenReturn(1);
         when(orderMapper.toDto(any(Order.class))).thenReturn(orderDto);
+        when(transactionRepository.currentTransactionId()).thenReturn(7L);
 
         OrderDto result = orderService.create(orderDto);
 
         assertNotNull(result);
         assertEquals(orderDto, result);
         verify(orderRepository, times(1)).save(any(Order.class));
-        verify(entityManager, times(1)).merge(any(PharmacyMedication.class));
+        verify(pharmacyMedicationRepository, times(1)).decrementQuantity(1L, 1L, 2);
+        verify(orderDailyTotalService, times(1)).add(order);
+        verify(eventPublisher, times(1)).publishEvent(new StockChangedEvent(1L, 1L));
+        verify(eventPublisher, times(1)).publishEvent(new StockConsumedEvent(1L, 1L, 2, LocalDate.now(), 7L));
+    }
+
+    @Test
+    void createOrder_ThrowsWhenStockIsInsufficient() {
+        when(orderRepository.findOrderValidationData(1L, 1L, 1L, 1L))
+                .thenReturn(Optional.of(validationData(employee, 50)));
+        when(orderMapper.toEntity(any(OrderDto.class))).thenReturn(order);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(pharmacyMedicationRepository.decrementQuantity(1L, 1L, 2)).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.create(orderDto));
+    }
+
+    @Test
+    void createOrder_ThrowsBeforeSaveWhenStockIsBelowRequested() {
+        when(orderMapper.toEntity(any(OrderDto.class))).thenReturn(order);
+        when(orderRepository.findOrderValidationData(1L, 1L, 1L, 1L))
+                .thenReturn(Optional.of(validationData(employee, 1)));
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.create(orderDto));
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(pharmacyMedicationRepository, never()).decrementQuantity(anyLong(), anyLong(), anyInt());
+        verifyNoInteractions(orderDailyTotalService);
+    }
+
+    @Test
+    void createOrder_ThrowsWhenEmployeeNotFound() {
+        when(orderMapper.toEntity(any(OrderDto.class))).thenReturn(order);
+        when(orderRepository.findOrderValidationData(1L, 1L, 1L, 1L))
+                .thenReturn(Optional.of(validationData(null, 50)));
+
+        EntityNotFoundException thrown = assertThrows(
+                EntityNotFoundException.class,
+                () -> orderService.create(orderDto)
+        );
+
+        assertTrue(thrown.getMessage().contains("Сотрудник с ID 1 не найден"));
+        verify(employeeRepository, never()).findById(any());
+    }
+
+    @Test
+    void createAllOrders_DecrementsStockAndSavesBatch() {
+        when(pharmacyRepository.findAllById(anySet())).thenReturn(List.of(pharmacy));
+        when(employeeRepository.findAllById(anySet())).thenReturn(List.of(employee));
+        when(customerRepository.findAllById(anySet())).thenReturn(List.of(customer));
+        when(medicationRepository.findAllById(anySet())).thenReturn(List.of(medication));
+        when(pharmacyMedicationRepository.findByPharmacyIdsAndMedicationIds(anySet(), anySet()))
+                .thenReturn(List.of(pharmacyMedication));
+        when(orderMapper.toEntity(any(OrderDto.class))).thenAnswer(invocation -> {
+            Order entity = new Order();
+            entity.setQuantity(2);
+            return entity;
+        });
+        when(pharmacyMedicationRepository.decrementQuantity(1L, 1L, 4)).thenReturn(1);
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(orderMapper.toDto(any(Order.class))).thenReturn(orderDto);
+        when(transactionRepository.currentTransactionId()).thenReturn(7L);
+
+        List<OrderDto> result = orderService.createAll(List.of(orderDto, orderDto));
+
+        assertEquals(2, result.size());
+        verify(pharmacyMedicationRepository, times(1)).decrementQuantity(1L, 1L, 4);
+        verify(eventPublisher, times(2)).publishEvent(new StockConsumedEvent(1L, 1L, 2, LocalDate.now(), 7L));
+        verify(orderRepository, times(1)).saveAll(anyList());
+        verify(employeeRepository, never()).findById(any());
+    }
+
+    @Test
+    void createAllOrders_ThrowsWhenBatchExceedsStock() {
+        when(pharmacyRepository.findAllById(anySet())).thenReturn(List.of(pharmacy));
+        when(employeeRepository.findAllById(anySet())).thenReturn(List.of(employee));
+        when(customerRepository.findAllById(anySet())).thenReturn(List.of(customer));
+        when(medicationRepository.findAllById(anySet())).thenReturn(List.of(medication));
+        when(pharmacyMedicationRepository.findByPharmacyIdsAndMedicationIds(anySet(), anySet()))
+                .thenReturn(List.of(pharmacyMedication));
+        when(orderMapper.toEntity(any(OrderDto.class))).thenAnswer(invocation -> new Order());
+        when(pharmacyMedicationRepository.decrementQuantity(1L, 1L, 4)).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.createAll(List.of(orderDto, orderDto)));
+        verify(orderRepository, never()).saveAll(anyList());
     }
 
     @Test
     void updateOrder_ReturnsOrderDto() {
         when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
-        when(employeeRepository.findById(1L)).thenReturn(Optional.of(employee));
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
-        when(pharmacyRepository.findById(1L)).thenReturn(Optional.of(pharmacy));
-        when(medicationRepository.findById(1L)).thenReturn(Optional.of(medication));
-        when(entityManager.find(eq(PharmacyMedication.class),
-                any(PharmacyMedicationId.class))).thenReturn(pharmacyMedication);
+        when(orderRepository.findOrderValidationData(1L, 1L, 1L, 1L))
+                .thenReturn(Optional.of(validationData(employee, 50)));
         when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(pharmacyMedicationRepository.decrementQuantity(1L, 1L, 2)).thenReturn(1);
         when(orderMapper.toDto(any(Order.class))).thenReturn(orderDto);
+        when(transactionRepository.currentTransactionId()).thenReturn(7L);
 
         OrderDto result = orderService.update(1L, orderDto);
 
@@ -181,17 +302,95 @@ public class OrderServiceTest {
         assertEquals(orderDto, result);
         verify(orderRepository, times(1)).findById(1L);
         verify(orderRepository, times(1)).save(any(Order.class));
-        verify(entityManager, times(1)).merge(any(PharmacyMedication.class));
+        verify(pharmacyMedicationRepository, times(1)).decrementQuantity(1L, 1L, 2);
+        var rollup = inOrder(orderDailyTotalService);
+        rollup.verify(orderDailyTotalService).subtract(order);
+        rollup.verify(orderDailyTotalService).add(order);
+        var consumption = inOrder(eventPublisher);
+        consumption.verify(eventPublisher).publishEvent(new StockConsumedEvent(1L, 1L, -2, LocalDate.now(), 7L));
+        consumption.verify(eventPublisher).publishEvent(new StockConsumedEvent(1L, 1L, 2, LocalDate.now(), 7L));
+    }
+
+    @Test
+    void updateOrder_CancelledOrderOnlyRemovesConsumption() {
+        orderDto.setOrderStatus(OrderStatus.CANCELLED);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        doAnswer(invocation -> {
+            order.setOrderStatus(OrderStatus.CANCELLED);
+            return null;
+        }).when(orderMapper).updateEntityFromDto(orderDto, order);
+        when(orderRepository.findOrderValidationData(1L, 1L, 1L, 1L))
+                .thenReturn(Optional.of(validationData(employee, 50)));
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(pharmacyMedicationRepository.decrementQuantity(1L, 1L, 2)).thenReturn(1);
+        when(transactionRepository.currentTransactionId()).thenReturn(7L);
+
+        orderService.update(1L, orderDto);
+
+        verify(eventPublisher, times(1)).publishEvent(new StockConsumedEvent(1L, 1L, -2, LocalDate.now(), 7L));
+        verify(eventPublisher, never()).publishEvent(new StockConsumedEvent(1L, 1L, 2, LocalDate.now(), 7L));
     }
 
 
     @Test
     void deleteOrderById_SuccessfulDeletion() {
         Long orderId = 10L;
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(transactionRepository.currentTransactionId()).thenReturn(7L);
 
         orderService.delete(orderId);
 
+        verify(orderDailyTotalService, times(1)).subtract(order);
+        verify(eventPublisher, times(1)).publishEvent(new StockConsumedEvent(1L, 1L, -2, LocalDate.now(), 7L));
         verify(orderRepository, times(1)).deleteById(orderId);
+        verify(eventPublisher, times(1)).publishEvent(new ReportDataChangedEvent("Заказ", orderId));
     }
 
+    @Test
+    void exportNdjson_WritesOneOrderPerLine() throws Exception {
+        when(orderRepository.streamAllWithDetails()).thenReturn(Stream.of(order, order));
+        when(orderMapper.toDto(any(Order.class))).thenReturn(orderDto);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        orderService.exportNdjson(outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(orderDto, objectMapper.readValue(lines[0], OrderDto.class));
+        verify(orderMapper, times(2)).toDto(any(Order.class));
+    }
+
+    private OrderValidationProjection validationData(Employee employee, Integer stockQuantity) {
+        return new OrderValidationProjection() {
+            @Override
+            public Medication getMedication() {
+                return medication;
+            }
+
+            @Override
+            public Employee getEmployee() {
+                return employee;
+            }
+
+            @Override
+            public Customer getCustomer() {
+                return customer;
+            }
+
+            @Override
+            public Pharmacy getPharmacy() {
+                return pharmacy;
+            }
+
+            @Override
+            public Long getEmployeePharmacyId() {
+                return employee != null ? employee.getPharmacy().getId() : null;
+            }
+
+            @Override
+            public Integer getStockQuantity() {
+                return stockQuantity;
+            }
+        };
+    }
 }
@@ -0,0 +1,175 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.bakht.pharmacy.service.event.OrderTotalsChangedEvent;
+import ru.bakht.pharmacy.service.model.dto.DailyOrderTotalsProjection;
+import ru.bakht.pharmacy.service.model.dto.TotalOrders;
+import ru.bakht.pharmacy.service.model.dto.TransactionSnapshot;
+import ru.bakht.pharmacy.service.repository.OrderDailyTotalRepository;
+import ru.bakht.pharmacy.service.repository.TransactionRepository;
+import ru.bakht.pharmacy.service.service.report.OrderTotalsIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderTotalsIndexTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 1, 1);
+
+    @Mock
+    private OrderDailyTotalRepository orderDailyTotalRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderTotalsIndex orderTotalsIndex;
+
+    @BeforeEach
+    void setUp() {
+        orderTotalsIndex = new OrderTotalsIndex(orderDailyTotalRepository, transactionRepository, transactionManager);
+        // транзакции с идентификаторами меньше 100 зафиксированы до снимка, кроме активной транзакции 90
+        lenient().when(transactionRepository.currentSnapshot()).thenReturn(TransactionSnapshot.parse("90:100:90"));
+    }
+
+    @Test
+    void findTotals_IsEmptyUntilIndexIsLoaded() {
+        assertTrue(orderTotalsIndex.findTotals(START, START).isEmpty());
+    }
+
+    @Test
+    void findTotals_MatchesDirectSumForRandomRanges() {
+        Random random = new Random(42);
+        long[] quantities = new long[300];
+        double[] amounts = new double[300];
+        List<DailyOrderTotalsProjection> dailyTotals = new ArrayList<>();
+        for (int day = 0; day < quantities.length; day++) {
+            quantities[day] = random.nextInt(10);
+            amounts[day] = quantities[day] * 50.0;
+            dailyTotals.add(dailyTotal(START.plusDays(day), quantities[day], amounts[day]));
+        }
+        when(orderDailyTotalRepository.findDailyTotals()).thenReturn(dailyTotals);
+        orderTotalsIndex.reconcile();
+
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(quantities.length);
+            int to = from + random.nextInt(quantities.length - from);
+            long expectedQuantity = 0;
+            double expectedAmount = 0;
+            for (int day = from; day <= to; day++) {
+                expectedQuantity += quantities[day];
+                expectedAmount += amounts[day];
+            }
+
+            TotalOrders totals = orderTotalsIndex.findTotals(START.plusDays(from), START.plusDays(to)).orElseThrow();
+
+            assertEquals(expectedQuantity, totals.getTotalQuantity().longValue());
+            assertEquals(expectedAmount, totals.getTotalAmount(), 1e-6);
+        }
+    }
+
+    @Test
+    void onOrderTotalsChanged_ExtendsIndexBeyondLoadedDates() {
+        when(orderDailyTotalRepository.findDailyTotals()).thenReturn(List.of(dailyTotal(START, 2, 200.0)));
+        orderTotalsIndex.reconcile();
+
+        orderTotalsIndex.onOrderTotalsChanged(new OrderTotalsChangedEvent(START.plusYears(1), 3, 300.0, 101));
+        orderTotalsIndex.onOrderTotalsChanged(new OrderTotalsChangedEvent(START.minusDays(10), 1, 100.0, 102));
+        orderTotalsIndex.onOrderTotalsChanged(new OrderTotalsChangedEvent(START, -2, -200.0, 103));
+
+        TotalOrders all = orderTotalsIndex.findTotals(START.minusYears(1), START.plusYears(2)).orElseThrow();
+        assertEquals(4, all.getTotalQuantity());
+        assertEquals(400.0, all.getTotalAmount());
+        TotalOrders lastYear = orderTotalsIndex.findTotals(START.plusDays(1), START.plusYears(1)).orElseThrow();
+        assertEquals(3, lastYear.getTotalQuantity());
+    }
+
+    @Test
+    void reconcile_AppliesEventsReceivedDuringRebuildThatAreNotInSnapshot() {
+        when(orderDailyTotalRepository.findDailyTotals()).thenAnswer(invocation -> {
+            // заказ, зафиксированный после снимка, пока итоги читаются из БД
+            orderTotalsIndex.onOrderTotalsChanged(new OrderTotalsChangedEvent(START, 3, 300.0, 101));
+            // заказ транзакции, видимой в снимке: его итоги уже прочитаны из БД
+            orderTotalsIndex.onOrderTotalsChanged(new OrderTotalsChangedEvent(START, 5, 500.0, 80));
+            return List.of(dailyTotal(START, 7, 700.0));
+        });
+
+        orderTotalsIndex.reconcile();
+
+        TotalOrders totals = orderTotalsIndex.findTotals(START, START).orElseThrow();
+        assertEquals(10, totals.getTotalQuantity());
+        assertEquals(1000.0, totals.getTotalAmount());
+    }
+
+    @Test
+    void onOrderTotalsChanged_SkipsEventsAlreadyInSnapshot() {
+        when(orderDailyTotalRepository.findDailyTotals()).thenReturn(List.of(dailyTotal(START, 2, 200.0)));
+        orderTotalsIndex.reconcile();
+
+        // событие транзакции, зафиксированной до снимка, но доставленное после замены деревьев
+        orderTotalsIndex.onOrderTotalsChanged(new OrderTotalsChangedEvent(START, 2, 200.0, 50));
+        // транзакция 90 была активна в момент снимка, поэтому ее итогов в БД еще не было
+        orderTotalsIndex.onOrderTotalsChanged(new OrderTotalsChangedEvent(START, 1, 100.0, 90));
+
+        assertEquals(3, orderTotalsIndex.findTotals(START, START).orElseThrow().getTotalQuantity());
+    }
+
+    @Test
+    void findTotals_FallsBackToDatabaseForPeriodsWithDatesOutsideWindow() {
+        LocalDate firstYear = LocalDate.of(1, 1, 1);
+        when(orderDailyTotalRepository.findDailyTotals())
+                .thenReturn(List.of(dailyTotal(firstYear, 1, 100.0), dailyTotal(START, 2, 200.0)));
+        orderTotalsIndex.reconcile();
+
+        orderTotalsIndex.onOrderTotalsChanged(new OrderTotalsChangedEvent(LocalDate.of(9999, 12, 31), 4, 400.0, 101));
+
+        assertEquals(2, orderTotalsIndex.findTotals(START.minusYears(1), START.plusYears(1))
+                .orElseThrow().getTotalQuantity());
+        assertTrue(orderTotalsIndex.findTotals(firstYear, START).isEmpty());
+        assertTrue(orderTotalsIndex.findTotals(START, LocalDate.of(9999, 12, 31)).isEmpty());
+    }
+
+    @Test
+    void reconcile_KeepsPreviousIndexWhenDatabaseFails() {
+        when(orderDailyTotalRepository.findDailyTotals())
+                .thenReturn(List.of(dailyTotal(START, 2, 200.0)))
+                .thenThrow(new IllegalStateException("БД недоступна"));
+        orderTotalsIndex.reconcile();
+
+        orderTotalsIndex.reconcile();
+
+        assertEquals(2, orderTotalsIndex.findTotals(START, START).orElseThrow().getTotalQuantity());
+    }
+
+    private DailyOrderTotalsProjection dailyTotal(LocalDate date, long quantity, double amount) {
+        return new DailyOrderTotalsProjection() {
+            @Override
+            public LocalDate getOrderDate() {
+                return date;
+            }
+
+            @Override
+            public Long getTotalQuantity() {
+                return quantity;
+            }
+
+            @Override
+            public Double getTotalAmount() {
+                return amount;
+            }
+        };
+    }
+}
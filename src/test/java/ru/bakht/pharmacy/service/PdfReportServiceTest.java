@@ -0,0 +1,92 @@
+package ru.bakht.pharmacy.service;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.enums.OrderStatus;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
+import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.service.report.PdfReportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfReportServiceTest {
+
+    private static final MedicationDto MEDICATION = new MedicationDto(
+            1L, "Аспирин", MedicationForm.TABLET, 100.0, LocalDate.of(2030, 1, 1));
+
+    private PdfReportService pdfReportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pdfReportService = new PdfReportService();
+        // DejaVu Sans распространяется под свободной лицензией и содержит кириллицу
+        Path font = Path.of(getClass().getResource("/fonts/DejaVuSans.ttf").toURI());
+        ReflectionTestUtils.setField(pdfReportService, "fontPath", font.toString());
+    }
+
+    @Test
+    void writeMedicationsReport_RendersCyrillicText() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        pdfReportService.writeMedicationsReport(List.of(MEDICATION), outputStream);
+
+        String text = extractText(outputStream.toByteArray(), 1);
+        assertTrue(text.contains("Отчет по лекарствам"), text);
+        assertTrue(text.contains("Наименование"), text);
+        assertTrue(text.contains("Аспирин"), text);
+    }
+
+    @Test
+    void writeOrdersReport_ReusesParsedFontAndWritesAllRows() throws IOException {
+        List<OrderDto> orders = LongStream.rangeClosed(1, 250)
+                .mapToObj(id -> OrderDto.builder()
+                        .id(id)
+                        .medication(MEDICATION)
+                        .quantity(1)
+                        .totalAmount(100.0)
+                        .orderDate(LocalDate.of(2026, 10, 17))
+                        .orderStatus(OrderStatus.NEW)
+                        .build())
+                .toList();
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        pdfReportService.writeOrdersReport(orders, first);
+        Object fontProgram = ReflectionTestUtils.getField(pdfReportService, "fontProgram");
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        pdfReportService.writeOrdersReport(orders, second);
+
+        assertSame(fontProgram, ReflectionTestUtils.getField(pdfReportService, "fontProgram"));
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(second.toByteArray())))) {
+            String lastPage = PdfTextExtractor.getTextFromPage(document.getLastPage());
+            assertTrue(lastPage.contains("250"), lastPage);
+            assertTrue(lastPage.contains("Аспирин"), lastPage);
+        }
+    }
+
+    @Test
+    void writeMedicationsReport_FailsWhenFontIsMissing() {
+        ReflectionTestUtils.setField(pdfReportService, "fontPath", "missing-font.ttf");
+
+        assertThrows(IOException.class,
+                () -> pdfReportService.writeMedicationsReport(List.of(MEDICATION), new ByteArrayOutputStream()));
+    }
+
+    private String extractText(byte[] pdf, int page) throws IOException {
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+            return PdfTextExtractor.getTextFromPage(document.getPage(page));
+        }
+    }
+}
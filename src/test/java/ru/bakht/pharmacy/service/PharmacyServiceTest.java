@@ -1,16 +1,30 @@
 package ru.bakht.pharmacy.service;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.event.ReportDataChangedEvent;
+import ru.bakht.pharmacy.service.event.StockChangedEvent;
 import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
 import ru.bakht.pharmacy.service.mapper.PharmacyMapper;
+import ru.bakht.pharmacy.service.model.Medication;
 import ru.bakht.pharmacy.service.model.Pharmacy;
+import ru.bakht.pharmacy.service.model.PharmacyMedication;
+import ru.bakht.pharmacy.service.model.PharmacyMedicationId;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.model.dto.PharmacyDto;
+import ru.bakht.pharmacy.service.model.dto.PharmacyMedicationDto;
 import ru.bakht.pharmacy.service.repository.PharmacyRepository;
+import ru.bakht.pharmacy.service.service.MedicationService;
 import ru.bakht.pharmacy.service.service.PharmacyService;
 
 import java.util.List;
@@ -29,6 +43,15 @@ public class PharmacyServiceTest {
     @Mock
     private PharmacyMapper pharmacyMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private MedicationService medicationService;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private PharmacyService pharmacyService;
 
@@ -41,19 +64,56 @@ public class PharmacyServiceTest {
                 1L, "Аптека №1", "ул. Ленина, 2", "89007654321", null);
         pharmacyDto = new PharmacyDto(
                 1L, "Аптека №1", "ул. Ленина, 2", "89007654321");
+        ReflectionTestUtils.setField(pharmacyService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(pharmacyService, "self", pharmacyService);
+    }
+
+    @Test
+    void addOrUpdatePharmacyMedication_ReferencesCachedMedicationWithoutLoadingIt() {
+        var medicationDto = new MedicationDto(2L, "Аспирин", MedicationForm.TABLET, 100.0, null);
+        var pharmacyReference = new Pharmacy();
+        var medicationReference = new Medication();
+        when(pharmacyRepository.findById(1L)).thenReturn(Optional.of(pharmacy));
+        when(pharmacyMapper.toDto(pharmacy)).thenReturn(pharmacyDto);
+        when(medicationService.getById(2L)).thenReturn(medicationDto);
+        when(entityManager.getReference(Pharmacy.class, 1L)).thenReturn(pharmacyReference);
+        when(entityManager.getReference(Medication.class, 2L)).thenReturn(medicationReference);
+
+        pharmacyService.addOrUpdatePharmacyMedication(new PharmacyMedicationDto(pharmacyDto, medicationDto, 5));
+
+        verify(entityManager).persist(new PharmacyMedication(
+                new PharmacyMedicationId(1L, 2L), pharmacyReference, medicationReference, 5));
+        verify(entityManager, never()).find(eq(Medication.class), any());
+        verify(eventPublisher).publishEvent(new StockChangedEvent(1L, 2L));
+    }
+
+    @Test
+    void addOrUpdatePharmacyMedication_AddsQuantityToExistingRecord() {
+        var medicationDto = new MedicationDto(2L, "Аспирин", MedicationForm.TABLET, 100.0, null);
+        var existing = new PharmacyMedication(new PharmacyMedicationId(1L, 2L), pharmacy, null, 3);
+        when(pharmacyRepository.findById(1L)).thenReturn(Optional.of(pharmacy));
+        when(pharmacyMapper.toDto(pharmacy)).thenReturn(pharmacyDto);
+        when(medicationService.getById(2L)).thenReturn(medicationDto);
+        when(entityManager.find(PharmacyMedication.class, new PharmacyMedicationId(1L, 2L))).thenReturn(existing);
+
+        pharmacyService.addOrUpdatePharmacyMedication(new PharmacyMedicationDto(pharmacyDto, medicationDto, 5));
+
+        assertEquals(8, existing.getQuantity());
+        verify(entityManager, never()).persist(any());
     }
 
     @Test
     void getAllPharmacies_ReturnsPharmacyDtoList() {
-        when(pharmacyRepository.findAll()).thenReturn(List.of(pharmacy));
+        when(pharmacyRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(pharmacy)));
         when(pharmacyMapper.toDto(any(Pharmacy.class))).thenReturn(pharmacyDto);
 
-        List<PharmacyDto> result = pharmacyService.getAll();
+        List<PharmacyDto> result = pharmacyService.getAll(null, 50).getContent();
 
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(pharmacyDto, result.getFirst());
-        verify(pharmacyRepository, times(1)).findAll();
+        verify(pharmacyRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class));
         verify(pharmacyMapper, times(1)).toDto(any(Pharmacy.class));
     }
 
@@ -132,5 +192,6 @@ public class PharmacyServiceTest {
         pharmacyService.delete(pharmacyId);
 
         verify(pharmacyRepository, times(1)).deleteById(pharmacyId);
+        verify(eventPublisher, times(1)).publishEvent(new ReportDataChangedEvent("Аптека", pharmacyId));
     }
 }
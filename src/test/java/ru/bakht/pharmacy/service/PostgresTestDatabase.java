@@ -0,0 +1,59 @@
+package ru.bakht.pharmacy.service;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Временная БД PostgreSQL для тестов запросов, которые нельзя проверить на H2.
+ * БД создается на сервере, указанном так же, как для {@link ReportQueryPlanTest}, схема создается
+ * миграциями Liquibase при запуске контекста, а после тестов БД удаляется.
+ */
+final class PostgresTestDatabase {
+
+    static final String JDBC_URL_PROPERTY = "report-plans.jdbc-url";
+
+    private final String name;
+
+    private String url;
+
+    PostgresTestDatabase(String prefix) {
+        this.name = prefix + "_" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Создает БД и передает параметры подключения к ней в контекст Spring.
+     */
+    void register(DynamicPropertyRegistry registry) {
+        String serverUrl = System.getProperty(JDBC_URL_PROPERTY);
+        execute("DROP DATABASE IF EXISTS " + name + " WITH (FORCE)");
+        execute("CREATE DATABASE " + name);
+        url = serverUrl.replaceFirst("(//[^/]+/)[^?]*", "$1" + name);
+
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> System.getProperty("report-plans.username"));
+        registry.add("spring.datasource.password", () -> System.getProperty("report-plans.password"));
+    }
+
+    /**
+     * Удаляет БД вместе с открытыми к ней соединениями контекста.
+     */
+    void drop() {
+        if (url != null) {
+            execute("DROP DATABASE IF EXISTS " + name + " WITH (FORCE)");
+        }
+    }
+
+    private void execute(String sql) {
+        try (Connection connection = DriverManager.getConnection(System.getProperty(JDBC_URL_PROPERTY),
+                System.getProperty("report-plans.username"), System.getProperty("report-plans.password"));
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось выполнить " + sql, e);
+        }
+    }
+}
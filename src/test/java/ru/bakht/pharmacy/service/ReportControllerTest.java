@@ -0,0 +1,45 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.bakht.pharmacy.service.controller.ReportController;
+import ru.bakht.pharmacy.service.controller.ReportFacade;
+import ru.bakht.pharmacy.service.exception.GlobalExceptionHandler;
+import ru.bakht.pharmacy.service.exception.IndexNotReadyException;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ReportControllerTest {
+
+    private ReportFacade reportFacade;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        reportFacade = mock(ReportFacade.class);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ReportController(reportFacade))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void getStockoutForecast_ReturnsServiceUnavailableUntilIndexIsLoaded() throws Exception {
+        when(reportFacade.getStockoutForecast(1L))
+                .thenThrow(new IndexNotReadyException("расхода лекарств", Duration.ofSeconds(30)));
+
+        mockMvc.perform(get("/api/reports/stockout-forecast/pharmacy/{pharmacyId}", 1L))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"));
+    }
+}
@@ -0,0 +1,87 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.bakht.pharmacy.service.event.ReportDataChangedEvent;
+import ru.bakht.pharmacy.service.service.report.ReportDataVersion;
+
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportDataVersionTest {
+
+    private static final String KEY = "report-data-version";
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private ReportDataVersion reportDataVersion;
+
+    @BeforeEach
+    void setUp() {
+        reportDataVersion = new ReportDataVersion(stringRedisTemplate);
+        ReflectionTestUtils.setField(reportDataVersion, "versionKey", KEY);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void current_RetriesMissedBumpBeforeReturningVersion() {
+        when(valueOperations.increment(KEY))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenReturn(8L);
+        when(valueOperations.get(KEY)).thenReturn("8");
+
+        reportDataVersion.onReportDataChanged(changed());
+
+        assertEquals(OptionalLong.empty(), reportDataVersion.current());
+        assertEquals(OptionalLong.of(8), reportDataVersion.current());
+        verify(valueOperations, times(3)).increment(KEY);
+        verify(valueOperations, times(1)).get(KEY);
+    }
+
+    @Test
+    void retryMissedBump_IncrementsOnlyWhileBumpIsMissed() {
+        when(valueOperations.increment(KEY))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenReturn(8L);
+
+        reportDataVersion.retryMissedBump();
+        reportDataVersion.onReportDataChanged(changed());
+        reportDataVersion.retryMissedBump();
+        reportDataVersion.retryMissedBump();
+
+        verify(valueOperations, times(2)).increment(KEY);
+    }
+
+    @Test
+    void onReportDataChanged_SuccessfulBumpCoversEarlierMiss() {
+        when(valueOperations.increment(KEY))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenReturn(8L);
+        when(valueOperations.get(KEY)).thenReturn("8");
+
+        reportDataVersion.onReportDataChanged(changed());
+        reportDataVersion.onReportDataChanged(changed());
+
+        assertEquals(OptionalLong.of(8), reportDataVersion.current());
+        verify(valueOperations, times(2)).increment(KEY);
+    }
+
+    private static ReportDataChangedEvent changed() {
+        return new ReportDataChangedEvent("Order", 1L);
+    }
+}
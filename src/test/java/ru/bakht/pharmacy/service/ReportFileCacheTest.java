@@ -0,0 +1,116 @@
+package ru.bakht.pharmacy.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.bakht.pharmacy.service.enums.FileFormat;
+import ru.bakht.pharmacy.service.enums.ReportType;
+import ru.bakht.pharmacy.service.service.report.ReportDataVersion;
+import ru.bakht.pharmacy.service.service.report.ReportFileCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportFileCacheTest {
+
+    private static final String KEY = "report:7:MEDICATIONS:CSV:pharmacy=1";
+
+    @Mock
+    private RedisTemplate<String, byte[]> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, byte[]> valueOperations;
+
+    @Mock
+    private ReportDataVersion reportDataVersion;
+
+    private ReportFileCache reportFileCache;
+    private final AtomicInteger generated = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        reportFileCache = new ReportFileCache(redisTemplate, reportDataVersion, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(reportFileCache, "keyPrefix", "report:");
+        ReflectionTestUtils.setField(reportFileCache, "ttl", Duration.ofHours(1));
+        ReflectionTestUtils.setField(reportFileCache, "maxSize", DataSize.ofBytes(4));
+        ReflectionTestUtils.invokeMethod(reportFileCache, "registerMetrics");
+    }
+
+    @Test
+    void getOrGenerate_ReturnsCachedBytesWithoutGenerating() throws IOException {
+        when(reportDataVersion.current()).thenReturn(OptionalLong.of(7));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(KEY)).thenReturn(new byte[]{1, 2});
+
+        byte[] result = write(reportFileCache.getOrGenerate(
+                ReportType.MEDICATIONS, FileFormat.CSV, "pharmacy=1", report(new byte[]{9})));
+
+        assertArrayEquals(new byte[]{1, 2}, result);
+        assertEquals(0, generated.get());
+    }
+
+    @Test
+    void getOrGenerate_StoresGeneratedReportUnderCurrentVersion() throws IOException {
+        when(reportDataVersion.current()).thenReturn(OptionalLong.of(7));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        byte[] result = write(reportFileCache.getOrGenerate(
+                ReportType.MEDICATIONS, FileFormat.CSV, "pharmacy=1", report(new byte[]{1, 2, 3})));
+
+        assertArrayEquals(new byte[]{1, 2, 3}, result);
+        verify(valueOperations, times(1)).set(KEY, new byte[]{1, 2, 3}, Duration.ofHours(1));
+    }
+
+    @Test
+    void getOrGenerate_SkipsReportsLargerThanLimit() throws IOException {
+        when(reportDataVersion.current()).thenReturn(OptionalLong.of(7));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        byte[] result = write(reportFileCache.getOrGenerate(
+                ReportType.MEDICATIONS, FileFormat.CSV, "pharmacy=1", report(new byte[]{1, 2, 3, 4, 5})));
+
+        assertEquals(5, result.length);
+        verify(valueOperations, never()).set(anyString(), any(), any(Duration.class));
+    }
+
+    @Test
+    void getOrGenerate_BypassesCacheWhenVersionIsUnavailable() throws IOException {
+        when(reportDataVersion.current()).thenReturn(OptionalLong.empty());
+
+        byte[] result = write(reportFileCache.getOrGenerate(
+                ReportType.MEDICATIONS, FileFormat.CSV, "pharmacy=1", report(new byte[]{1})));
+
+        assertArrayEquals(new byte[]{1}, result);
+        verifyNoInteractions(redisTemplate);
+    }
+
+    private Supplier<StreamingResponseBody> report(byte[] bytes) {
+        return () -> {
+            generated.incrementAndGet();
+            return outputStream -> outputStream.write(bytes);
+        };
+    }
+
+    private byte[] write(StreamingResponseBody body) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.bakht.pharmacy.service.controller.ReportFacade;
+import ru.bakht.pharmacy.service.controller.ReportJobController;
+import ru.bakht.pharmacy.service.enums.FileFormat;
+import ru.bakht.pharmacy.service.enums.ReportType;
+import ru.bakht.pharmacy.service.model.dto.ReportJobDto;
+import ru.bakht.pharmacy.service.service.report.ReportJobService;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ReportJobControllerTest {
+
+    private static final String REPORT = "0123456789";
+
+    @TempDir
+    private Path spoolDir;
+
+    private ReportJobService reportJobService;
+
+    private MockMvc mockMvc;
+
+    private UUID jobId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        reportJobService = new ReportJobService();
+        ReflectionTestUtils.setField(reportJobService, "threads", 1);
+        ReflectionTestUtils.setField(reportJobService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(reportJobService, "spoolDir", spoolDir);
+        ReflectionTestUtils.setField(reportJobService, "ttl", Duration.ofHours(1));
+        ReflectionTestUtils.invokeMethod(reportJobService, "init");
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ReportJobController(reportJobService, mock(ReportFacade.class)))
+                .build();
+
+        ReportJobDto job = reportJobService.submit(ReportType.MEDICATIONS, FileFormat.CSV, "medications",
+                () -> outputStream -> outputStream.write(REPORT.getBytes(StandardCharsets.UTF_8)));
+        jobId = job.getId();
+        awaitFinished(jobId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(reportJobService, "shutdown");
+    }
+
+    @Test
+    void download_ReturnsWholeFileWithoutRange() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reports/jobs/{id}/file", jobId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=medications.csv"))
+                .andExpect(content().string(REPORT));
+    }
+
+    @Test
+    void download_ReturnsPartialContentForSingleRange() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reports/jobs/{id}/file", jobId)
+                        .header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    void download_ReturnsTailForSuffixRange() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reports/jobs/{id}/file", jobId)
+                        .header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10"))
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    void download_ReturnsWholeFileForMultipleRanges() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reports/jobs/{id}/file", jobId)
+                        .header(HttpHeaders.RANGE, "bytes=0-1,4-5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().string(REPORT));
+    }
+
+    @Test
+    void download_RejectsUnsatisfiableRange() throws Exception {
+        mockMvc.perform(get("/api/reports/jobs/{id}/file", jobId)
+                        .header(HttpHeaders.RANGE, "bytes=10-20"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"))
+                .andExpect(content().string(""));
+    }
+
+    private void awaitFinished(UUID id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (reportJobService.getJob(id).getFinishedAt() != null) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        fail("Задание не завершилось");
+    }
+}
@@ -0,0 +1,184 @@
+package ru.bakht.pharmacy.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.bakht.pharmacy.service.enums.FileFormat;
+import ru.bakht.pharmacy.service.enums.ReportJobStatus;
+import ru.bakht.pharmacy.service.enums.ReportType;
+import ru.bakht.pharmacy.service.exception.EntityNotFoundException;
+import ru.bakht.pharmacy.service.model.dto.ReportJobDto;
+import ru.bakht.pharmacy.service.service.report.ReportJobFile;
+import ru.bakht.pharmacy.service.service.report.ReportJobService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportJobServiceTest {
+
+    @TempDir
+    private Path spoolDir;
+
+    private ReportJobService reportJobService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reportJobService = new ReportJobService();
+        ReflectionTestUtils.setField(reportJobService, "threads", 1);
+        ReflectionTestUtils.setField(reportJobService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(reportJobService, "spoolDir", spoolDir);
+        ReflectionTestUtils.setField(reportJobService, "ttl", Duration.ofHours(1));
+        ReflectionTestUtils.invokeMethod(reportJobService, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(reportJobService, "shutdown");
+    }
+
+    @Test
+    void submit_WritesReportToSpoolFile() throws Exception {
+        ReportJobDto job = reportJobService.submit(ReportType.MEDICATIONS, FileFormat.CSV, "medications",
+                () -> outputStream -> outputStream.write("ID\r\n1\r\n".getBytes()));
+
+        ReportJobDto finished = awaitFinished(job.getId());
+
+        assertEquals(ReportJobStatus.COMPLETED, finished.getStatus());
+        ReportJobFile file = reportJobService.getFile(job.getId());
+        assertEquals("medications.csv", file.fileName());
+        assertEquals(7, file.size());
+        assertEquals("ID\r\n1\r\n", Files.readString(file.path()));
+    }
+
+    @Test
+    void submit_MarksJobFailedAndRemovesPartialFile() throws Exception {
+        ReportJobDto job = reportJobService.submit(ReportType.MEDICATIONS, FileFormat.CSV, "medications",
+                () -> outputStream -> {
+                    outputStream.write(1);
+                    throw new IOException("Ошибка записи");
+                });
+
+        ReportJobDto finished = awaitFinished(job.getId());
+
+        assertEquals(ReportJobStatus.FAILED, finished.getStatus());
+        assertEquals("Ошибка записи", finished.getError());
+        assertThrows(IllegalStateException.class, () -> reportJobService.getFile(job.getId()));
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void submit_ThrowsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ReportJobDto running = reportJobService.submit(ReportType.MEDICATIONS, FileFormat.CSV, "running",
+                () -> outputStream -> awaitQuietly(release));
+        ReportJobDto queued = reportJobService.submit(ReportType.MEDICATIONS, FileFormat.CSV, "queued",
+                () -> outputStream -> awaitQuietly(release));
+
+        assertThrows(RejectedExecutionException.class, () -> reportJobService.submit(
+                ReportType.MEDICATIONS, FileFormat.CSV, "rejected", () -> outputStream -> {
+                }));
+
+        release.countDown();
+        // задания дописывают файлы в каталог отчетов, который удаляется после теста
+        awaitFinished(running.getId());
+        awaitFinished(queued.getId());
+    }
+
+    @Test
+    void cleanup_RemovesExpiredJobsAndFiles() throws Exception {
+        ReportJobDto job = reportJobService.submit(ReportType.MEDICATIONS, FileFormat.CSV, "medications",
+                () -> outputStream -> outputStream.write(1));
+        awaitFinished(job.getId());
+        Path file = reportJobService.getFile(job.getId()).path();
+
+        ReflectionTestUtils.setField(reportJobService, "ttl", Duration.ZERO);
+        reportJobService.cleanup();
+
+        assertFalse(Files.exists(file));
+        assertThrows(EntityNotFoundException.class, () -> reportJobService.getJob(job.getId()));
+    }
+
+    @Test
+    void transferFile_WritesRequestedPartOfReport() throws Exception {
+        ReportJobDto job = reportJobService.submit(ReportType.MEDICATIONS, FileFormat.CSV, "medications",
+                () -> outputStream -> outputStream.write("0123456789".getBytes()));
+        awaitFinished(job.getId());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        reportJobService.transferFile(job.getId(), 2, 4, outputStream);
+
+        assertEquals("2345", outputStream.toString());
+    }
+
+    @Test
+    void cleanup_KeepsExpiredJobWhileFileIsDownloaded() throws Exception {
+        ReportJobDto job = reportJobService.submit(ReportType.MEDICATIONS, FileFormat.CSV, "medications",
+                () -> outputStream -> outputStream.write(1));
+        awaitFinished(job.getId());
+        Path file = reportJobService.getFile(job.getId()).path();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> download = CompletableFuture.runAsync(() -> {
+            try {
+                reportJobService.transferFile(job.getId(), 0, 1, new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                        writing.countDown();
+                        awaitQuietly(release);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        ReflectionTestUtils.setField(reportJobService, "ttl", Duration.ZERO);
+        reportJobService.cleanup();
+
+        assertTrue(Files.exists(file));
+        assertEquals(ReportJobStatus.COMPLETED, reportJobService.getJob(job.getId()).getStatus());
+
+        release.countDown();
+        download.get(5, TimeUnit.SECONDS);
+        reportJobService.cleanup();
+
+        assertFalse(Files.exists(file));
+        assertThrows(EntityNotFoundException.class, () -> reportJobService.getJob(job.getId()));
+    }
+
+    private ReportJobDto awaitFinished(UUID id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ReportJobDto job = reportJobService.getJob(id);
+            if (job.getFinishedAt() != null) {
+                return job;
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        return fail("Задание не завершилось");
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
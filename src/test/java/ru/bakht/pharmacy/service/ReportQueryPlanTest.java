@@ -0,0 +1,319 @@
+package ru.bakht.pharmacy.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import ru.bakht.pharmacy.service.model.Order;
+import ru.bakht.pharmacy.service.repository.CustomerRepository;
+import ru.bakht.pharmacy.service.repository.EmployeeRepository;
+import ru.bakht.pharmacy.service.repository.MedicationRepository;
+import ru.bakht.pharmacy.service.repository.OrderDailyTotalRepository;
+import ru.bakht.pharmacy.service.repository.OrderRepository;
+import ru.bakht.pharmacy.service.repository.PharmacyMedicationRepository;
+import ru.bakht.pharmacy.service.specification.CustomerSpecification;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет планы запросов отчетов на PostgreSQL с синтетическими данными.
+ * На указанном сервере создается временная БД, схема создается миграциями Liquibase,
+ * заполняется данными, а после проверки БД удаляется.
+ * Нативные запросы берутся из аннотаций репозиториев, а для запросов JPQL проверяется SQL, который
+ * Hibernate выполняет при вызове метода репозитория: соединение записывает выполненные запросы
+ * с подставленными значениями параметров. Тест запускается только при указании сервера:
+ * {@code mvn test -Dtest=ReportQueryPlanTest -Dreport-plans.jdbc-url=jdbc:postgresql://localhost:5432/pharmacy_db
+ * -Dreport-plans.username=... -Dreport-plans.password=...}.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "report-plans.jdbc-url", matches = ".+")
+class ReportQueryPlanTest {
+
+    private static final String DATABASE = "report_plans_" + ProcessHandle.current().pid();
+
+    private static final String SYNTHETIC_DATA = """
+            TRUNCATE orders, order_daily_totals, stock_thresholds, pharmacy_medications, employees, customers,
+                     medications, pharmacies RESTART IDENTITY CASCADE;
+
+            INSERT INTO pharmacies (name, address, phone)
+            SELECT 'Аптека ' || g, 'Адрес ' || g, '+7800' || lpad(g::text, 7, '0')
+            FROM generate_series(1, 2000) g;
+
+            INSERT INTO medications (name, form, price, expiration_date)
+            SELECT initcap(substr(md5(g::text), 1, 12)), 'TABLET', 10 + g % 990, DATE '2030-01-01' + g % 365
+            FROM generate_series(1, 50000) g;
+
+            INSERT INTO employees (name, position, email, pharmacy_id)
+            SELECT 'Сотрудник ' || g, 'PHARMACIST', 'employee' || g || '@pharmacy.ru', 1 + g % 2000
+            FROM generate_series(1, 20000) g;
+
+            INSERT INTO customers (name, address, phone)
+            SELECT 'Покупатель ' || g, 'Адрес ' || g, '+7900' || lpad(g::text, 7, '0')
+            FROM generate_series(1, 200000) g;
+
+            INSERT INTO pharmacy_medications (pharmacy_id, medication_id, quantity)
+            SELECT p, 1 + (p * 7 + k) % 50000, (p * 31 + k * 17) % 500
+            FROM generate_series(1, 2000) p, generate_series(0, 49) k;
+
+            INSERT INTO orders (customer_id, employee_id, pharmacy_id, medication_id,
+                                quantity, total_amount, order_date, status)
+            SELECT 1 + g % 200000, 1 + g % 20000, 1 + g % 2000, 1 + g % 50000,
+                   1 + g % 5, (1 + g % 5) * 100, DATE '2020-01-01' + g % 2000,
+                   (ARRAY['NEW', 'PROCESSING', 'COMPLETED', 'CANCELLED'])[1 + g % 4]
+            FROM generate_series(1, 1000000) g;
+
+            INSERT INTO order_daily_totals (order_date, pharmacy_id, status, order_count, total_quantity, total_amount)
+            SELECT order_date, pharmacy_id, status, COUNT(*), SUM(quantity), SUM(total_amount)
+            FROM orders
+            GROUP BY order_date, pharmacy_id, status;
+
+            INSERT INTO stock_thresholds (pharmacy_id, medication_id, threshold)
+            SELECT NULL, g, 20 FROM generate_series(1, 50000, 100) g;
+
+            ANALYZE;
+            """;
+
+    private static final Map<String, String> PARAMETERS = Map.of(
+            ":pharmacyId", "42",
+            ":query", "'fe7ec4de28b'",
+            ":pattern", "'fe7ec4de28b'",
+            ":limit", "20",
+            ":startDate", "DATE '2023-03-01'",
+            ":endDate", "DATE '2023-03-31'");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<String> executedQueries = new ArrayList<>();
+
+    private Connection adminConnection;
+    private Connection connection;
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+
+    @BeforeAll
+    void createDatabase() throws Exception {
+        String url = System.getProperty("report-plans.jdbc-url");
+        adminConnection = connect(url);
+        try (Statement statement = adminConnection.createStatement()) {
+            statement.execute("CREATE DATABASE " + DATABASE);
+        }
+
+        connection = connect(url.replaceFirst("(//[^/]+/)[^?]*", "$1" + DATABASE));
+        Database database = DatabaseFactory.getInstance()
+                .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+        new Liquibase("db/changelog/db.changelog_master.yaml", new ClassLoaderResourceAccessor(), database)
+                .update("");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(SYNTHETIC_DATA);
+        }
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new SingleConnectionDataSource(recordingConnection(), true));
+        factoryBean.setPackagesToScan(Order.class.getPackageName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+                AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName(),
+                AvailableSettings.HBM2DDL_AUTO, "none"));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+        entityManager = entityManagerFactory.createEntityManager();
+    }
+
+    @AfterAll
+    void dropDatabase() throws SQLException {
+        if (adminConnection == null) {
+            return;
+        }
+        if (entityManagerFactory != null) {
+            entityManager.close();
+            entityManagerFactory.close();
+        }
+        if (connection != null) {
+            connection.close();
+        }
+        try (Statement statement = adminConnection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + DATABASE);
+        } finally {
+            adminConnection.close();
+        }
+    }
+
+    @Test
+    void findOrdersByCustomerPhone_UsesIndexes() throws Exception {
+        assertNoSeqScan(executedQuery(() -> repository(OrderRepository.class)
+                .findOrdersByCustomerPhone("+79000012345")));
+    }
+
+    @Test
+    void findTotalQuantityAndAmountByDateRange_UsesIndexes() throws Exception {
+        assertNoSeqScan(executedQuery(() -> repository(OrderDailyTotalRepository.class)
+                .findTotalQuantityAndAmountByDateRange(LocalDate.of(2023, 3, 1), LocalDate.of(2023, 3, 31))));
+    }
+
+    @Test
+    void findSalesBreakdown_UsesIndexOnOrders() throws Exception {
+        assertNoSeqScan(nativeQuery(OrderRepository.class, "findSalesBreakdown"), "orders");
+    }
+
+    @Test
+    void findMedicationsByPharmacyId_UsesIndexes() throws Exception {
+        assertNoSeqScan(nativeQuery(MedicationRepository.class, "findMedicationsByPharmacyId"));
+    }
+
+    @Test
+    void findOutOfStockMedicationsByPharmacyId_UsesIndexes() throws Exception {
+        assertNoSeqScan(nativeQuery(MedicationRepository.class, "findOutOfStockMedicationsByPharmacyId"));
+    }
+
+    @Test
+    void findBelowThresholdInShard_UsesIndexes() throws Exception {
+        assertNoSeqScan(executedQuery(() -> repository(PharmacyMedicationRepository.class)
+                .findBelowThresholdInShard(3, 8, 10)), "pharmacy_medications", "medications");
+    }
+
+    @Test
+    void searchByName_UsesTrigramIndex() throws Exception {
+        assertNoSeqScan(nativeQuery(MedicationRepository.class, "searchByName"));
+    }
+
+    @Test
+    void customerSpecifications_UseTrigramIndexes() throws Exception {
+        assertNoSeqScan(executedQuery(() -> repository(CustomerRepository.class)
+                .findAll(CustomerSpecification.hasName("атель 4242").and(CustomerSpecification.hasAddress("4242")))));
+    }
+
+    @Test
+    void findEmployeesByPharmacyId_UsesIndexes() throws Exception {
+        assertNoSeqScan(executedQuery(() -> repository(EmployeeRepository.class).findByPharmacyId(42L)));
+    }
+
+    /**
+     * Проверяет, что в плане запроса нет последовательного чтения указанных таблиц
+     * или, если таблицы не указаны, ни одной таблицы.
+     */
+    private void assertNoSeqScan(String sql, String... tables) throws Exception {
+        JsonNode plan;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+            resultSet.next();
+            plan = objectMapper.readTree(resultSet.getString(1)).get(0).get("Plan");
+        }
+
+        Set<String> checkedTables = Set.of(tables);
+        List<String> seqScans = new ArrayList<>();
+        collectSeqScans(plan, seqScans);
+        seqScans.removeIf(table -> !checkedTables.isEmpty() && !checkedTables.contains(table));
+        assertTrue(seqScans.isEmpty(), "Последовательное чтение таблиц " + seqScans + " в плане:\n"
+                + plan.toPrettyString());
+    }
+
+    private Connection connect(String url) throws SQLException {
+        return DriverManager.getConnection(url,
+                System.getProperty("report-plans.username"), System.getProperty("report-plans.password"));
+    }
+
+    private void collectSeqScans(JsonNode node, List<String> seqScans) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            seqScans.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSeqScans(child, seqScans);
+        }
+    }
+
+    private <T> T repository(Class<T> repository) {
+        return new JpaRepositoryFactory(entityManager).getRepository(repository);
+    }
+
+    /**
+     * Выполняет вызов репозитория и возвращает единственный выполненный им запрос.
+     */
+    private String executedQuery(Runnable call) {
+        executedQueries.clear();
+        call.run();
+        assertEquals(1, executedQueries.size(), "Выполненные запросы: " + executedQueries);
+        return executedQueries.get(0);
+    }
+
+    /**
+     * Соединение, которое записывает выполненные подготовленные запросы. Драйвер PostgreSQL
+     * возвращает из {@code toString()} текст запроса с подставленными значениями параметров.
+     */
+    private Connection recordingConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return result instanceof PreparedStatement statement ? recording(statement) : result;
+                });
+    }
+
+    private PreparedStatement recording(PreparedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        executedQueries.add(statement.toString());
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private String nativeQuery(Class<?> repository, String methodName) {
+        for (var method : repository.getMethods()) {
+            Query query = method.getAnnotation(Query.class);
+            if (method.getName().equals(methodName) && query != null && query.nativeQuery()) {
+                return withParameters(query.value());
+            }
+        }
+        throw new IllegalArgumentException("Нативный запрос " + methodName + " не найден");
+    }
+
+    private String withParameters(String sql) {
+        String result = sql;
+        for (Map.Entry<String, String> parameter : PARAMETERS.entrySet()) {
+            result = result.replace(parameter.getKey(), parameter.getValue());
+        }
+        return result;
+    }
+}
@@ -6,20 +6,32 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.bakht.pharmacy.service.enums.SalesDimension;
 import ru.bakht.pharmacy.service.mapper.MedicationMapper;
 import ru.bakht.pharmacy.service.mapper.OrderMapper;
 import ru.bakht.pharmacy.service.model.Medication;
 import ru.bakht.pharmacy.service.model.Order;
+import ru.bakht.pharmacy.service.model.PharmacyMedication;
+import ru.bakht.pharmacy.service.model.PharmacyMedicationId;
 import ru.bakht.pharmacy.service.model.dto.MedicationDto;
 import ru.bakht.pharmacy.service.model.dto.OrderDto;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdown;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdownProjection;
+import ru.bakht.pharmacy.service.model.dto.SalesBreakdownRow;
+import ru.bakht.pharmacy.service.model.dto.StockoutForecastDto;
 import ru.bakht.pharmacy.service.model.dto.TotalOrders;
 import ru.bakht.pharmacy.service.model.dto.TotalOrdersProjection;
 import ru.bakht.pharmacy.service.repository.MedicationRepository;
+import ru.bakht.pharmacy.service.repository.OrderDailyTotalRepository;
 import ru.bakht.pharmacy.service.repository.OrderRepository;
+import ru.bakht.pharmacy.service.repository.PharmacyMedicationRepository;
+import ru.bakht.pharmacy.service.service.report.ConsumptionRateIndex;
+import ru.bakht.pharmacy.service.service.report.OrderTotalsIndex;
 import ru.bakht.pharmacy.service.service.report.ReportService;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
@@ -33,6 +45,18 @@ class ReportServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderDailyTotalRepository orderDailyTotalRepository;
+
+    @Mock
+    private OrderTotalsIndex orderTotalsIndex;
+
+    @Mock
+    private PharmacyMedicationRepository pharmacyMedicationRepository;
+
+    @Mock
+    private ConsumptionRateIndex consumptionRateIndex;
+
     @Mock
     private MedicationMapper medicationMapper;
 
@@ -82,13 +106,57 @@ class ReportServiceTest {
 
     @Test
     void getTotalQuantityAndAmount() {
-        when(orderRepository.findTotalQuantityAndAmountByDateRange(startDate, endDate)).thenReturn(totalOrdersProjection);
+        when(orderDailyTotalRepository.findTotalQuantityAndAmountByDateRange(startDate, endDate))
+                .thenReturn(totalOrdersProjection);
 
         TotalOrders result = reportService.getTotalQuantityAndAmount(startDate, endDate);
 
         assertEquals(10, result.getTotalQuantity());
         assertEquals(200.0, result.getTotalAmount());
-        verify(orderRepository).findTotalQuantityAndAmountByDateRange(startDate, endDate);
+        verify(orderDailyTotalRepository).findTotalQuantityAndAmountByDateRange(startDate, endDate);
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void getStoredTotalQuantityAndAmount_ReadsDailyTotalsEvenWhenIndexIsLoaded() {
+        when(orderDailyTotalRepository.findTotalQuantityAndAmountByDateRange(startDate, endDate))
+                .thenReturn(totalOrdersProjection);
+
+        TotalOrders result = reportService.getStoredTotalQuantityAndAmount(startDate, endDate);
+
+        assertEquals(10, result.getTotalQuantity());
+        verifyNoInteractions(orderTotalsIndex);
+    }
+
+    @Test
+    void getTotalQuantityAndAmount_UsesIndexWithoutDatabase() {
+        when(orderTotalsIndex.findTotals(startDate, endDate)).thenReturn(Optional.of(new TotalOrders(3, 30.0)));
+
+        TotalOrders result = reportService.getTotalQuantityAndAmount(startDate, endDate);
+
+        assertEquals(3, result.getTotalQuantity());
+        assertEquals(30.0, result.getTotalAmount());
+        verifyNoInteractions(orderDailyTotalRepository, orderRepository);
+    }
+
+    @Test
+    void getSalesBreakdown() {
+        SalesBreakdownProjection projection = mock(SalesBreakdownProjection.class);
+        when(projection.getDimension()).thenReturn("PHARMACY");
+        when(projection.getGroupKey()).thenReturn("1");
+        when(projection.getLabel()).thenReturn("Аптека");
+        when(projection.getOrderCount()).thenReturn(2L);
+        when(projection.getTotalQuantity()).thenReturn(5L);
+        when(projection.getTotalAmount()).thenReturn(250.0);
+        when(orderRepository.findSalesBreakdown(startDate, endDate)).thenReturn(List.of(projection));
+
+        SalesBreakdown result = reportService.getSalesBreakdown(startDate, endDate);
+
+        assertEquals(startDate, result.getStartDate());
+        assertEquals(endDate, result.getEndDate());
+        assertEquals(List.of(new SalesBreakdownRow(SalesDimension.PHARMACY, "1", "Аптека", 2L, 5L, 250.0)),
+                result.getRows());
+        verify(orderRepository).findSalesBreakdown(startDate, endDate);
     }
 
     @Test
@@ -116,4 +184,24 @@ class ReportServiceTest {
         verify(medicationRepository).findOutOfStockMedicationsByPharmacyId(pharmacyId);
         verify(medicationMapper, times(2)).toDto(any(Medication.class));
     }
+
+    @Test
+    void getStockoutForecast_OrdersByDaysUntilStockout() {
+        when(pharmacyMedicationRepository.findWithMedicationByPharmacyId(pharmacyId)).thenReturn(List.of(
+                stock(1L, "Аспирин", 40), stock(2L, "Инсулин", 10), stock(3L, "Витамин C", 5)));
+        when(consumptionRateIndex.dailyRates(pharmacyId, new long[]{1L, 2L, 3L}))
+                .thenReturn(new double[]{4.0, 5.0, 0.0});
+
+        List<StockoutForecastDto> result = reportService.getStockoutForecast(pharmacyId);
+
+        assertEquals(List.of(
+                new StockoutForecastDto(2L, "Инсулин", 10, 5.0, 2.0),
+                new StockoutForecastDto(1L, "Аспирин", 40, 4.0, 10.0),
+                new StockoutForecastDto(3L, "Витамин C", 5, 0.0, null)), result);
+    }
+
+    private PharmacyMedication stock(Long medicationId, String name, int quantity) {
+        Medication medication = Medication.builder().id(medicationId).name(name).build();
+        return new PharmacyMedication(new PharmacyMedicationId(pharmacyId, medicationId), null, medication, quantity);
+    }
 }
@@ -0,0 +1,90 @@
+package ru.bakht.pharmacy.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.bakht.pharmacy.service.enums.ReportType;
+import ru.bakht.pharmacy.service.feign.ReportServiceClient;
+import ru.bakht.pharmacy.service.service.report.ReportUsageRecorder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportUsageRecorderTest {
+
+    @Mock
+    private ReportServiceClient reportServiceClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReportUsageRecorder reportUsageRecorder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reportUsageRecorder = new ReportUsageRecorder(reportServiceClient, meterRegistry);
+        ReflectionTestUtils.setField(reportUsageRecorder, "maxBacklog", 2);
+        ReflectionTestUtils.invokeMethod(reportUsageRecorder, "registerMetrics");
+    }
+
+    @Test
+    void flush_SendsAggregatedCountsInSingleBatch() {
+        reportUsageRecorder.record(ReportType.MEDICATIONS);
+        reportUsageRecorder.record(ReportType.MEDICATIONS);
+        reportUsageRecorder.record(ReportType.TOTAL_ORDERS);
+
+        reportUsageRecorder.flush();
+
+        verify(reportServiceClient, times(1)).recordReportRequests(
+                Map.of(ReportType.MEDICATIONS, 2L, ReportType.TOTAL_ORDERS, 1L));
+        verify(reportServiceClient, never()).recordReportRequest(any());
+    }
+
+    @Test
+    void flush_SkipsCallWhenNothingRecorded() {
+        reportUsageRecorder.flush();
+
+        verifyNoInteractions(reportServiceClient);
+    }
+
+    @Test
+    void flush_RetriesFailedBatchOnNextFlush() {
+        doThrow(new RuntimeException("REPORT-SERVICE недоступен"))
+                .doNothing()
+                .when(reportServiceClient).recordReportRequests(anyMap());
+
+        reportUsageRecorder.record(ReportType.CUSTOMER_ORDERS);
+        reportUsageRecorder.flush();
+        reportUsageRecorder.record(ReportType.CUSTOMER_ORDERS);
+        reportUsageRecorder.flush();
+
+        verify(reportServiceClient, times(1)).recordReportRequests(Map.of(ReportType.CUSTOMER_ORDERS, 2L));
+        assertEquals(1.0, meterRegistry.counter("report.usage.flush.failures").count());
+        assertEquals(0.0, meterRegistry.get("report.usage.backlog.size").gauge().value());
+    }
+
+    @Test
+    void flush_DropsOldestBatchWhenBacklogOverflows() {
+        doThrow(new RuntimeException("REPORT-SERVICE недоступен"))
+                .when(reportServiceClient).recordReportRequests(anyMap());
+
+        for (int i = 1; i <= 3; i++) {
+            for (int j = 0; j < i; j++) {
+                reportUsageRecorder.record(ReportType.MEDICATIONS);
+            }
+            reportUsageRecorder.flush();
+        }
+
+        assertEquals(1.0, meterRegistry.counter("report.usage.backlog.overflow").count());
+        assertEquals(1.0, meterRegistry.counter("report.usage.dropped").count());
+        assertEquals(2.0, meterRegistry.get("report.usage.backlog.size").gauge().value());
+        verify(reportServiceClient).recordReportRequests(Map.of(ReportType.MEDICATIONS, 5L));
+    }
+}
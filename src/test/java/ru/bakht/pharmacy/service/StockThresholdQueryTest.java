@@ -0,0 +1,139 @@
+package ru.bakht.pharmacy.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.model.*;
+import ru.bakht.pharmacy.service.repository.PharmacyMedicationRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class StockThresholdQueryTest {
+
+    private static final int DEFAULT_THRESHOLD = 10;
+
+    @Autowired
+    private PharmacyMedicationRepository pharmacyMedicationRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Pharmacy firstPharmacy;
+    private Pharmacy secondPharmacy;
+    private Medication aspirin;
+    private Medication insulin;
+    private Medication vitamin;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        firstPharmacy = testEntityManager.persist(Pharmacy.builder()
+                .name("Аптека №1").address("ул. Ленина, 1").phone("89007654321").build());
+        secondPharmacy = testEntityManager.persist(Pharmacy.builder()
+                .name("Аптека №2").address("ул. Ленина, 2").phone("89007654322").build());
+        aspirin = persistMedication("Аспирин");
+        insulin = persistMedication("Инсулин");
+        vitamin = persistMedication("Витамин C");
+
+        persistStock(firstPharmacy, aspirin, 8);
+        persistStock(firstPharmacy, insulin, 40);
+        persistStock(firstPharmacy, vitamin, 25);
+        persistStock(secondPharmacy, aspirin, 8);
+        persistStock(secondPharmacy, insulin, 40);
+        persistStock(secondPharmacy, vitamin, 25);
+    }
+
+    @Test
+    void findBelowThreshold_UsesDefaultWithoutRules() {
+        flushAndClear();
+
+        assertEquals(Set.of("1:Аспирин", "2:Аспирин"), belowThreshold());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findBelowThreshold_AppliesMostSpecificRule() {
+        persistThreshold(null, null, 5);
+        persistThreshold(secondPharmacy, null, 30);
+        persistThreshold(null, insulin, 50);
+        persistThreshold(secondPharmacy, insulin, 20);
+        flushAndClear();
+
+        // общее правило отменяет порог по умолчанию, правило аптеки поднимает порог витамина во второй аптеке,
+        // правило лекарства действует в первой аптеке, а правило пары переопределяет его во второй
+        assertEquals(Set.of("1:Инсулин", "2:Аспирин", "2:Витамин C"), belowThreshold());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findBelowThresholdInShard_ReturnsOnlyPharmaciesOfShard() {
+        flushAndClear();
+
+        List<PharmacyMedication> result = pharmacyMedicationRepository.findBelowThresholdInShard(
+                (int) (secondPharmacy.getId() % 2), 2, DEFAULT_THRESHOLD);
+
+        assertEquals(List.of(secondPharmacy.getId()), result.stream().map(pm -> pm.getId().getPharmacyId()).toList());
+    }
+
+    @Test
+    void findBelowThresholdByPharmacyIdsAndMedicationIds_ChecksOnlyRequestedPositions() {
+        persistThreshold(null, vitamin, 30);
+        flushAndClear();
+
+        List<PharmacyMedication> result = pharmacyMedicationRepository.findBelowThresholdByPharmacyIdsAndMedicationIds(
+                Set.of(firstPharmacy.getId()), Set.of(insulin.getId(), vitamin.getId()), DEFAULT_THRESHOLD);
+
+        assertEquals(List.of("Витамин C"), result.stream().map(pm -> pm.getMedication().getName()).toList());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private Set<String> belowThreshold() {
+        Map<Long, String> pharmacyNumbers = Map.of(firstPharmacy.getId(), "1", secondPharmacy.getId(), "2");
+        return pharmacyMedicationRepository.findBelowThresholdInShard(0, 1, DEFAULT_THRESHOLD).stream()
+                .map(pm -> pharmacyNumbers.get(pm.getPharmacy().getId()) + ":" + pm.getMedication().getName())
+                .collect(Collectors.toSet());
+    }
+
+    private Medication persistMedication(String name) {
+        return testEntityManager.persist(Medication.builder()
+                .name(name).form(MedicationForm.TABLET).price(100.0).build());
+    }
+
+    private void persistStock(Pharmacy pharmacy, Medication medication, int quantity) {
+        testEntityManager.persist(new PharmacyMedication(
+                new PharmacyMedicationId(pharmacy.getId(), medication.getId()), pharmacy, medication, quantity));
+    }
+
+    private void persistThreshold(Pharmacy pharmacy, Medication medication, int threshold) {
+        testEntityManager.persist(StockThreshold.builder()
+                .pharmacy(pharmacy).medication(medication).threshold(threshold).build());
+    }
+
+    private void flushAndClear() {
+        testEntityManager.flush();
+        testEntityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+}
@@ -0,0 +1,100 @@
+package ru.bakht.pharmacy.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import ru.bakht.pharmacy.service.cache.CacheInvalidationPublisher;
+import ru.bakht.pharmacy.service.cache.TwoLevelCache;
+import ru.bakht.pharmacy.service.enums.MedicationForm;
+import ru.bakht.pharmacy.service.model.dto.MedicationDto;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TwoLevelCacheTest {
+
+    @Mock
+    private CacheInvalidationPublisher invalidationPublisher;
+
+    private ConcurrentMapCache remote;
+    private com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private TwoLevelCache cache;
+    private MedicationDto medicationDto;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCache("medications", false);
+        local = Caffeine.newBuilder().maximumSize(100).build();
+        cache = new TwoLevelCache("medications", local, remote, invalidationPublisher);
+        medicationDto = new MedicationDto(1L, "Аспирин", MedicationForm.TABLET, 100.0, null);
+    }
+
+    @Test
+    void get_FillsLocalCacheFromRemote() {
+        remote.put(1L, medicationDto);
+
+        assertEquals(medicationDto, cache.get(1L, MedicationDto.class));
+        assertSame(medicationDto, local.getIfPresent("1"));
+    }
+
+    @Test
+    void get_ReturnsLocalValueWithoutRemoteLookup() {
+        local.put("1", medicationDto);
+
+        assertEquals(medicationDto, cache.get(1L, MedicationDto.class));
+        assertNull(remote.get(1L));
+    }
+
+    @Test
+    void get_ReturnsNullWhenBothLevelsMiss() {
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void put_WritesBothLevels() {
+        cache.put(1L, medicationDto);
+
+        assertNotNull(remote.get(1L));
+        assertSame(medicationDto, local.getIfPresent("1"));
+        verifyNoInteractions(invalidationPublisher);
+    }
+
+    @Test
+    void evict_RemovesBothLevelsAndPublishesInvalidation() {
+        cache.put(1L, medicationDto);
+
+        cache.evict(1L);
+
+        assertNull(remote.get(1L));
+        assertNull(local.getIfPresent("1"));
+        verify(invalidationPublisher, times(1)).publish("medications", "1");
+    }
+
+    @Test
+    void clear_RemovesAllEntriesAndPublishesInvalidation() {
+        cache.put(1L, medicationDto);
+        cache.put(2L, medicationDto);
+
+        cache.clear();
+
+        assertEquals(0, local.estimatedSize());
+        assertNull(remote.get(2L));
+        verify(invalidationPublisher, times(1)).publish("medications", null);
+    }
+
+    @Test
+    void evictLocal_KeepsRemoteEntry() {
+        cache.put(1L, medicationDto);
+
+        cache.evictLocal("1");
+
+        assertNull(local.getIfPresent("1"));
+        assertNotNull(remote.get(1L));
+        verifyNoInteractions(invalidationPublisher);
+    }
+}